@@ -0,0 +1,24 @@
+package com.example.benchmarks;
+
+import com.example.utils.LocatorValidator;
+import com.example.utils.llm.LocatorGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation stage: evaluating the LLM's candidate locators against the page
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocatorValidatorBenchmark {
+    private static final String LLM_OUTPUT = LocatorGenerator.extractLocators(StubLlmProvider.RESPONSE);
+
+    @Benchmark
+    public String validateLocators(PageState page) {
+        return LocatorValidator.validateLocators(LLM_OUTPUT, page.document);
+    }
+}
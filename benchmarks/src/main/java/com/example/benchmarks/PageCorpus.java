@@ -0,0 +1,78 @@
+package com.example.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmark pages of real-world sizes. The bundled search result page is grown to the requested size by repeating
+ * its result block with distinct titles, sites and positions, so every size has the structure of a real page and
+ * the same generated page is returned for the same size on every run.
+ */
+public final class PageCorpus {
+    private static final String SEED = "/corpus/search_results.html";
+    private static final String RESULT_BEGIN = "<!-- result:begin -->";
+    private static final String RESULT_END = "<!-- result:end -->";
+    private static final String[] TITLES = {"WebDriver", "Playwright", "Cypress", "Puppeteer", "TestNG", "WebdriverIO"};
+
+    /**
+     * Failed locator of the benchmarks, the class of the Selenium result title changed on the page
+     */
+    public static final String FAILED_LOCATOR = "//h3[@class='LC20lb MBeuO'][text()='Selenium']";
+
+    /**
+     * Message of the NoSuchElementException of the failed locator
+     */
+    public static final String EXCEPTION_MESSAGE = "org.openqa.selenium.NoSuchElementException: no such element: Unable to locate element: "
+            + "{\"method\":\"xpath\",\"selector\":\"" + FAILED_LOCATOR + "\"}\n  (Session info: chrome=129.0.6668.90)\n"
+            + "For documentation on this error, please visit: https://www.selenium.dev/documentation/webdriver/troubleshooting/errors#no-such-element-exception";
+
+    private PageCorpus() {}
+
+    /**
+     * Get a page of about the given size
+     * @param size - page size, e.g. 10KB, 100KB, 1MB, 10MB
+     * @return - HTML of the page
+     */
+    public static String page(String size) {
+        String seed = readSeed();
+        int begin = seed.indexOf(RESULT_BEGIN);
+        int end = seed.indexOf(RESULT_END);
+        String head = seed.substring(0, begin);
+        String result = seed.substring(begin + RESULT_BEGIN.length(), end);
+        String tail = seed.substring(end + RESULT_END.length());
+
+        long target = parseSize(size);
+        StringBuilder page = new StringBuilder((int) Math.min(Integer.MAX_VALUE, target + result.length())).append(head);
+        for (int n = 0; n == 0 || page.length() + tail.length() < target; n++) {
+            String title = switch (n) {
+                case 0 -> "Selenium";
+                case 1 -> "Applitools";
+                default -> TITLES[n % TITLES.length] + " " + n;
+            };
+            page.append(result
+                    .replace("{n}", String.valueOf(n))
+                    .replace("{title}", title)
+                    .replace("{alt}", title)
+                    .replace("{site}", title.toLowerCase().replace(' ', '-')));
+        }
+        return page.append(tail).toString();
+    }
+
+    private static long parseSize(String size) {
+        String value = size.trim().toUpperCase();
+        if (value.endsWith("MB")) return Long.parseLong(value.substring(0, value.length() - 2)) * 1024 * 1024;
+        if (value.endsWith("KB")) return Long.parseLong(value.substring(0, value.length() - 2)) * 1024;
+        return Long.parseLong(value);
+    }
+
+    private static String readSeed() {
+        try (InputStream in = PageCorpus.class.getResourceAsStream(SEED)) {
+            if (in == null) throw new IllegalStateException("Benchmark corpus not found: " + SEED);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
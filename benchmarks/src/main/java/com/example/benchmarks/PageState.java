@@ -0,0 +1,28 @@
+package com.example.benchmarks;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A benchmark page of every corpus size, as HTML and parsed once per trial
+ */
+@State(Scope.Benchmark)
+public class PageState {
+
+    @Param({"10KB", "100KB", "1MB", "10MB"})
+    public String size;
+
+    public String html;
+    public Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        html = PageCorpus.page(size);
+        document = Jsoup.parse(html);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.benchmarks;
+
+import com.example.utils.healing.HealingCache;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse stage: parsing the captured page and fingerprinting it for the healing cache
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Benchmark
+    public Document parse(PageState page) {
+        return Jsoup.parse(page.html);
+    }
+
+    @Benchmark
+    public String fingerprint(PageState page) {
+        return HealingCache.fingerprint(page.document);
+    }
+}
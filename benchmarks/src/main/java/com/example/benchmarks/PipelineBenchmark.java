@@ -0,0 +1,53 @@
+package com.example.benchmarks;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.*;
+import com.example.utils.healing.HealingCache;
+import com.example.utils.llm.LlmProviders;
+import com.example.utils.llm.LocatorGenerator;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The healing stages of one failure end to end, with the configured LLM provider replaced by StubLlmProvider. Write-back,
+ * the healing cache and artifact persistence are left out, they only measure the disk.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+    @Setup(Level.Trial)
+    public void stubLlm() {
+        LlmProviders.register(ConfigManager.getProperty("llm.provider", "cohere"), StubLlmProvider::new);
+    }
+
+    @Benchmark
+    public String healWithLlm(PageState page, Blackhole blackhole) {
+        String locator = ExtractFailedLoc.extractLocator(PageCorpus.EXCEPTION_MESSAGE);
+        Document document = Jsoup.parse(page.html);
+        blackhole.consume(HealingCache.fingerprint(document));
+        String processedHtml = ProcessHTML.extractFailedPart(document, locator);
+        String llmOutput = LocatorGenerator.requestLocators(locator, processedHtml);
+        String validatedLocators = LocatorValidator.validateLocators(llmOutput, document);
+        return LocatorUpdater.findFirstFoundLocator(validatedLocators);
+    }
+
+    @Benchmark
+    public String healLocally(PageState page, Blackhole blackhole) {
+        String locator = ExtractFailedLoc.extractLocator(PageCorpus.EXCEPTION_MESSAGE);
+        Document document = Jsoup.parse(page.html);
+        blackhole.consume(HealingCache.fingerprint(document));
+        String localOutput = HeuristicHealer.getInstance().heal(document, locator);
+        if (localOutput == null) return null;
+        String validatedLocators = LocatorValidator.validateLocators(localOutput, document);
+        return LocatorUpdater.findFirstFoundLocator(validatedLocators);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.benchmarks;
+
+import com.example.utils.HeuristicHealer;
+import com.example.utils.ProcessHTML;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Context stages: cutting the page down to the part sent to the LLM, and the local heuristic healer that runs first
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessHtmlBenchmark {
+
+    @Benchmark
+    public String extractFailedPart(PageState page) {
+        return ProcessHTML.extractFailedPart(page.document, PageCorpus.FAILED_LOCATOR);
+    }
+
+    @Benchmark
+    public String healLocally(PageState page) {
+        return HeuristicHealer.getInstance().heal(page.document, PageCorpus.FAILED_LOCATOR);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.benchmarks;
+
+import com.example.utils.healing.ArtifactStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Failures recorded by earlier runs in a Healing_Docs-style directory: the page source, failed locator and LLM
+ * output of every healing run in the artifact store under store/. The expected fix of a failure comes from a curated
+ * expectations file, expected_fixes.properties by default, keyed by healing id or failed locator and reviewed by a
+ * person. Failures it does not cover fall back to healed_locators.loc, in the format ConfigManager keeps healed
+ * locators in; those fixes were chosen by the healer itself, so matching them only measures self-agreement, not
+ * accuracy. Runs without a page source or failed locator are skipped; runs without an expected fix are replayed but
+ * left out of both.
+ */
+public final class ReplayCorpus {
+    /** Default name of the curated expectations file in a corpus directory */
+    public static final String EXPECTATIONS_FILE = "expected_fixes.properties";
+
+    private static final Pattern HEALED_VALUE = Pattern.compile("(\\d+)\\|(.*)", Pattern.DOTALL);
+
+    /**
+     * Where the expected fix of a failure comes from
+     */
+    public enum Expectation {
+        /** Reviewed fix from the expectations file */
+        CURATED,
+        /** Fix an earlier healing run applied, from healed_locators.loc */
+        SELF,
+        /** No expected fix */
+        NONE
+    }
+
+    /**
+     * A recorded failure
+     * @param healingId - id of the recorded healing run
+     * @param testName - name of the failed test method
+     * @param failedLocator - the locator that failed
+     * @param pageSource - page source captured when the test failed
+     * @param recordedOutput - LLM or local healer output of the recorded run, one "Locator: ..." entry per line, null if none
+     * @param expectedLocator - locator the failed one should be healed to, null if unknown
+     * @param expectation - where the expected locator comes from
+     */
+    public record ReplayCase(String healingId, String testName, String failedLocator, String pageSource,
+                             String recordedOutput, String expectedLocator, Expectation expectation) {
+
+        /**
+         * Message of the NoSuchElementException the failure is replayed with
+         * @return - exception message naming the failed locator
+         */
+        public String exceptionMessage() {
+            return "org.openqa.selenium.NoSuchElementException: no such element: Unable to locate element: "
+                    + "{\"method\":\"xpath\",\"selector\":\"" + failedLocator + "\"}";
+        }
+    }
+
+    private ReplayCorpus() {}
+
+    /**
+     * Load the recorded failures of a corpus directory with the expectations file of the corpus
+     * @param corpusDir - directory with store/ and, optionally, expected_fixes.properties and healed_locators.loc
+     * @return - the failures in recording order
+     */
+    public static List<ReplayCase> load(Path corpusDir) {
+        return load(corpusDir, corpusDir.resolve(EXPECTATIONS_FILE));
+    }
+
+    /**
+     * Load the recorded failures of a corpus directory
+     * @param corpusDir - directory with store/ and, optionally, healed_locators.loc
+     * @param expectationsFile - curated expected fixes, healing id or failed locator = expected locator; may not exist
+     * @return - the failures in recording order
+     */
+    public static List<ReplayCase> load(Path corpusDir, Path expectationsFile) {
+        Path storeDir = corpusDir.resolve("store");
+        if (!Files.isDirectory(storeDir)) {
+            throw new IllegalArgumentException("No artifact store in replay corpus: " + storeDir.toAbsolutePath());
+        }
+        // Limits only apply on eviction, which the replay never runs
+        ArtifactStore store = new ArtifactStore(storeDir, Long.MAX_VALUE, Long.MAX_VALUE);
+        Properties curated = readExpected(expectationsFile);
+        Properties healed = readExpected(corpusDir.resolve("healed_locators.loc"));
+
+        Map<String, String> testNames = new LinkedHashMap<>();
+        store.entries().forEach(entry -> testNames.putIfAbsent(entry.healingId(), entry.testName()));
+        List<ReplayCase> cases = new ArrayList<>();
+        for (Map.Entry<String, String> run : testNames.entrySet()) {
+            String failedLocator = store.read(run.getKey(), ArtifactStore.Kind.FAILED_LOCATOR);
+            String pageSource = store.read(run.getKey(), ArtifactStore.Kind.PAGE_SOURCE);
+            if (failedLocator == null || pageSource == null) continue;
+            String expected = curated.getProperty(run.getKey(), curated.getProperty(failedLocator));
+            Expectation expectation = Expectation.CURATED;
+            if (expected == null) {
+                expected = healedLocator(healed.getProperty(failedLocator));
+                expectation = expected == null ? Expectation.NONE : Expectation.SELF;
+            }
+            cases.add(new ReplayCase(run.getKey(), run.getValue(), failedLocator, pageSource,
+                    store.read(run.getKey(), ArtifactStore.Kind.LLM_OUTPUT), expected, expectation));
+        }
+        return cases;
+    }
+
+    /**
+     * Strip the heal time ConfigManager stores in front of a healed locator
+     * @param value - value of healed_locators.loc, "healedAt|newLocator" or a bare locator of older files
+     * @return - the healed locator, null for null
+     */
+    private static String healedLocator(String value) {
+        if (value == null) return null;
+        Matcher timed = HEALED_VALUE.matcher(value);
+        return timed.matches() ? timed.group(2) : value;
+    }
+
+    private static Properties readExpected(Path file) {
+        Properties expected = new Properties();
+        if (!Files.exists(file)) return expected;
+        try (InputStream in = Files.newInputStream(file)) {
+            expected.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.benchmarks;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.healing.ArtifactSink;
+import com.example.utils.healing.FailureSnapshot;
+import com.example.utils.healing.HealingEngine;
+import com.example.utils.healing.HealingPipeline;
+import com.example.utils.healing.HealingResult;
+import com.example.utils.llm.LlmProviders;
+import com.example.utils.metrics.HealingMetrics;
+import com.example.utils.reporting.HealingReport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.json.JSONObject;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays the failures of a recorded corpus through the healing pipeline the test listener runs, headless and with
+ * ReplayLlmProvider in place of the configured LLM, and reports throughput, end-to-end and per-stage latency
+ * percentiles, tokens per heal, the accuracy against curated expected fixes and the self-agreement with the fixes
+ * earlier runs applied (see ReplayCorpus). All output of the pipeline goes to a fresh directory below the work
+ * directory, and locator files are never written back, so the replay can run in CI without a browser or network.
+ * <p>
+ * java -cp target/benchmarks.jar com.example.benchmarks.ReplayHarness &lt;corpusDir&gt; [--concurrency 4]
+ * [--iterations 1] [--work-dir target/replay] [--expectations corpusDir/expected_fixes.properties]
+ * [--min-accuracy 0.9] [--min-self-agreement 0.9] [--max-p99-millis 500]
+ * <p>
+ * Exits with 1 when a threshold is missed, so a healing change that costs accuracy or latency fails the build.
+ * --min-accuracy needs curated expectations and is missed without them.
+ */
+public final class ReplayHarness {
+    private static final Logger logger = Logger.getLogger(ReplayHarness.class.getName());
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * Outcome of one replayed failure
+     * @param replayCase - the replayed failure
+     * @param result - outcome of the healing run, null if the run failed
+     */
+    private record Outcome(ReplayCorpus.ReplayCase replayCase, HealingResult result) {
+    }
+
+    private ReplayHarness() {}
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Path corpusDir = Paths.get(options.get("corpus"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "4"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "1"));
+        Path workDir = Paths.get(options.getOrDefault("work-dir", "target/replay"));
+
+        Files.createDirectories(workDir);
+        Path runDir = Files.createTempDirectory(workDir.toAbsolutePath(), "run-");
+        isolate(runDir, concurrency);
+
+        Path expectationsFile = options.containsKey("expectations") ? Paths.get(options.get("expectations"))
+                : corpusDir.resolve(ReplayCorpus.EXPECTATIONS_FILE);
+        List<ReplayCorpus.ReplayCase> cases = ReplayCorpus.load(corpusDir, expectationsFile);
+        if (cases.isEmpty()) {
+            System.err.println("No replayable failures in " + corpusDir.toAbsolutePath());
+            System.exit(2);
+        }
+        LlmProviders.register(ConfigManager.getProperty("llm.provider"), () -> new ReplayLlmProvider(cases));
+
+        JSONObject report = replay(cases, iterations);
+        report.put("corpus", corpusDir.toAbsolutePath().toString())
+                .put("expectations", expectationsFile.toAbsolutePath().toString())
+                .put("concurrency", concurrency)
+                .put("iterations", iterations)
+                .put("outputDir", runDir.toString());
+        Files.writeString(runDir.resolve("replay_report.json"), report.toString(2));
+        System.out.println(report.toString(2));
+
+        List<String> missed = checkThresholds(report, options);
+        missed.forEach(System.err::println);
+        LlmProviders.closeAll();
+        System.exit(missed.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Replay every failure of the corpus and summarize the runs
+     * @param cases - the failures
+     * @param iterations - how often the whole corpus is replayed
+     * @return - the replay report
+     */
+    private static JSONObject replay(List<ReplayCorpus.ReplayCase> cases, int iterations) {
+        HealingEngine engine = HealingEngine.getInstance();
+        HealingPipeline pipeline = HealingPipeline.getInstance();
+        Histogram latencies = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        List<Outcome> outcomes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger dropped = new AtomicInteger();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (ReplayCorpus.ReplayCase replayCase : cases) {
+                FailureSnapshot snapshot = new FailureSnapshot(replayCase.testName(), replayCase.exceptionMessage(), "",
+                        replayCase.pageSource(), System.currentTimeMillis());
+                long submitted = System.nanoTime();
+                // Same hand-over as CustomTestListener.onTestFailure, timed from the moment the test would fail
+                if (engine.submit(snapshot, failure -> {
+                    HealingResult result = null;
+                    try {
+                        result = pipeline.heal(failure);
+                    } catch (Exception e) {
+                        logger.log(Level.WARNING, "Replay of " + replayCase.healingId() + " failed", e);
+                    }
+                    latencies.recordValue(Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - submitted) / 1000));
+                    outcomes.add(new Outcome(replayCase, result));
+                }) == null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+        if (!engine.awaitCompletion(DRAIN_TIMEOUT)) {
+            engine.cancelAll();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        ArtifactSink.getInstance().flush(DRAIN_TIMEOUT);
+        HealingReport.getInstance().write();
+        HealingMetrics metrics = HealingMetrics.getInstance();
+        metrics.export();
+        return summarize(outcomes, dropped.get(), elapsedNanos, latencies, metrics.toJson());
+    }
+
+    private static JSONObject summarize(List<Outcome> outcomes, int dropped, long elapsedNanos, Histogram latencies,
+                                        JSONObject metrics) {
+        Map<String, Integer> sources = new TreeMap<>();
+        // Index 0 counts curated expectations, index 1 the fixes of earlier runs
+        int[] expected = new int[2];
+        int[] matched = new int[2];
+        synchronized (outcomes) {
+            for (Outcome outcome : outcomes) {
+                HealingResult result = outcome.result();
+                String source = result == null ? "ERROR" : result.isHealed() ? result.source().name() : "NONE";
+                sources.merge(source, 1, Integer::sum);
+                ReplayCorpus.Expectation expectation = outcome.replayCase().expectation();
+                if (expectation == ReplayCorpus.Expectation.NONE) continue;
+                int kind = expectation == ReplayCorpus.Expectation.CURATED ? 0 : 1;
+                expected[kind]++;
+                if (result != null && result.isHealed() && isExpectedFix(outcome.replayCase(), result.newLocator())) matched[kind]++;
+            }
+        }
+
+        long tokens = 0;
+        JSONObject values = metrics.getJSONObject("metrics");
+        for (String name : values.keySet()) {
+            if (name.startsWith("healing_llm_prompt_tokens_total") || name.startsWith("healing_llm_completion_tokens_total")) {
+                tokens += values.getLong(name);
+            }
+        }
+        JSONObject stages = new JSONObject();
+        JSONObject stageLatencies = metrics.getJSONObject("stageLatencies");
+        for (String stage : stageLatencies.keySet()) {
+            JSONObject latency = stageLatencies.getJSONObject(stage);
+            stages.put(stage, new JSONObject()
+                    .put("count", latency.getLong("count"))
+                    .put("p50Millis", latency.getDouble("p50Millis"))
+                    .put("p99Millis", latency.getDouble("p99Millis")));
+        }
+
+        int replayed = outcomes.size();
+        JSONObject report = new JSONObject()
+                .put("failures", replayed)
+                .put("dropped", dropped)
+                .put("elapsedSeconds", elapsedNanos / 1e9)
+                .put("throughputPerSecond", replayed / (elapsedNanos / 1e9))
+                .put("latency", new JSONObject()
+                        .put("p50Millis", latencies.getValueAtPercentile(50) / 1000.0)
+                        .put("p99Millis", latencies.getValueAtPercentile(99) / 1000.0)
+                        .put("maxMillis", latencies.getMaxValue() / 1000.0))
+                .put("stageLatencies", stages)
+                .put("sources", sources)
+                .put("tokensPerHeal", replayed == 0 ? 0.0 : (double) tokens / replayed)
+                .put("withCuratedFix", expected[0])
+                .put("withSelfFix", expected[1]);
+        if (expected[0] > 0) report.put("accuracy", (double) matched[0] / expected[0]);
+        // Agreement with fixes the healer chose itself; a stable but wrong heal still agrees
+        if (expected[1] > 0) report.put("selfAgreement", (double) matched[1] / expected[1]);
+        return report;
+    }
+
+    /**
+     * Check whether the healed locator selects the same elements of the recorded page as the expected fix, so an
+     * equivalent locator written differently still counts as correct
+     * @param replayCase - the replayed failure
+     * @param newLocator - the locator the failed one was healed to
+     * @return - true if both select the same, non-empty set of elements
+     */
+    private static boolean isExpectedFix(ReplayCorpus.ReplayCase replayCase, String newLocator) {
+        if (newLocator.equals(replayCase.expectedLocator())) return true;
+        try {
+            Document document = Jsoup.parse(replayCase.pageSource());
+            List<Element> actual = document.selectXpath(newLocator);
+            return !actual.isEmpty() && actual.equals(document.selectXpath(replayCase.expectedLocator()));
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static List<String> checkThresholds(JSONObject report, Map<String, String> options) {
+        List<String> missed = new ArrayList<>();
+        if (options.containsKey("min-accuracy")) {
+            double minAccuracy = Double.parseDouble(options.get("min-accuracy"));
+            if (!report.has("accuracy")) {
+                missed.add("Accuracy cannot be measured without curated expectations, see " + report.getString("expectations"));
+            } else if (report.getDouble("accuracy") < minAccuracy) {
+                missed.add("Accuracy " + report.getDouble("accuracy") + " is below " + minAccuracy);
+            }
+        }
+        if (options.containsKey("min-self-agreement")) {
+            double minAgreement = Double.parseDouble(options.get("min-self-agreement"));
+            double agreement = report.optDouble("selfAgreement", 0.0);
+            if (agreement < minAgreement) missed.add("Self-agreement " + agreement + " is below " + minAgreement);
+        }
+        if (options.containsKey("max-p99-millis")) {
+            double maxP99 = Double.parseDouble(options.get("max-p99-millis"));
+            double p99 = report.getJSONObject("latency").getDouble("p99Millis");
+            if (p99 > maxP99) missed.add("p99 latency " + p99 + "ms is above " + maxP99 + "ms");
+        }
+        return missed;
+    }
+
+    /**
+     * Point all output of the pipeline at the run directory and switch off what would make replays depend on each
+     * other or touch the project: the healing cache, locator write-back and AI summaries. The values are set as system
+     * properties prefixed by "config.", which ConfigManager reads before config.properties; values given with
+     * -Dconfig.healing.store.dir=... win.
+     * @param runDir - directory of this replay
+     * @param concurrency - number of failures healed at the same time
+     */
+    private static void isolate(Path runDir, int concurrency) {
+        Map<String, String> overrides = new LinkedHashMap<>();
+        overrides.put("llm.provider", "replay");
+        overrides.put("healing.executor.parallelism", String.valueOf(concurrency));
+        overrides.put("healing.queue.capacity", String.valueOf(Math.max(64, concurrency * 2)));
+        overrides.put("healing.batch.enabled", "false");
+        overrides.put("healing.cache.enabled", "false");
+        overrides.put("healing.cache.dir", runDir.resolve("cache").toString());
+        overrides.put("healing.store.dir", runDir.resolve("store").toString());
+        overrides.put("healing.journal.dir", runDir.resolve("journal").toString());
+        overrides.put("healing.writeBack", "suite");
+        overrides.put("healing.writeBack.dryRun", "true");
+        overrides.put("healing.report.dir", runDir.resolve("healing_report").toString());
+        overrides.put("healing.report.aiSummary.enabled", "false");
+        overrides.put("healing.report.aiSummary.cacheFile", runDir.resolve("cache/report_summaries.properties").toString());
+        overrides.put("healing.metrics.dir", runDir.resolve("metrics").toString());
+        overrides.put("locators.hotReload", "false");
+        overrides.put("locators.healedFile", runDir.resolve("healed_locators.loc").toString());
+        overrides.put("locators.fingerprint.file", runDir.resolve("fingerprints/fingerprints.bin").toString());
+        overrides.forEach((key, value) -> {
+            if (System.getProperty("config." + key) == null) System.setProperty("config." + key, value);
+        });
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                options.put("corpus", args[i]);
+            }
+        }
+        if (!options.containsKey("corpus")) {
+            System.err.println("Usage: ReplayHarness <corpusDir> [--concurrency N] [--iterations N] [--work-dir DIR]"
+                    + " [--expectations FILE] [--min-accuracy X] [--min-self-agreement X] [--max-p99-millis X]");
+            System.exit(2);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.benchmarks;
+
+import com.example.utils.llm.LlmProvider;
+import com.example.utils.llm.LlmResponse;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * LLM provider answering with the output recorded for the failed locator of the prompt, turned back into the JSON
+ * format requested by LLM_prompt.txt, so a corpus can be replayed offline with the answers the real provider gave.
+ * Failed locators without a recorded output are answered with an empty list.
+ */
+public class ReplayLlmProvider implements LlmProvider {
+    private static final Pattern FAILED_LOCATOR = Pattern.compile("^Locator Content: (.*)$", Pattern.MULTILINE);
+    private static final String EMPTY_RESPONSE = "[]";
+
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     * @param cases - the replayed failures, with the outputs to answer with
+     */
+    public ReplayLlmProvider(List<ReplayCorpus.ReplayCase> cases) {
+        for (ReplayCorpus.ReplayCase replayCase : cases) {
+            if (replayCase.recordedOutput() != null) {
+                responses.putIfAbsent(replayCase.failedLocator(), toResponse(replayCase.recordedOutput()));
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "replay";
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> complete(String prompt) {
+        Matcher matcher = FAILED_LOCATOR.matcher(prompt);
+        String response = matcher.find() ? responses.getOrDefault(unescape(matcher.group(1)), EMPTY_RESPONSE) : EMPTY_RESPONSE;
+        return CompletableFuture.completedFuture(new LlmResponse(response, -1, -1));
+    }
+
+    /**
+     * Turn recorded "Locator: ..., Score: ..., Explanation: ..." entries back into the JSON answer of the LLM
+     * @param recordedOutput - the recorded output
+     * @return - JSON array of the locators
+     */
+    static String toResponse(String recordedOutput) {
+        JSONArray locators = new JSONArray();
+        for (String line : recordedOutput.split("\n")) {
+            int score = line.indexOf(", Score: ");
+            if (!line.startsWith("Locator: ") || score < 0) continue;
+            int explanation = line.indexOf(", Explanation: ", score);
+            JSONObject locator = new JSONObject().put("locator", line.substring(9, score));
+            String value = explanation < 0 ? line.substring(score + 9) : line.substring(score + 9, explanation);
+            try {
+                locator.put("score", Double.parseDouble(value.trim()));
+            } catch (NumberFormatException e) {
+                locator.put("score", 0.0);
+            }
+            locator.put("explanation", explanation < 0 ? "" : line.substring(explanation + 15).trim());
+            locators.put(locator);
+        }
+        return locators.toString(4);
+    }
+
+    private static String unescape(String value) {
+        return value.replace("\\\"", "\"").replace("\\\\", "\\");
+    }
+}
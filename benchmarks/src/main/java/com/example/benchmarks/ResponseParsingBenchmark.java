@@ -0,0 +1,28 @@
+package com.example.benchmarks;
+
+import com.example.utils.ExtractFailedLoc;
+import com.example.utils.llm.LocatorGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing stages: the failed locator from the exception message and the locators from the LLM response
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    @Benchmark
+    public String extractFailedLocator() {
+        return ExtractFailedLoc.extractLocator(PageCorpus.EXCEPTION_MESSAGE);
+    }
+
+    @Benchmark
+    public String extractLocators() {
+        return LocatorGenerator.extractLocators(StubLlmProvider.RESPONSE);
+    }
+}
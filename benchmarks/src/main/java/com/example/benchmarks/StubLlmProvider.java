@@ -0,0 +1,36 @@
+package com.example.benchmarks;
+
+import com.example.utils.llm.LlmProvider;
+import com.example.utils.llm.LlmResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * LLM provider answering every prompt at once with the same locators, so the pipeline can be benchmarked offline
+ * and without network jitter
+ */
+public class StubLlmProvider implements LlmProvider {
+
+    /**
+     * Answer of the stub, in the format requested by LLM_prompt.txt
+     */
+    public static final String RESPONSE = """
+            [
+                {"locator": "//h3[@class='LC20lb MBeuO DKV0Md'][text()='Selenium']", "score": 0.95, "explanation": "Same title with the full class list."},
+                {"locator": "//h3[text()='Selenium']", "score": 0.9, "explanation": "The result title text is unique on the page."},
+                {"locator": "//a[@href='https://www.selenium.dev/0']/h3", "score": 0.85, "explanation": "Title inside the link of the Selenium result."},
+                {"locator": "//h3[@class='LC20lb']", "score": 0.5, "explanation": "Matches every result title."},
+                {"locator": "//h3[@class='LC20lb MBeuO DKV0Md'][text()='Selenium'", "score": 0.3, "explanation": "Malformed locator."}
+            ]
+            """;
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> complete(String prompt) {
+        return CompletableFuture.completedFuture(new LlmResponse(RESPONSE, prompt.length() / 4, RESPONSE.length() / 4));
+    }
+}
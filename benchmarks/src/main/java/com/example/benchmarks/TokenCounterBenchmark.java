@@ -0,0 +1,22 @@
+package com.example.benchmarks;
+
+import com.example.utils.TokenCounter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token counting of the captured page, logged for every failure healed by the LLM
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenCounterBenchmark {
+
+    @Benchmark
+    public int countTokens(PageState page) {
+        return TokenCounter.countTokens(page.html);
+    }
+}
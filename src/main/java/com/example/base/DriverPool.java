@@ -0,0 +1,217 @@
+package com.example.base;
+
+import com.example.configurations.ConfigManager;
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.openqa.selenium.edge.EdgeDriver;
+
+import java.net.URI;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of browser sessions with one slot per TestNG worker thread. A session is reused by the following test methods
+ * of its thread after a health check and a reset of cookies, storage and extra tabs, until it reached its maximum
+ * reuse count or, with recycle on failure, a test using it failed. Only Chromium sessions are reset, through the
+ * DevTools protocol, which reaches the cookies and storage of every origin; other browsers can only clear the origin
+ * of the current page, so their sessions are replaced instead.
+ */
+public class DriverPool {
+    private static final Logger logger = Logger.getLogger(DriverPool.class.getName());
+
+    private static final DriverPool INSTANCE = new DriverPool(
+            ConfigManager.getProperty("browser"),
+            Boolean.parseBoolean(ConfigManager.getProperty("driver.pool.enabled", "true")),
+            Integer.parseInt(ConfigManager.getProperty("driver.pool.maxReuse", "50")),
+            Boolean.parseBoolean(ConfigManager.getProperty("driver.pool.recycleOnFailure", "true")));
+
+    static {
+        // Registered here rather than in the constructor, so the pool is fully constructed before the hook can see it
+        Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::shutdown, "driver-pool-shutdown"));
+    }
+
+    private static final String CLEAR_SESSION_STORAGE_SCRIPT = "try { window.sessionStorage.clear(); } catch (e) {}";
+
+    private final String browser;
+    private final boolean enabled;
+    private final int maxReuse;
+    private final boolean recycleOnFailure;
+    private final ThreadLocal<Session> slots = new ThreadLocal<>();
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final Set<String> preparedBrowsers = ConcurrentHashMap.newKeySet();
+
+    private static final class Session {
+        private final WebDriver driver;
+        private final String originalHandle;
+        private int uses;
+
+        private Session(WebDriver driver) {
+            this.driver = driver;
+            this.originalHandle = driver.getWindowHandle();
+        }
+    }
+
+    /**
+     * Constructor
+     * @param browser - browser to launch, chrome or edge
+     * @param enabled - reuse sessions, otherwise every test method gets a new browser
+     * @param maxReuse - number of test methods a session serves before it is replaced
+     * @param recycleOnFailure - replace the session of a test method that failed
+     */
+    public DriverPool(String browser, boolean enabled, int maxReuse, boolean recycleOnFailure) {
+        this.browser = browser;
+        this.enabled = enabled;
+        this.maxReuse = Math.max(1, maxReuse);
+        this.recycleOnFailure = recycleOnFailure;
+    }
+
+    /**
+     * Get the pool configured in config.properties
+     * @return - shared DriverPool instance
+     */
+    public static DriverPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the session of the calling thread, launching a new browser when there is none or it is no longer usable
+     * @return - WebDriver instance
+     */
+    public WebDriver acquire() {
+        Session session = slots.get();
+        if (session != null && !isHealthy(session)) {
+            logger.log(Level.WARNING, "Browser session failed its health check, replacing it");
+            discard(session);
+            session = null;
+        }
+        if (session == null) {
+            session = new Session(launch());
+            sessions.add(session);
+            slots.set(session);
+        }
+        session.uses++;
+        return session.driver;
+    }
+
+    /**
+     * Hand the session of the calling thread back after a test method
+     * @param failed - whether the test method failed
+     */
+    public void release(boolean failed) {
+        Session session = slots.get();
+        if (session == null) return;
+        if (!enabled || session.uses >= maxReuse || (failed && recycleOnFailure) || !(session.driver instanceof ChromiumDriver)) {
+            discard(session);
+            return;
+        }
+        try {
+            reset(session);
+        } catch (WebDriverException e) {
+            logger.log(Level.WARNING, "Error resetting browser session, replacing it", e);
+            discard(session);
+        }
+    }
+
+    /**
+     * Quit every pooled session
+     */
+    public void shutdown() {
+        for (Session session : sessions) {
+            quitQuietly(session.driver);
+        }
+        sessions.clear();
+    }
+
+    private WebDriver launch() {
+        logger.log(Level.INFO, "Launching " + browser + " browser session");
+        if ("chrome".equalsIgnoreCase(browser)) {
+            // WebDriverManager resolves the driver binary once per browser
+            if (preparedBrowsers.add("chrome")) WebDriverManager.chromedriver().setup();
+            return new ChromeDriver();
+        } else if ("edge".equalsIgnoreCase(browser)) {
+            if (preparedBrowsers.add("edge")) WebDriverManager.edgedriver().setup();
+            return new EdgeDriver();
+        }
+        throw new IllegalArgumentException("Unsupported browser: " + browser);
+    }
+
+    /**
+     * Close all tabs but the one the session was created with and clear the cookies and storage of every origin the
+     * session stored data for
+     * @param session - the Chromium session
+     * @throws WebDriverException - if the original tab was closed or the browser cannot be reset
+     */
+    private void reset(Session session) {
+        ChromiumDriver driver = (ChromiumDriver) session.driver;
+        Set<String> handles = driver.getWindowHandles();
+        if (!handles.contains(session.originalHandle)) {
+            throw new WebDriverException("The original tab of the session was closed");
+        }
+        for (String handle : handles) {
+            if (handle.equals(session.originalHandle)) continue;
+            driver.switchTo().window(handle).close();
+        }
+        driver.switchTo().window(session.originalHandle);
+        // sessionStorage belongs to the tab, not the origin, and is not covered by Storage.clearDataForOrigin
+        driver.executeScript(CLEAR_SESSION_STORAGE_SCRIPT);
+
+        Set<String> origins = new LinkedHashSet<>();
+        addOrigin(origins, driver.getCurrentUrl());
+        Object cookies = driver.executeCdpCommand("Network.getAllCookies", Map.of()).get("cookies");
+        if (cookies instanceof List<?> list) {
+            for (Object cookie : list) {
+                if (cookie instanceof Map<?, ?> map && map.get("domain") instanceof String domain) {
+                    String host = domain.startsWith(".") ? domain.substring(1) : domain;
+                    origins.add("https://" + host);
+                    origins.add("http://" + host);
+                }
+            }
+        }
+        driver.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+        for (String origin : origins) {
+            driver.executeCdpCommand("Storage.clearDataForOrigin", Map.of("origin", origin, "storageTypes", "all"));
+        }
+        driver.get("about:blank");
+    }
+
+    private static void addOrigin(Set<String> origins, String url) {
+        try {
+            URI uri = URI.create(url);
+            if (uri.getScheme() != null && uri.getScheme().startsWith("http") && uri.getHost() != null) {
+                origins.add(uri.getScheme() + "://" + uri.getHost() + (uri.getPort() < 0 ? "" : ":" + uri.getPort()));
+            }
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.FINE, "Cannot tell the origin of " + url, e);
+        }
+    }
+
+    private boolean isHealthy(Session session) {
+        try {
+            return !session.driver.getWindowHandles().isEmpty();
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private void discard(Session session) {
+        slots.remove();
+        sessions.remove(session);
+        quitQuietly(session.driver);
+    }
+
+    private void quitQuietly(WebDriver driver) {
+        try {
+            driver.quit();
+        } catch (WebDriverException e) {
+            logger.log(Level.FINE, "Error quitting browser session", e);
+        }
+    }
+}
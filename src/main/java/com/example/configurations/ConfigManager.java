@@ -2,14 +2,57 @@ package com.example.configurations;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class ConfigManager {
     private static final Logger logger = Logger.getLogger(ConfigManager.class.getName());
     private static final Properties properties = new Properties();
-    private static final Properties locators = new Properties();
+    private static final String LOCATORS_FILE = "locators.loc";
+    private static final String OVERRIDE_PREFIX = "config.";
+    private static final String ALTERNATE_SUFFIX = ".alt";
+    private static final int MAX_HEALED_CHAIN = 8;
+    private static final long SAVE_DELAY_MILLIS = 500;
+    private static final Pattern HEALED_VALUE = Pattern.compile("(\\d+)\\|(.*)", Pattern.DOTALL);
+
+    /**
+     * Immutable snapshot of locators.loc, swapped as a whole on reload so reads never lock
+     */
+    private static volatile Map<String, String> locators = Map.of();
+
+    /**
+     * Locators healed during this and earlier runs, failed locator to new locator, applied on top of locators.loc
+     */
+    private static final Map<String, Healed> healedLocators = new ConcurrentHashMap<>();
+    private static final AtomicBoolean healedSaveScheduled = new AtomicBoolean();
+    private static ScheduledExecutorService healedSaver;
+
+    /**
+     * A healed locator of the overlay
+     * @param newLocator - the locator that replaces the failed one
+     * @param healedAt - heal time in epoch milliseconds
+     */
+    private record Healed(String newLocator, long healedAt) {
+    }
 
     private ConfigManager() {}
 
@@ -24,32 +67,253 @@ public class ConfigManager {
             logger.log(Level.SEVERE, "Error loading config.properties", ex);
         }
 
-        try (InputStream input = ConfigManager.class.getClassLoader().getResourceAsStream("locators.loc")) {
-            if (input == null) {
-                logger.log(Level.SEVERE, "Sorry, unable to find locators.loc");
-            } else {
-                locators.load(input);
-            }
-        } catch (IOException ex) {
-            logger.log(Level.SEVERE, "Error loading locators.loc", ex);
+        reloadLocators();
+        loadHealedLocators();
+        if (Boolean.parseBoolean(getProperty("locators.hotReload", "true"))) {
+            watchLocators();
         }
     }
 
     /**
-     * Get property value from config.properties
+     * Get property value from config.properties. A JVM system property of the same name prefixed by "config." takes
+     * precedence, so single values can be overridden per run, e.g. -Dconfig.browser=firefox, or to send the output of
+     * a replay to a scratch directory. System properties without the prefix are not read.
      * @param key - property key
      * @return - property value
      */
     public static String getProperty(String key) {
-        return properties.getProperty(key);
+        return System.getProperty(OVERRIDE_PREFIX + key, properties.getProperty(key));
     }
 
     /**
-     * Get locator value from locators.loc
+     * Get property value from config.properties or its "config." system property override, falling back to a default
+     * when it is missing or blank
+     * @param key - property key
+     * @param defaultValue - value returned when the property is not set
+     * @return - trimmed property value or the default value
+     */
+    public static String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return (value == null || value.isBlank()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Get locator value from locators.loc, with locators healed during this and earlier runs applied
      * @param key - locator key
      * @return - locator value
      */
     public static String getLocator(String key) {
-        return locators.getProperty(key);
+        String locator = locators.get(key);
+        if (locator == null) return null;
+        for (int i = 0; i < MAX_HEALED_CHAIN; i++) {
+            Healed healed = healedLocators.get(locator);
+            if (healed == null) break;
+            locator = healed.newLocator();
+        }
+        return locator;
+    }
+
+    /**
+     * Get all locators of a key in the order they should be tried: the locators healed from it, newest first, the
+     * locator from locators.loc and its alternates key.alt1, key.alt2, ...
+     * @param key - locator key
+     * @return - distinct locators, empty if the key is unknown
+     */
+    public static List<String> getLocatorChain(String key) {
+        String locator = locators.get(key);
+        if (locator == null) return List.of();
+
+        List<String> healedChain = new ArrayList<>();
+        healedChain.add(locator);
+        for (int i = 0; i < MAX_HEALED_CHAIN; i++) {
+            Healed healed = healedLocators.get(healedChain.getLast());
+            if (healed == null) break;
+            healedChain.add(healed.newLocator());
+        }
+        Set<String> chain = new LinkedHashSet<>(healedChain.reversed());
+        for (int i = 1; locators.containsKey(key + ALTERNATE_SUFFIX + i); i++) {
+            chain.add(locators.get(key + ALTERNATE_SUFFIX + i));
+        }
+        return List.copyOf(chain);
+    }
+
+    /**
+     * Apply a healed locator to this run immediately, before it is written back to locators.loc, and keep it as an
+     * alternate for later runs. The healed locators file is saved shortly after, once for all heals of a failure storm.
+     * @param failedLocator - the locator that failed
+     * @param newLocator - the locator that replaces it
+     */
+    public static void putHealedLocator(String failedLocator, String newLocator) {
+        if (failedLocator.equals(newLocator)) return;
+        healedLocators.put(failedLocator, new Healed(newLocator, System.currentTimeMillis()));
+        logger.log(Level.INFO, "Healed locator active for this run: " + failedLocator + " -> " + newLocator);
+        if (healedLocatorsFile() != null && healedSaveScheduled.compareAndSet(false, true)) {
+            healedSaver().schedule(ConfigManager::saveHealedLocators, SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Save the healed locators now if a save is pending, e.g. at the end of the suite before the JVM exits
+     */
+    public static void flushHealedLocators() {
+        if (healedSaveScheduled.get()) saveHealedLocators();
+    }
+
+    /**
+     * Read locators.loc again and swap it in as a new snapshot
+     */
+    public static void reloadLocators() {
+        try (InputStream input = ConfigManager.class.getClassLoader().getResourceAsStream(LOCATORS_FILE)) {
+            if (input == null) {
+                logger.log(Level.SEVERE, "Sorry, unable to find locators.loc");
+                return;
+            }
+            loadLocators(input);
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, "Error loading locators.loc", ex);
+        }
+    }
+
+    /**
+     * Swap in the locators.loc among files the write-back changed. The write-back edits the source tree, e.g.
+     * src/main/resources/locators.loc, while the classpath copy is only refreshed by the next build, so neither
+     * reloadLocators nor the watcher would see the change during this run.
+     * @param changedFiles - files rewritten by the write-back
+     */
+    public static void reloadLocators(List<Path> changedFiles) {
+        for (Path changedFile : changedFiles) {
+            if (!LOCATORS_FILE.equals(String.valueOf(changedFile.getFileName()))) continue;
+            try (InputStream input = Files.newInputStream(changedFile)) {
+                loadLocators(input);
+                logger.log(Level.INFO, "Reloaded " + changedFile);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Error loading " + changedFile, ex);
+            }
+        }
+    }
+
+    private static void loadLocators(InputStream input) throws IOException {
+        Properties loaded = new Properties();
+        loaded.load(input);
+        Map<String, String> snapshot = new HashMap<>();
+        for (String key : loaded.stringPropertyNames()) {
+            snapshot.put(key, loaded.getProperty(key));
+        }
+        locators = Map.copyOf(snapshot);
+        pruneHealedLocators();
+    }
+
+    /**
+     * Read the locators healed in earlier runs. Each value is the heal time followed by '|' and the new locator; values
+     * of older files without a heal time are taken as healed now.
+     */
+    private static void loadHealedLocators() {
+        Path healedFile = healedLocatorsFile();
+        if (healedFile == null || !Files.exists(healedFile)) return;
+        try (InputStream input = Files.newInputStream(healedFile)) {
+            Properties healed = new Properties();
+            healed.load(input);
+            long now = System.currentTimeMillis();
+            for (String failedLocator : healed.stringPropertyNames()) {
+                String value = healed.getProperty(failedLocator);
+                Matcher timed = HEALED_VALUE.matcher(value);
+                healedLocators.put(failedLocator, timed.matches()
+                        ? new Healed(timed.group(2), Long.parseLong(timed.group(1))) : new Healed(value, now));
+            }
+        } catch (IOException | NumberFormatException ex) {
+            logger.log(Level.WARNING, "Error loading healed locators from " + healedFile, ex);
+        }
+        pruneHealedLocators();
+    }
+
+    /**
+     * Drop healed locators that no longer apply: those older than locators.healedMaxAgeDays, and those no locator of
+     * locators.loc leads to any more, e.g. because the journal wrote the heal back and the failed locator is gone
+     */
+    private static void pruneHealedLocators() {
+        if (healedLocators.isEmpty()) return;
+        long maxAgeMillis = Long.parseLong(getProperty("locators.healedMaxAgeDays", "30")) * 86_400_000L;
+        long now = System.currentTimeMillis();
+        Set<String> reachable = new HashSet<>();
+        for (String locator : locators.values()) {
+            for (int i = 0; i <= MAX_HEALED_CHAIN && locator != null && reachable.add(locator); i++) {
+                Healed healed = healedLocators.get(locator);
+                locator = healed == null ? null : healed.newLocator();
+            }
+        }
+        int before = healedLocators.size();
+        // Without locators.loc nothing can be told apart, only the age applies
+        healedLocators.entrySet().removeIf(entry -> now - entry.getValue().healedAt() > maxAgeMillis
+                || (!locators.isEmpty() && !reachable.contains(entry.getKey())));
+        int dropped = before - healedLocators.size();
+        if (dropped > 0) {
+            logger.log(Level.INFO, "Dropped " + dropped + " healed locators that expired or are no longer in " + LOCATORS_FILE);
+            saveHealedLocators();
+        }
+    }
+
+    /**
+     * Persist the healed locators through a temp file and an atomic rename
+     */
+    private static synchronized void saveHealedLocators() {
+        healedSaveScheduled.set(false);
+        Path healedFile = healedLocatorsFile();
+        if (healedFile == null) return;
+        Properties healed = new Properties();
+        healedLocators.forEach((failedLocator, entry) -> healed.setProperty(failedLocator, entry.healedAt() + "|" + entry.newLocator()));
+        try {
+            Path parent = healedFile.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, healedFile.getFileName().toString(), ".tmp");
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                healed.store(output, "Locators healed in earlier runs, failed locator = heal time|new locator");
+            }
+            Files.move(temp, healedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Error saving healed locators to " + healedFile, ex);
+        }
+    }
+
+    private static synchronized ScheduledExecutorService healedSaver() {
+        if (healedSaver == null) {
+            healedSaver = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("healed-locator-saver").factory());
+        }
+        return healedSaver;
+    }
+
+    private static Path healedLocatorsFile() {
+        if (!Boolean.parseBoolean(getProperty("locators.keepHealed", "true"))) return null;
+        return Paths.get(getProperty("locators.healedFile", "Healing_Docs/healed_locators.loc"));
+    }
+
+    /**
+     * Reload locators.loc whenever it changes on disk. Only possible when it is loaded from a directory, not a jar.
+     */
+    private static void watchLocators() {
+        URL resource = ConfigManager.class.getClassLoader().getResource(LOCATORS_FILE);
+        if (resource == null || !"file".equals(resource.getProtocol())) return;
+        try {
+            Path locatorsFile = Paths.get(resource.toURI());
+            WatchService watchService = locatorsFile.getFileSystem().newWatchService();
+            locatorsFile.getParent().register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+            Thread.ofPlatform().daemon().name("locator-watcher").start(() -> {
+                try {
+                    while (true) {
+                        WatchKey key = watchService.take();
+                        boolean changed = key.pollEvents().stream()
+                                .anyMatch(event -> LOCATORS_FILE.equals(String.valueOf(event.context())));
+                        if (changed) {
+                            reloadLocators();
+                            logger.log(Level.INFO, "Reloaded " + LOCATORS_FILE);
+                        }
+                        if (!key.reset()) return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } catch (IOException | URISyntaxException | UnsupportedOperationException ex) {
+            logger.log(Level.WARNING, "Cannot watch locators.loc for changes", ex);
+        }
     }
-}
\ No newline at end of file
+}
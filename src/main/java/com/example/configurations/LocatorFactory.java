@@ -1,21 +1,158 @@
 package com.example.configurations;
 
+import com.example.utils.healing.FingerprintStore;
+import com.example.utils.metrics.JfrEvents;
+import com.example.utils.metrics.LocatorLookupEvent;
+import org.json.JSONObject;
 import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 public class LocatorFactory {
+    private static final Logger logger = Logger.getLogger(LocatorFactory.class.getName());
+
+    private static final Map<String, By> BY_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> ALTERNATE_HITS = new ConcurrentHashMap<>();
+    private static final long POLL_MILLIS = Long.parseLong(ConfigManager.getProperty("locators.pollMillis", "250"));
+
+    /**
+     * Evaluates every XPath of arguments[0] in order and returns [index, element] of the first one with exactly one
+     * match. Without a unique match the first match of the first XPath that matches at all is returned, like
+     * findElement would, and null when nothing matches. Invalid XPaths are skipped.
+     */
+    private static final String RESOLVE_CHAIN_SCRIPT = """
+            var xpaths = arguments[0];
+            var fallback = null;
+            for (var i = 0; i < xpaths.length; i++) {
+              var result;
+              try {
+                result = document.evaluate(xpaths[i], document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);
+              } catch (e) {
+                continue;
+              }
+              if (result.snapshotLength === 1) return [i, result.snapshotItem(0)];
+              if (result.snapshotLength > 1 && fallback === null) fallback = [i, result.snapshotItem(0)];
+            }
+            return fallback;
+            """;
 
     private LocatorFactory() {}
 
     /**
-     * Get locator from locators.loc file
+     * Get locator from locators.loc file. When the key has alternates, the whole chain is evaluated in one script
+     * call per poll and the first unique match wins, so a broken primary locator costs no implicit wait as long as an
+     * alternate still matches. When nothing matches within the implicit wait, the NoSuchElementException names the
+     * current locator of the key, so it reaches the healer like a plain findElement failure. With jfr.events.enabled
+     * every lookup is recorded as a LocatorLookupEvent. With locators.fingerprint.enabled the element is fingerprinted
+     * the first time its key resolves in a run, as the baseline the healer matches against if the locator breaks.
      * @param driver - WebDriver instance
      * @param key - locator key
      * @return - WebElement
      */
     public static WebElement getLocator(WebDriver driver, String key) {
+        if (!JfrEvents.ENABLED) {
+            return fingerprint(driver, key, findElement(driver, key, null));
+        }
+        LocatorLookupEvent event = new LocatorLookupEvent();
+        event.begin();
+        event.key = key;
+        try {
+            WebElement element = findElement(driver, key, event);
+            event.outcome = event.chainIndex > 0 ? "ALTERNATE" : "FOUND";
+            return fingerprint(driver, key, element);
+        } catch (NoSuchElementException e) {
+            event.outcome = "NOT_FOUND";
+            throw e;
+        } catch (RuntimeException e) {
+            event.outcome = "ERROR";
+            throw e;
+        } finally {
+            event.commit();
+        }
+    }
+
+    private static WebElement fingerprint(WebDriver driver, String key, WebElement element) {
+        FingerprintStore fingerprints = FingerprintStore.getInstance();
+        if (fingerprints.isEnabled()) {
+            fingerprints.capture(driver, key, ConfigManager.getLocator(key), element);
+        }
+        return element;
+    }
+
+    private static WebElement findElement(WebDriver driver, String key, LocatorLookupEvent event) {
+        List<String> chain = ConfigManager.getLocatorChain(key);
+        if (event != null && !chain.isEmpty()) event.xpath = chain.getFirst();
+        if (chain.size() <= 1 || !(driver instanceof JavascriptExecutor executor)) {
+            return driver.findElement(getBy(key));
+        }
+
+        long deadline = System.nanoTime() + driver.manage().timeouts().getImplicitWaitTimeout().toNanos();
+        while (true) {
+            WebElement element = resolveChain(executor, key, chain, event);
+            if (element != null) return element;
+            if (System.nanoTime() >= deadline) break;
+            try {
+                Thread.sleep(Duration.ofMillis(POLL_MILLIS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        // Quoted the way the driver reports it, so ExtractFailedLoc reads back XPaths containing quotes
+        throw new NoSuchElementException("no such element: Unable to locate element: {\"method\":\"xpath\",\"selector\":"
+                + JSONObject.quote(chain.getFirst()) + "}");
+    }
+
+    /**
+     * Get the By of a locator from locators.loc, resolved through the healed locators. By instances
+     * are immutable and cached per XPath.
+     * @param key - locator key
+     * @return - By of the current locator
+     */
+    public static By getBy(String key) {
         String locator = ConfigManager.getLocator(key);
-        return driver.findElement(By.xpath(locator));
+        if (locator == null) {
+            throw new IllegalArgumentException("Locator not found in locators.loc: " + key);
+        }
+        return BY_CACHE.computeIfAbsent(locator, By::xpath);
+    }
+
+    /**
+     * Get how often each locator of a chain was the one that resolved its key
+     * @return - hits per "key -> locator"
+     */
+    public static Map<String, Long> getAlternateHits() {
+        Map<String, Long> hits = new ConcurrentHashMap<>();
+        ALTERNATE_HITS.forEach((alternate, count) -> hits.put(alternate, count.sum()));
+        return hits;
+    }
+
+    private static WebElement resolveChain(JavascriptExecutor executor, String key, List<String> chain, LocatorLookupEvent event) {
+        Object result = executor.executeScript(RESOLVE_CHAIN_SCRIPT, chain);
+        if (!(result instanceof List<?> match) || match.size() != 2 || !(match.get(1) instanceof WebElement element)) {
+            return null;
+        }
+        int index = ((Number) match.get(0)).intValue();
+        String locator = chain.get(index);
+        ALTERNATE_HITS.computeIfAbsent(key + " -> " + locator, alternate -> new LongAdder()).increment();
+        if (event != null) {
+            event.xpath = locator;
+            event.chainIndex = index;
+        }
+        if (index > 0) {
+            logger.log(Level.INFO, "Locator " + key + " resolved by alternate " + index + ": " + locator
+                    + " instead of " + chain.getFirst());
+        }
+        return element;
     }
-}
\ No newline at end of file
+}
@@ -1,32 +1,40 @@
 package com.example.listeners;
 
+import com.example.base.DriverPool;
 import com.example.configurations.ConfigManager;
-import com.example.utils.*;
+import com.example.utils.ExtractFailedLoc;
+import com.example.utils.healing.ArtifactSink;
+import com.example.utils.healing.ArtifactStore;
+import com.example.utils.healing.DomCapture;
+import com.example.utils.healing.FailureSnapshot;
+import com.example.utils.healing.FingerprintStore;
+import com.example.utils.healing.HealingBatcher;
+import com.example.utils.healing.HealingEngine;
+import com.example.utils.healing.HealingPipeline;
+import com.example.utils.healing.LocatorJournal;
+import com.example.utils.llm.LlmProviders;
+import com.example.utils.metrics.HealingMetrics;
 import com.example.utils.reporting.HealingReport;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.IExecutionListener;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 
-import java.io.*;
 import java.lang.reflect.Field;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class CustomTestListener implements ITestListener {
+public class CustomTestListener implements ITestListener, ISuiteListener, IExecutionListener {
     private static final Logger logger = Logger.getLogger(CustomTestListener.class.getName());
 
     private static final String DRIVER_KEY = "driver";
-    private String htmlFilePath;
-    private String failedLocatorPath;
-    private String failedPageFilePath;
-    private String llmOutputPath;
-    private String validatedLocPath;
-    private String reportFilePath;
 
     /**
      * This method is invoked before the test starts
@@ -36,22 +44,56 @@ public class CustomTestListener implements ITestListener {
     public void onTestStart(ITestResult result) {
         WebDriver driver = getWebDriver(result);
         if (driver != null) {
+            result.setAttribute(DRIVER_KEY, driver);
             result.getTestContext().setAttribute(DRIVER_KEY, driver);
         }
     }
 
+    /**
+     * This method is invoked when a test passes, the element fingerprints it captured become the baseline
+     * @param result - ITestResult instance of the test method that passed
+     */
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        FingerprintStore.getInstance().commitPending();
+    }
+
+    /**
+     * This method is invoked when a test is skipped, the element fingerprints it captured are dropped
+     * @param result - ITestResult instance of the test method that was skipped
+     */
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        FingerprintStore.getInstance().discardPending();
+    }
+
     /**
      * This method is invoked when a test fails
      * @param result - ITestResult instance of the test method that failed
      */
     @Override
     public void onTestFailure(ITestResult result) {
-        WebDriver driver = (WebDriver) result.getTestContext().getAttribute(DRIVER_KEY);
+        FingerprintStore.getInstance().discardPending();
+        WebDriver driver = (WebDriver) result.getAttribute(DRIVER_KEY);
+        if (driver == null) {
+            driver = (WebDriver) result.getTestContext().getAttribute(DRIVER_KEY);
+        }
         if (driver != null) {
             Throwable throwable = result.getThrowable();
             if (throwable instanceof NoSuchElementException) {
+                boolean isHealingEnabled = Boolean.parseBoolean(ConfigManager.getProperty("healing.solution.enabled"));
+                if (!isHealingEnabled) {
+                    logger.log(Level.SEVERE, "Auto-Healing is disabled.");
+                    return;
+                }
                 try {
-                    handleTestFailure(result, driver);
+                    FailureSnapshot snapshot = new FailureSnapshot(result.getName(), throwable.toString(), getPageUrl(driver),
+                            getPageSource(driver, throwable), System.currentTimeMillis());
+                    if (Boolean.parseBoolean(ConfigManager.getProperty("healing.batch.enabled", "false"))) {
+                        HealingBatcher.getInstance().add(snapshot, this::handleTestFailures);
+                    } else {
+                        HealingEngine.getInstance().submit(snapshot, this::handleTestFailure);
+                    }
                 } catch (Exception e) {
                     logger.log(Level.SEVERE, "Error handling test failure", e);
                 }
@@ -60,31 +102,80 @@ public class CustomTestListener implements ITestListener {
     }
 
     /**
-     * This method handles the test failure
-     * @param result - ITestResult instance of the test method that failed
-     * @param driver - WebDriver instance
+     * This method is invoked after all tests of the suite have run, it waits for pending healings to finish,
+     * writes the healed locators back in one batch, writes the healing report, compacts the fingerprint store and
+     * exports the metrics. The LLM clients and browser sessions are shared by all suites of the run and are released
+     * in onExecutionFinish.
+     * @param suite - ISuite instance
+     */
+    @Override
+    public void onFinish(ISuite suite) {
+        HealingEngine engine = HealingEngine.getInstance();
+        Duration drainTimeout = Duration.ofSeconds(Long.parseLong(ConfigManager.getProperty("healing.drain.timeoutSeconds", "600")));
+        if (!HealingBatcher.getInstance().flush(drainTimeout)) {
+            logger.log(Level.WARNING, "Healing batches were not handed over within " + drainTimeout.toSeconds() + "s");
+        }
+        logger.log(Level.INFO, "Waiting for " + engine.getQueueDepth() + " pending healings");
+        if (!engine.awaitCompletion(drainTimeout)) {
+            logger.log(Level.WARNING, "Pending healings did not finish within " + drainTimeout.toSeconds() + "s, cancelling them");
+            engine.cancelAll();
+        }
+        HealingMetrics metrics = HealingMetrics.getInstance();
+        ConfigManager.flushHealedLocators();
+        long start = System.nanoTime();
+        LocatorJournal.getInstance().commit();
+        metrics.recordLatency("writeBack", System.nanoTime() - start);
+        if (!ArtifactSink.getInstance().flush(drainTimeout)) {
+            logger.log(Level.WARNING, "Healing artifacts were not written within " + drainTimeout.toSeconds() + "s");
+        }
+        start = System.nanoTime();
+        HealingReport.getInstance().write();
+        metrics.recordLatency("report", System.nanoTime() - start);
+        ArtifactStore.getInstance().evict();
+        FingerprintStore.getInstance().compact();
+        metrics.export();
+    }
+
+    /**
+     * This method is invoked once after all suites have run, it releases the LLM clients and browser sessions
+     */
+    @Override
+    public void onExecutionFinish() {
+        LlmProviders.closeAll();
+        DriverPool.getInstance().shutdown();
+    }
+
+    /**
+     * This method handles the test failure, it runs on the healing engine
+     * @param snapshot - FailureSnapshot captured when the test failed
      */
-    private void handleTestFailure(ITestResult result, WebDriver driver) {
+    private void handleTestFailure(FailureSnapshot snapshot) {
         try {
-            boolean isHealingEnabled = Boolean.parseBoolean(ConfigManager.getProperty("healing.solution.enabled"));
-            if(isHealingEnabled) {
-                String exceptionMessage = result.getThrowable().toString();
-                String pageSource = getPageSource(driver);
-                String locator = ExtractFailedLoc.extractLocator(exceptionMessage);
-                createFiles(locator, pageSource);
-                TokenCounter.countTokens(failedLocatorPath, htmlFilePath);
-                ProcessHTML.extractFailedPartOfHTML(htmlFilePath, failedLocatorPath, failedPageFilePath);
-                //BedrockLLM.sendRequestToBedrock(failedLocatorPath, failedPageFilePath, llmOutputPath);
-                CohereLLM.sendRequestToCohere(failedLocatorPath, failedPageFilePath, llmOutputPath);
-                LocatorValidator.validateLocators(llmOutputPath, htmlFilePath, validatedLocPath);
-                LocatorUpdater.updateLocators(validatedLocPath, failedLocatorPath);
-                HealingReport.generateReport(failedLocatorPath, failedPageFilePath, llmOutputPath, validatedLocPath, reportFilePath);
-            }
-            else {
-                logger.log(Level.SEVERE, "Auto-Healing is disabled.");
-            }
+            HealingPipeline.getInstance().heal(snapshot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Healing interrupted for " + snapshot.testName());
+        } catch (CancellationException e) {
+            logger.log(Level.WARNING, "Healing cancelled for " + snapshot.testName());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error handling test failure of " + snapshot.testName(), e);
+        }
+    }
+
+    /**
+     * This method handles the failures collected on the same page, it runs on the healing engine
+     * @param snapshots - FailureSnapshots captured on the same page when the tests failed
+     */
+    private void handleTestFailures(List<FailureSnapshot> snapshots) {
+        try {
+            HealingPipeline.getInstance().healBatch(snapshots);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Healing interrupted for " + snapshots.stream().map(FailureSnapshot::testName).toList());
+        } catch (CancellationException e) {
+            logger.log(Level.WARNING, "Healing cancelled for " + snapshots.stream().map(FailureSnapshot::testName).toList());
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error handling test failure ", e);
+            logger.log(Level.SEVERE, "Error handling test failures of " + snapshots.stream().map(FailureSnapshot::testName).toList(), e);
         }
     }
 
@@ -94,81 +185,39 @@ public class CustomTestListener implements ITestListener {
      * @return - WebDriver instance
      */
     private WebDriver getWebDriver(ITestResult result) {
-        WebDriver driver = (WebDriver) result.getTestContext().getAttribute(DRIVER_KEY);
-        if (driver == null) {
-            try {
-                Field driverField = result.getInstance().getClass().getSuperclass().getDeclaredField(DRIVER_KEY);
-                driverField.setAccessible(true);
-                driver = (WebDriver) driverField.get(result.getInstance());
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                logger.log(Level.SEVERE, "Error setting WebDriver in ITestContext", e);
-            }
+        WebDriver driver = null;
+        try {
+            Field driverField = result.getInstance().getClass().getSuperclass().getDeclaredField(DRIVER_KEY);
+            driverField.setAccessible(true);
+            driver = (WebDriver) driverField.get(result.getInstance());
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            logger.log(Level.SEVERE, "Error setting WebDriver in ITestContext", e);
         }
-        return driver;
+        return driver != null ? driver : (WebDriver) result.getTestContext().getAttribute(DRIVER_KEY);
     }
 
     /**
-     * This method gets the page source of the current page
+     * This method captures the page the test failed on
      * @param driver - WebDriver instance
+     * @param throwable - the NoSuchElementException of the failure
      * @return - Page source
      */
-    private String getPageSource(WebDriver driver) {
-        return driver.getPageSource();
-        //return (String) ((JavascriptExecutor) driver).executeScript("return document.documentElement.outerHTML;");
+    private String getPageSource(WebDriver driver, Throwable throwable) {
+        return DomCapture.getInstance().capture(driver, ExtractFailedLoc.extractLocator(throwable.toString()));
     }
 
     /**
-     * This method creates the necessary files
-     * @param locator - Failed locator
-     * @param pageSource - Page source
-     * @throws IOException - Exception
-     */
-    private void createFiles(String locator, String pageSource) throws IOException {
-        File[] folders = getFolders();
-        String timestamp = new SimpleDateFormat("dd-MM-yyyy_HH-mm-ss").format(new Date());
-
-        failedLocatorPath = new File(folders[1], "failed_locator_" + timestamp + ".txt").getAbsolutePath();
-        try (FileWriter writer = new FileWriter(failedLocatorPath)) {
-            writer.write(locator);
-        }
-
-        Document doc = Jsoup.parse(pageSource);
-        String prettyHtml = doc.outerHtml();
-
-        htmlFilePath = new File(folders[0], "page_source_" + timestamp + ".html").getAbsolutePath();
-        try (FileWriter writer = new FileWriter(htmlFilePath)) {
-            writer.write(prettyHtml);
-        }
-
-        failedPageFilePath = new File(folders[2], "processed_page_source_" + timestamp + ".html").getAbsolutePath();
-        llmOutputPath = new File(folders[3], "llm_output_" + timestamp + ".txt").getAbsolutePath();
-        validatedLocPath = new File(folders[4], "validated_locators_" + timestamp + ".txt").getAbsolutePath();
-        reportFilePath = new File(folders[5], "healing_report_" + timestamp + ".html").getAbsolutePath();
-
-        logger.log(Level.SEVERE, "Test failed. Exception: " + locator);
-        logger.log(Level.SEVERE, "Page source captured.");
-    }
-
-    /**
-     * This method gets the folders for storing the files
-     * @return - Array of folders
+     * This method gets the URL of the page the test failed on
+     * @param driver - WebDriver instance
+     * @return - the current URL, empty if the browser cannot tell
      */
-    private static File[] getFolders() {
-        File parentFolder = new File("Healing_Docs");
-        if (!parentFolder.exists()) parentFolder.mkdirs();
-
-        File[] folders = {
-                new File(parentFolder, "html"),
-                new File(parentFolder, "locator"),
-                new File(parentFolder, "processed_html"),
-                new File(parentFolder, "llm_output"),
-                new File(parentFolder, "validated_locators"),
-                new File(parentFolder, "healing_report")
-        };
-
-        for (File folder : folders) {
-            if (!folder.exists()) folder.mkdirs();
+    private String getPageUrl(WebDriver driver) {
+        try {
+            String url = driver.getCurrentUrl();
+            return url == null ? "" : url;
+        } catch (WebDriverException e) {
+            logger.log(Level.FINE, "Cannot read the URL of the failed page", e);
+            return "";
         }
-        return folders;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+package com.example.utils;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.healing.Cancellation;
+import org.jsoup.nodes.*;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds the page context sent to the LLM. Elements are ranked by their similarity to the failed locator, the best
+ * ones are reduced to their identifying markup and added, with a little surrounding structure, until the token
+ * budget is used up.
+ */
+public class ContextExtractor {
+    private static final Logger logger = Logger.getLogger(ContextExtractor.class.getName());
+
+    private static final Set<String> EXCLUDED_TAGS = Set.of("script", "style", "svg", "noscript", "template", "link", "meta", "head", "canvas");
+    private static final Set<String> CONTAINER_TAGS = Set.of("html", "body");
+    private static final Set<String> INTERACTIVE_TAGS = Set.of("a", "button", "input", "textarea", "select", "option", "label", "img",
+            "h1", "h2", "h3", "h4", "h5", "h6");
+    private static final Set<String> IDENTIFYING_ATTRIBUTES = Set.of("id", "name", "class", "type", "role", "placeholder", "title", "alt",
+            "href", "value", "for", "label", "aria-label", "aria-labelledby", "data-testid", "data-test", "data-test-id", "data-qa", "data-cy");
+    private static final int MAX_ATTRIBUTE_LENGTH = 100;
+    private static final int MAX_TEXT_LENGTH = 120;
+
+    private static final ContextExtractor INSTANCE = new ContextExtractor(
+            Integer.parseInt(ConfigManager.getProperty("healing.context.tokenBudget", "2000")),
+            Integer.parseInt(ConfigManager.getProperty("healing.context.maxCandidates", "25")));
+
+    private final int tokenBudget;
+    private final int maxCandidates;
+
+    private record Candidate(Element element, double score, boolean interactive, int position) {
+    }
+
+    /**
+     * Constructor
+     * @param tokenBudget - maximum number of tokens of the extracted context
+     * @param maxCandidates - maximum number of ranked elements considered for the context
+     */
+    public ContextExtractor(int tokenBudget, int maxCandidates) {
+        this.tokenBudget = tokenBudget;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Get the extractor configured in config.properties
+     * @return - shared ContextExtractor instance
+     */
+    public static ContextExtractor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Extract the part of the page most relevant to the failed locator
+     * @param document - the parsed page source
+     * @param failedLocator - the locator that failed
+     * @return - cleaned HTML snippets, best match first, one per line
+     */
+    public String extract(Document document, String failedLocator) {
+        return extract(document, List.of(failedLocator));
+    }
+
+    /**
+     * Extract the part of the page most relevant to several locators that failed on the same page. The locators take
+     * turns adding their next best candidate within one shared token budget, and an element already rendered for one
+     * locator, or inside one, is not rendered again for another.
+     * @param document - the parsed page source
+     * @param failedLocators - the locators that failed
+     * @return - cleaned HTML snippets, one per line
+     */
+    public String extract(Document document, List<String> failedLocators) {
+        List<XPathLocator> locators = new ArrayList<>();
+        List<List<Candidate>> rankings = new ArrayList<>();
+        for (String failedLocator : failedLocators) {
+            XPathLocator locator = XPathLocator.parse(failedLocator);
+            List<Candidate> candidates = rank(document, locator);
+            locators.add(locator);
+            rankings.add(candidates.subList(0, Math.min(maxCandidates, candidates.size())));
+        }
+
+        StringBuilder context = new StringBuilder();
+        List<Element> included = new ArrayList<>();
+        int usedTokens = 0;
+        for (int position = 0; position < maxCandidates; position++) {
+            for (int i = 0; i < locators.size(); i++) {
+                if (position >= rankings.get(i).size()) continue;
+                XPathLocator locator = locators.get(i);
+                Element root = contextRoot(rankings.get(i).get(position).element(), locator);
+                if (overlaps(root, included)) continue;
+
+                String snippet = clean(root, locator);
+                int tokens = TokenCounter.countTokens(snippet);
+                if (usedTokens + tokens > tokenBudget) continue;
+
+                context.append(snippet).append("\n");
+                included.add(root);
+                usedTokens += tokens;
+            }
+        }
+        logger.log(Level.INFO, "Extracted {0} snippets ({1} of {2} tokens) for locators {3}",
+                new Object[]{included.size(), usedTokens, tokenBudget, failedLocators});
+        return context.toString();
+    }
+
+    /**
+     * Rank all visible page elements by similarity to the failed locator
+     * @param document - the parsed page source
+     * @param locator - the parsed failed locator
+     * @return - candidates, best first
+     */
+    private List<Candidate> rank(Document document, XPathLocator locator) {
+        List<Candidate> candidates = new ArrayList<>();
+        Element body = document.body();
+        if (body == null) return candidates;
+
+        NodeTraversor.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (!(node instanceof Element element)) return FilterResult.SKIP_CHILDREN;
+                Cancellation.checkInterrupted();
+                if (EXCLUDED_TAGS.contains(element.normalName())) return FilterResult.SKIP_ENTIRELY;
+                if (CONTAINER_TAGS.contains(element.normalName())) return FilterResult.CONTINUE;
+
+                double score = ElementSimilarity.score(element, locator);
+                boolean interactive = INTERACTIVE_TAGS.contains(element.normalName());
+                if (score > 0 || interactive) {
+                    candidates.add(new Candidate(element, score, interactive, candidates.size()));
+                }
+                return FilterResult.CONTINUE;
+            }
+        }, body);
+
+        candidates.sort(Comparator.comparingDouble(Candidate::score).reversed()
+                .thenComparing(Candidate::interactive, Comparator.reverseOrder())
+                .thenComparingInt(Candidate::position));
+        return candidates;
+    }
+
+    /**
+     * Include the parent of a candidate as surrounding structure, unless it would take more than a quarter of the budget
+     * @param element - the candidate element
+     * @param locator - the parsed failed locator
+     * @return - the element to render
+     */
+    private Element contextRoot(Element element, XPathLocator locator) {
+        Element parent = element.parent();
+        if (parent == null || CONTAINER_TAGS.contains(parent.normalName())) return element;
+        return TokenCounter.countTokens(clean(parent, locator)) <= tokenBudget / 4 ? parent : element;
+    }
+
+    private static boolean overlaps(Element root, List<Element> included) {
+        for (Element element : included) {
+            if (element == root || root.parents().contains(element) || element.parents().contains(root)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Render an element without scripts, styles, SVG, comments and non-identifying attributes
+     * @param element - the element to render
+     * @param locator - the parsed failed locator, whose attributes are always kept
+     * @return - compact HTML of the element
+     */
+    private static String clean(Element element, XPathLocator locator) {
+        Element copy = element.clone();
+        copy.select(String.join(",", EXCLUDED_TAGS)).remove();
+
+        for (Element descendant : copy.getAllElements()) {
+            List<String> removed = new ArrayList<>();
+            for (Attribute attribute : descendant.attributes()) {
+                String key = attribute.getKey();
+                if (!IDENTIFYING_ATTRIBUTES.contains(key) && !locator.getAttributes().containsKey(key)) {
+                    removed.add(key);
+                } else if (attribute.getValue().length() > MAX_ATTRIBUTE_LENGTH) {
+                    attribute.setValue(attribute.getValue().substring(0, MAX_ATTRIBUTE_LENGTH));
+                }
+            }
+            removed.forEach(descendant::removeAttr);
+
+            for (Node child : new ArrayList<>(descendant.childNodes())) {
+                if (child instanceof Comment) {
+                    child.remove();
+                } else if (child instanceof TextNode text && text.text().length() > MAX_TEXT_LENGTH) {
+                    text.text(text.text().substring(0, MAX_TEXT_LENGTH));
+                }
+            }
+        }
+
+        Document shell = Document.createShell("");
+        shell.outputSettings().prettyPrint(false);
+        shell.body().appendChild(copy);
+        return copy.outerHtml();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.utils;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Element;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scores how closely an element of the current page resembles the element a failed XPath locator was written for
+ */
+public class ElementSimilarity {
+    private static final int MAX_COMPARED_LENGTH = 200;
+    private static final double TAG_WEIGHT = 1.0;
+    private static final double ATTRIBUTE_WEIGHT = 2.0;
+    private static final double TEXT_WEIGHT = 2.0;
+    private static final double RENAMED_ATTRIBUTE_PENALTY = 0.7;
+
+    private ElementSimilarity() {}
+
+    /**
+     * Score an element against a failed locator
+     * @param element - the candidate element
+     * @param locator - the parsed failed locator
+     * @return - similarity between 0 (unrelated) and 1 (matches every part of the locator)
+     */
+    public static double score(Element element, XPathLocator locator) {
+        double total = TAG_WEIGHT;
+        double score = ("*".equals(locator.getTagName()) || element.normalName().equals(locator.getTagName())) ? TAG_WEIGHT : 0.0;
+
+        for (Map.Entry<String, String> attribute : locator.getAttributes().entrySet()) {
+            total += ATTRIBUTE_WEIGHT;
+            score += ATTRIBUTE_WEIGHT * attributeSimilarity(element, attribute.getKey(), attribute.getValue());
+        }
+
+        if (!locator.getTexts().isEmpty()) {
+            String ownText = element.ownText().trim();
+            for (String text : locator.getTexts()) {
+                total += TEXT_WEIGHT;
+                score += TEXT_WEIGHT * textSimilarity(text, ownText);
+            }
+        }
+        return score / total;
+    }
+
+    /**
+     * Similarity of an expected attribute value to the element. An attribute that was renamed but kept its value
+     * still scores, with a penalty.
+     * @param element - the candidate element
+     * @param name - expected attribute name
+     * @param expected - expected attribute value
+     * @return - similarity between 0 and 1
+     */
+    public static double attributeSimilarity(Element element, String name, String expected) {
+        if (element.hasAttr(name)) {
+            String actual = element.attr(name);
+            return "class".equals(name) ? Math.max(tokenOverlap(expected, actual), ratio(expected, actual)) : ratio(expected, actual);
+        }
+        double best = 0.0;
+        for (Attribute attribute : element.attributes()) {
+            best = Math.max(best, ratio(expected, attribute.getValue()));
+        }
+        return best * RENAMED_ATTRIBUTE_PENALTY;
+    }
+
+    /**
+     * Similarity of an expected text to the own text of an element
+     * @param expected - expected text
+     * @param actual - own text of the element
+     * @return - similarity between 0 and 1
+     */
+    public static double textSimilarity(String expected, String actual) {
+        if (actual.isEmpty()) return 0.0;
+        if (actual.equals(expected)) return 1.0;
+        if (actual.contains(expected) || expected.contains(actual)) return Math.max(0.9 * ratio(expected, actual), 0.6);
+        return ratio(expected, actual);
+    }
+
+    /**
+     * Normalized Levenshtein similarity
+     * @param a - first string
+     * @param b - second string
+     * @return - 1 for equal strings, 0 for completely different ones
+     */
+    public static double ratio(String a, String b) {
+        if (a.equals(b)) return 1.0;
+        a = a.length() > MAX_COMPARED_LENGTH ? a.substring(0, MAX_COMPARED_LENGTH) : a;
+        b = b.length() > MAX_COMPARED_LENGTH ? b.substring(0, MAX_COMPARED_LENGTH) : b;
+        int maxLength = Math.max(a.length(), b.length());
+        if (maxLength == 0) return 1.0;
+        return 1.0 - (double) levenshtein(a, b) / maxLength;
+    }
+
+    /**
+     * Jaccard overlap of whitespace separated tokens, used for class lists
+     * @param a - first token list
+     * @param b - second token list
+     * @return - overlap between 0 and 1
+     */
+    public static double tokenOverlap(String a, String b) {
+        Set<String> left = new HashSet<>(Arrays.asList(a.trim().split("\\s+")));
+        Set<String> right = new HashSet<>(Arrays.asList(b.trim().split("\\s+")));
+        Set<String> union = new HashSet<>(left);
+        union.addAll(right);
+        left.retainAll(right);
+        return union.isEmpty() ? 0.0 : (double) left.size() / union.size();
+    }
+
+    /**
+     * Levenshtein edit distance with two rolling rows
+     * @param a - first string
+     * @param b - second string
+     * @return - number of single character edits turning a into b
+     */
+    public static int levenshtein(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -1,21 +1,32 @@
 package com.example.utils;
 
+import org.json.JSONException;
+import org.json.JSONTokener;
+
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class ExtractFailedLoc {
+    private static final Pattern SELECTOR = Pattern.compile("\"selector\":\\s*\"((?:\\\\.|[^\"\\\\])*)\"");
+
     /**
      * Private constructor to hide the implicit public one
      */
     private ExtractFailedLoc() {}
 
     /**
-     * Extract the locator from the exception message
+     * Extract the locator from the exception message. The selector is a JSON string there, so quotes and backslashes
+     * of the locator are escaped and are unescaped here.
      * @param exceptionMessage - the exception message
      * @return - the locator
      */
     public static String extractLocator(String exceptionMessage) {
-        Matcher matcher = Pattern.compile("\"selector\":\"(.*?)\"").matcher(exceptionMessage);
-        return matcher.find() ? matcher.group(1) : "Locator not found in exception message";
+        Matcher matcher = SELECTOR.matcher(exceptionMessage);
+        if (!matcher.find()) return "Locator not found in exception message";
+        try {
+            return (String) new JSONTokener("\"" + matcher.group(1) + "\"").nextValue();
+        } catch (JSONException e) {
+            return matcher.group(1);
+        }
     }
-}
\ No newline at end of file
+}
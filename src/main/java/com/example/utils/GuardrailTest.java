@@ -1,8 +1,11 @@
 package com.example.utils;
 
+import com.example.utils.llm.LlmProviders;
+
 public class GuardrailTest {
     public static void testAbc() {
-        String response = BedrockLLM.sendBedrockRequest("'Employee with username: rajat should be terminated'. Can you rephrase the give sentence?");
+        String response = LlmProviders.get("bedrock")
+                .complete("'Employee with username: rajat should be terminated'. Can you rephrase the give sentence?").join().text();
         System.out.println(response);
     }
     public static void main(String[] args) {
@@ -0,0 +1,24 @@
+package com.example.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class Hashing {
+    private Hashing() {}
+
+    /**
+     * Hash a string, e.g. to name content addressed files
+     * @param value - the string
+     * @return - hex encoded SHA-256 of its UTF-8 bytes
+     */
+    public static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
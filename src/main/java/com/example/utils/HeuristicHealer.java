@@ -0,0 +1,296 @@
+package com.example.utils;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.healing.Cancellation;
+import com.example.utils.healing.DomCapture;
+import com.example.utils.healing.ElementFingerprint;
+import com.example.utils.healing.FingerprintStore;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Heals a failed XPath locator locally, without an LLM. Every element of the page is scored against the tag,
+ * attribute and text predicates of the failed locator and its position under the ancestors the locator names; the
+ * best elements are turned into unique XPath locators in the same "Locator: ..., Score: ..., Explanation: ..."
+ * format as the LLM output. When the element was fingerprinted on a passing run, the page is first matched against
+ * that baseline, which also finds elements whose attributes and text no longer resemble the failed locator. The LLM
+ * is only needed when the best score stays below the confidence threshold or does not clearly lead the runner-up.
+ */
+public class HeuristicHealer {
+    private static final Logger logger = Logger.getLogger(HeuristicHealer.class.getName());
+
+    private static final Set<String> EXCLUDED_TAGS = Set.of("script", "style", "svg", "noscript", "template", "link", "meta", "head");
+    private static final List<String> PREFERRED_ATTRIBUTES = List.of("id", "data-testid", "data-test", "data-test-id", "data-qa", "data-cy",
+            "name", "aria-label", "placeholder", "title", "alt", "type", "role", "href", "class");
+    private static final double STRUCTURE_WEIGHT = 0.15;
+    private static final int MAX_TEXT_LENGTH = 80;
+
+    private static final HeuristicHealer INSTANCE = new HeuristicHealer(
+            Boolean.parseBoolean(ConfigManager.getProperty("healing.local.enabled", "true")),
+            Double.parseDouble(ConfigManager.getProperty("healing.local.minConfidence", "0.8")),
+            Double.parseDouble(ConfigManager.getProperty("healing.local.minMargin", "0.1")),
+            Integer.parseInt(ConfigManager.getProperty("healing.local.maxCandidates", "5")));
+
+    private final boolean enabled;
+    private final double minConfidence;
+    private final double minMargin;
+    private final int maxCandidates;
+
+    /**
+     * A locally generated replacement locator
+     * @param locator - unique XPath of the element
+     * @param score - similarity to the failed locator between 0 and 1
+     * @param explanation - why the element was chosen
+     */
+    public record Candidate(String locator, double score, String explanation) {
+    }
+
+    private record ScoredElement(Element element, double score, int position) {
+    }
+
+    /**
+     * Constructor
+     * @param enabled - whether local healing is used at all
+     * @param minConfidence - score the best candidate needs to skip the LLM
+     * @param minMargin - lead over the score of the runner-up the best candidate needs to skip the LLM
+     * @param maxCandidates - maximum number of locators returned
+     */
+    public HeuristicHealer(boolean enabled, double minConfidence, double minMargin, int maxCandidates) {
+        this.enabled = enabled;
+        this.minConfidence = minConfidence;
+        this.minMargin = minMargin;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Get the healer configured in config.properties
+     * @return - shared HeuristicHealer instance
+     */
+    public static HeuristicHealer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Heal a failed locator if the local confidence is high enough
+     * @param document - the parsed page source
+     * @param failedLocator - the locator that failed
+     * @return - one "Locator: ..., Score: ..., Explanation: ..." entry per locator, best first, or null if local
+     * healing is disabled or not confident enough
+     */
+    public String heal(Document document, String failedLocator) {
+        return heal(new LocatorValidator.Page(document), failedLocator);
+    }
+
+    /**
+     * Heal a failed locator if the local confidence is high enough. Uniqueness of the generated locators is checked
+     * on the shared page, so the page is converted to a W3C DOM at most once for all candidates and the later
+     * validation of the returned locators reuses their evaluations.
+     * @param page - the failed page
+     * @param failedLocator - the locator that failed
+     * @return - one "Locator: ..., Score: ..., Explanation: ..." entry per locator, best first, or null if local
+     * healing is disabled or not confident enough
+     */
+    public String heal(LocatorValidator.Page page, String failedLocator) {
+        if (!enabled) return null;
+        FingerprintStore.Entry baseline = FingerprintStore.getInstance().findByLocator(failedLocator);
+        if (baseline != null) {
+            List<Candidate> candidates = rank(page, failedLocator, baseline.fingerprint());
+            if (isConfident(candidates)) {
+                logger.log(Level.INFO, "Healed from the baseline of " + baseline.key() + ": " + failedLocator + " -> "
+                        + candidates.getFirst().locator());
+                return format(candidates);
+            }
+        }
+        List<Candidate> candidates = rank(page, failedLocator);
+        if (!isConfident(candidates)) {
+            logger.log(Level.INFO, "Local healing not confident for {0}: best score {1}, runner-up {2}", new Object[]{failedLocator,
+                    candidates.isEmpty() ? 0 : String.format(Locale.ROOT, "%.2f", candidates.getFirst().score()),
+                    candidates.size() < 2 ? 0 : String.format(Locale.ROOT, "%.2f", candidates.get(1).score())});
+            return null;
+        }
+        logger.log(Level.INFO, "Healed locally: " + failedLocator + " -> " + candidates.getFirst().locator());
+        return format(candidates);
+    }
+
+    /**
+     * Check if the best candidate can be taken without asking the LLM: its score reaches minConfidence and it is the
+     * only candidate or leads the runner-up by minMargin. Near identical siblings, like two buttons differing in one
+     * letter of their name, score alike and are left to the LLM.
+     * @param candidates - candidates, best first
+     * @return - true if the best candidate is confident
+     */
+    private boolean isConfident(List<Candidate> candidates) {
+        if (candidates.isEmpty() || candidates.getFirst().score() < minConfidence) return false;
+        return candidates.size() == 1 || candidates.getFirst().score() - candidates.get(1).score() >= minMargin;
+    }
+
+    /**
+     * Rank the elements of the page as replacements of a failed locator
+     * @param page - the failed page
+     * @param failedLocator - the locator that failed
+     * @return - candidates with a unique locator, best first
+     */
+    public List<Candidate> rank(LocatorValidator.Page page, String failedLocator) {
+        XPathLocator locator = XPathLocator.parse(failedLocator);
+        if (!locator.hasPredicates()) return new ArrayList<>();
+        return rank(page, failedLocator, element -> score(element, locator), element -> explain(element, locator));
+    }
+
+    /**
+     * Rank the elements of the page by their similarity to the fingerprint the element had on a passing run
+     * @param page - the failed page
+     * @param failedLocator - the locator that failed
+     * @param fingerprint - the baseline fingerprint of the element
+     * @return - candidates with a unique locator, best first
+     */
+    public List<Candidate> rank(LocatorValidator.Page page, String failedLocator, ElementFingerprint fingerprint) {
+        return rank(page, failedLocator, fingerprint::similarity,
+                element -> "Matched the baseline fingerprint of the element (tag " + fingerprint.tag() + ", "
+                        + fingerprint.attributes().size() + " attributes, position under " + fingerprint.ancestorPath() + ")");
+    }
+
+    private List<Candidate> rank(LocatorValidator.Page page, String failedLocator, ToDoubleFunction<Element> scorer,
+                                 Function<Element, String> explanation) {
+        Document document = page.getDocument();
+        List<Candidate> candidates = new ArrayList<>();
+        if (document.body() == null) return candidates;
+
+        List<ScoredElement> scored = new ArrayList<>();
+        NodeTraversor.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (!(node instanceof Element element)) return FilterResult.SKIP_CHILDREN;
+                Cancellation.checkInterrupted();
+                if (EXCLUDED_TAGS.contains(element.normalName())) return FilterResult.SKIP_ENTIRELY;
+                // Inlined shadow root and frame content cannot be reached by a locator of the page
+                if (element.hasAttr(DomCapture.SHADOW_ROOT_ATTRIBUTE) || element.hasAttr(DomCapture.FRAME_ATTRIBUTE)) return FilterResult.SKIP_ENTIRELY;
+                double score = scorer.applyAsDouble(element);
+                if (score > 0) scored.add(new ScoredElement(element, score, scored.size()));
+                return FilterResult.CONTINUE;
+            }
+        }, document.body());
+        scored.sort(Comparator.comparingDouble(ScoredElement::score).reversed().thenComparingInt(ScoredElement::position));
+
+        // Building a unique locator evaluates XPath on the shared page, so only the best few elements are tried
+        for (ScoredElement element : scored.subList(0, Math.min(scored.size(), maxCandidates * 4))) {
+            if (candidates.size() >= maxCandidates) break;
+            String uniqueLocator = uniqueLocator(page, element.element());
+            if (uniqueLocator == null || uniqueLocator.equals(failedLocator)) continue;
+            if (candidates.stream().anyMatch(candidate -> candidate.locator().equals(uniqueLocator))) continue;
+            candidates.add(new Candidate(uniqueLocator, element.score(), explanation.apply(element.element())));
+        }
+        return candidates;
+    }
+
+    /**
+     * Render candidates in the LLM output format read by LocatorValidator
+     * @param candidates - the candidates
+     * @return - one "Locator: ..., Score: ..., Explanation: ..." entry per candidate
+     */
+    public static String format(List<Candidate> candidates) {
+        StringBuilder locators = new StringBuilder();
+        for (Candidate candidate : candidates) {
+            locators.append(String.format(Locale.ROOT, "Locator: %s, Score: %.2f, Explanation: %s%n%n",
+                    candidate.locator(), candidate.score(), candidate.explanation()));
+        }
+        return locators.toString();
+    }
+
+    /**
+     * Score an element by its predicates and, when the locator names ancestors, by its structural position
+     * @param element - the candidate element
+     * @param locator - the parsed failed locator
+     * @return - score between 0 and 1
+     */
+    private static double score(Element element, XPathLocator locator) {
+        double similarity = ElementSimilarity.score(element, locator);
+        if (locator.getAncestorTags().isEmpty() || similarity == 0) return similarity;
+        return (1 - STRUCTURE_WEIGHT) * similarity + STRUCTURE_WEIGHT * structureSimilarity(element, locator.getAncestorTags());
+    }
+
+    /**
+     * Share of the ancestor tags of the locator found, in order, among the ancestors of the element
+     * @param element - the candidate element
+     * @param ancestorTags - ancestor tags of the locator, outermost first
+     * @return - similarity between 0 and 1
+     */
+    private static double structureSimilarity(Element element, List<String> ancestorTags) {
+        int matched = 0;
+        int index = ancestorTags.size() - 1;
+        for (Element parent = element.parent(); parent != null && index >= 0; parent = parent.parent()) {
+            if (parent.normalName().equals(ancestorTags.get(index))) {
+                matched++;
+                index--;
+            }
+        }
+        return (double) matched / ancestorTags.size();
+    }
+
+    /**
+     * Build the most readable XPath that matches only the given element
+     * @param page - the failed page
+     * @param element - the element
+     * @return - a unique locator, or null if none was found
+     */
+    private static String uniqueLocator(LocatorValidator.Page page, Element element) {
+        String tag = element.normalName();
+        List<String> predicates = new ArrayList<>();
+        for (String attribute : PREFERRED_ATTRIBUTES) {
+            String value = element.attr(attribute);
+            String valueLiteral = value.isEmpty() ? null : literal(value);
+            if (valueLiteral == null) continue;
+            String predicate = "@" + attribute + "=" + valueLiteral;
+            predicates.add(predicate);
+            String locator = "//" + tag + "[" + predicate + "]";
+            if (page.matchesOnly(locator, element)) return locator;
+        }
+
+        String text = element.ownText().trim();
+        String textLiteral = text.isEmpty() || text.length() > MAX_TEXT_LENGTH ? null : literal(text);
+        if (textLiteral != null) {
+            String locator = "//" + tag + "[text()=" + textLiteral + "]";
+            if (page.matchesOnly(locator, element)) return locator;
+            predicates.add("text()=" + textLiteral);
+        }
+
+        if (predicates.size() > 1) {
+            String locator = "//" + tag + "[" + String.join(" and ", predicates) + "]";
+            if (page.matchesOnly(locator, element)) return locator;
+        }
+        return null;
+    }
+
+    /**
+     * Quote a value as an XPath string literal
+     * @param value - the value
+     * @return - the literal, or null if the value contains both quote characters
+     */
+    private static String literal(String value) {
+        if (!value.contains("'")) return "'" + value + "'";
+        if (!value.contains("\"")) return "\"" + value + "\"";
+        return null;
+    }
+
+    private static String explain(Element element, XPathLocator locator) {
+        List<String> matched = new ArrayList<>();
+        if (element.normalName().equals(locator.getTagName())) matched.add("tag");
+        locator.getAttributes().forEach((name, value) -> {
+            if (ElementSimilarity.attributeSimilarity(element, name, value) >= 0.5) matched.add("@" + name);
+        });
+        if (!locator.getTexts().isEmpty() && !element.ownText().isBlank()) matched.add("text");
+        return "Locally matched on " + (matched.isEmpty() ? "partial similarity" : String.join(", ", matched)) + " of the failed locator";
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.utils;
+
+import com.example.configurations.ConfigManager;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the places locators can occur in a project tree: the string literals of .java files and the lines of all
+ * other files. Only the source roots of the tree are indexed, without build output and IDE directories. The tree is
+ * walked once and its directories are watched; afterwards a refresh only re-reads the files the watch service reported
+ * as created or changed, so finding the files containing a locator costs neither a walk nor file reads. Without a
+ * watch service every refresh walks the tree and re-reads the files whose modification time or size changed.
+ */
+public class LocatorIndex {
+    private static final Logger logger = Logger.getLogger(LocatorIndex.class.getName());
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("\"((?:[^\"\\\\\\n]|\\\\.)*)\"");
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of(".git", ".svn", ".idea", ".vscode", ".settings",
+            ".gradle", ".mvn", "Healing_Docs", "target", "build", "out", "bin", "node_modules");
+    private static final List<String> SOURCE_ROOTS = Arrays.stream(ConfigManager.getProperty("healing.writeBack.sourceRoots", "src").split(","))
+            .map(String::trim).filter(root -> !root.isEmpty()).toList();
+    private static final Path STAGING_DIR = Paths.get(ConfigManager.getProperty("healing.writeBack.stagingDir", "Healing_Docs/staging"));
+    private static final long STALE_STAGED_MILLIS = 3_600_000L;
+    private static final Map<String, LocatorIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final boolean checkAllFiles;
+    private final Map<Path, IndexedFile> files = new HashMap<>();
+    private final Map<String, Set<Path>> segments = new HashMap<>();
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private WatchService watcher;
+    private boolean walked;
+
+    private record IndexedFile(FileTime modified, long size, Set<String> segments) {
+    }
+
+    /**
+     * Constructor
+     * @param root - root of the project tree
+     * @param checkAllFiles - index all files, not only .java, .loc and .properties files
+     */
+    public LocatorIndex(Path root, boolean checkAllFiles) {
+        this.root = root;
+        this.checkAllFiles = checkAllFiles;
+        try {
+            this.watcher = root.getFileSystem().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            logger.log(Level.FINE, "No watch service for " + root + ", every refresh walks the tree", e);
+        }
+        deleteStaleStagedFiles();
+    }
+
+    /**
+     * Get the shared index of a project tree
+     * @param root - root of the project tree
+     * @param checkAllFiles - index all files, not only .java, .loc and .properties files
+     * @return - the index, built on first use
+     */
+    public static LocatorIndex forRoot(String root, boolean checkAllFiles) {
+        Path rootPath = Paths.get(root).toAbsolutePath().normalize();
+        return INDEXES.computeIfAbsent(rootPath + "|" + checkAllFiles, key -> new LocatorIndex(rootPath, checkAllFiles));
+    }
+
+    /**
+     * Find the files containing any of the locators
+     * @param locators - the locators
+     * @return - files that contain at least one locator
+     */
+    public synchronized Set<Path> findFiles(Collection<String> locators) {
+        refresh();
+        Set<Path> found = new TreeSet<>();
+        for (String locator : locators) {
+            Set<Path> exact = segments.get(locator);
+            if (exact != null) found.addAll(exact);
+        }
+        MultiPatternReplacer matcher = new MultiPatternReplacer(toMap(locators));
+        for (Map.Entry<String, Set<Path>> segment : segments.entrySet()) {
+            if (!found.containsAll(segment.getValue()) && matcher.matches(segment.getKey())) {
+                found.addAll(segment.getValue());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * A planned rewrite of a file
+     * @param path - the file
+     * @param before - content the plan was made on
+     * @param after - content after the replacements
+     * @param replaced - failed locators replaced in the file
+     */
+    public record FileChange(Path path, String before, String after, Set<String> replaced) {
+    }
+
+    /**
+     * Replace locators in every file of the tree that contains them, with one pass per file
+     * @param replacements - new locator per failed locator
+     * @return - the rewritten files
+     */
+    public synchronized List<Path> replaceAll(Map<String, String> replacements) {
+        return apply(plan(replacements));
+    }
+
+    /**
+     * Plan the replacement of locators without writing anything
+     * @param replacements - new locator per failed locator
+     * @return - one change per file that contains a failed locator
+     */
+    public synchronized List<FileChange> plan(Map<String, String> replacements) {
+        List<FileChange> changes = new ArrayList<>();
+        if (replacements.isEmpty()) return changes;
+
+        MultiPatternReplacer replacer = new MultiPatternReplacer(replacements);
+        for (Path path : findFiles(replacements.keySet())) {
+            try {
+                String content = Files.readString(path);
+                Set<String> replaced = new LinkedHashSet<>();
+                String updatedContent = replacer.replace(content, replaced);
+                if (!updatedContent.equals(content)) changes.add(new FileChange(path, content, updatedContent, replaced));
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error reading file: " + path, e);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Write planned changes. Every new content is first written to a temp file in the staging directory under
+     * Healing_Docs, never into the source tree, and only when all of them are staged are they moved over their targets
+     * with an atomic rename. A file that changed since the plan was made is left alone.
+     * @param changes - the planned changes
+     * @return - the rewritten files
+     */
+    public synchronized List<Path> apply(List<FileChange> changes) {
+        Map<FileChange, Path> staged = new LinkedHashMap<>();
+        try {
+            for (FileChange change : changes) {
+                if (!Files.readString(change.path()).equals(change.before())) {
+                    logger.log(Level.WARNING, "File changed since the locator update was planned, skipping: " + change.path());
+                    continue;
+                }
+                Files.createDirectories(STAGING_DIR);
+                Path temp = Files.createTempFile(STAGING_DIR, change.path().getFileName().toString(), ".tmp");
+                staged.put(change, temp);
+                Files.writeString(temp, change.after());
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error staging locator updates, no file was changed", e);
+            staged.values().forEach(LocatorIndex::deleteQuietly);
+            return List.of();
+        }
+
+        List<Path> updated = new ArrayList<>();
+        for (Map.Entry<FileChange, Path> entry : staged.entrySet()) {
+            Path path = entry.getKey().path();
+            try {
+                try {
+                    Files.move(entry.getValue(), path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(entry.getValue(), path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                updated.add(path);
+                logger.log(Level.INFO, "Updated locator in file: " + path);
+                index(path, Files.readAttributes(path, BasicFileAttributes.class));
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error updating locator in file: " + path, e);
+                deleteQuietly(entry.getValue());
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Bring the index up to date with the tree, reading only new and changed files
+     */
+    public synchronized void refresh() {
+        long start = System.nanoTime();
+        int reindexed;
+        if (walked && watcher != null && !watchedDirectories.isEmpty()) {
+            reindexed = applyWatchEvents();
+            if (reindexed < 0) {
+                logger.log(Level.FINE, "Watch events of {0} were lost, walking the tree again", root);
+                reindexed = walk();
+            }
+        } else {
+            reindexed = walk();
+        }
+        logger.log(Level.FINE, "Locator index of {0} refreshed in {1} ms, {2} of {3} files re-read",
+                new Object[]{root, (System.nanoTime() - start) / 1_000_000, reindexed, files.size()});
+    }
+
+    /**
+     * Get the directories to index: the source roots that exist under the root, or the whole root if none does
+     * @return - the directories
+     */
+    private List<Path> sourceRoots() {
+        List<Path> roots = new ArrayList<>();
+        for (String sourceRoot : SOURCE_ROOTS) {
+            Path path = root.resolve(sourceRoot).normalize();
+            if (Files.isDirectory(path)) roots.add(path);
+        }
+        return roots.isEmpty() ? List.of(root) : roots;
+    }
+
+    /**
+     * Walk the source roots, re-reading new and changed files, dropping removed ones and watching every directory
+     * @return - number of files re-read
+     */
+    private int walk() {
+        Set<Path> seen = new HashSet<>();
+        int[] reindexed = {0};
+        for (Path sourceRoot : sourceRoots()) {
+            walk(sourceRoot, seen, reindexed);
+        }
+        for (Path removed : new ArrayList<>(files.keySet())) {
+            if (!seen.contains(removed)) unindex(removed);
+        }
+        walked = true;
+        return reindexed[0];
+    }
+
+    private void walk(Path start, Set<Path> seen, int[] reindexed) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                    Path name = dir.getFileName();
+                    if (name != null && SKIPPED_DIRECTORIES.contains(name.toString())) return FileVisitResult.SKIP_SUBTREE;
+                    watch(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (!attributes.isRegularFile() || !(checkAllFiles || isRelevantFile(file))) return FileVisitResult.CONTINUE;
+                    seen.add(file);
+                    IndexedFile indexed = files.get(file);
+                    if (indexed == null || !indexed.modified().equals(attributes.lastModifiedTime()) || indexed.size() != attributes.size()) {
+                        index(file, attributes);
+                        reindexed[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    logger.log(Level.FINE, "Cannot index file: " + file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error walking through project files at path: " + start, e);
+        }
+    }
+
+    private void watch(Path dir) {
+        if (watcher == null) return;
+        try {
+            // Registering a watched directory again returns its existing key
+            WatchKey key = dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            watchedDirectories.put(key, dir);
+        } catch (IOException | UnsupportedOperationException e) {
+            // E.g. the watch limit of the OS was reached, from now on every refresh walks the tree
+            logger.log(Level.WARNING, "Cannot watch " + dir + ", the locator index falls back to walking the tree", e);
+            closeWatcher();
+        }
+    }
+
+    /**
+     * Re-read the files the watch service reported since the last refresh
+     * @return - number of files re-read, -1 if events were lost and the tree must be walked
+     */
+    private int applyWatchEvents() {
+        int reindexed = 0;
+        WatchKey key;
+        while (watcher != null && (key = watcher.poll()) != null) {
+            Path dir = watchedDirectories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                    key.reset();
+                    return -1;
+                }
+                Path path = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    for (Path file : new ArrayList<>(files.keySet())) {
+                        if (file.startsWith(path)) unindex(file);
+                    }
+                    continue;
+                }
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isDirectory()) {
+                        int[] walkedFiles = {0};
+                        walk(path, new HashSet<>(), walkedFiles);
+                        reindexed += walkedFiles[0];
+                    } else if (attributes.isRegularFile() && (checkAllFiles || isRelevantFile(path))) {
+                        IndexedFile indexed = files.get(path);
+                        if (indexed == null || !indexed.modified().equals(attributes.lastModifiedTime()) || indexed.size() != attributes.size()) {
+                            index(path, attributes);
+                            reindexed++;
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    unindex(path);
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Cannot index file: " + path, e);
+                }
+            }
+            if (!key.reset()) watchedDirectories.remove(key);
+        }
+        return watcher == null ? -1 : reindexed;
+    }
+
+    private void closeWatcher() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Error closing the watch service of " + root, e);
+        }
+        watcher = null;
+        watchedDirectories.clear();
+    }
+
+    /**
+     * Delete temp files a crashed write-back left in the staging directory. Files younger than an hour are kept, they
+     * may be staged by another JVM sharing Healing_Docs.
+     */
+    private static void deleteStaleStagedFiles() {
+        if (!Files.isDirectory(STAGING_DIR)) return;
+        long staleBefore = System.currentTimeMillis() - STALE_STAGED_MILLIS;
+        try (DirectoryStream<Path> staged = Files.newDirectoryStream(STAGING_DIR, "*.tmp")) {
+            for (Path path : staged) {
+                if (Files.getLastModifiedTime(path).toMillis() < staleBefore) deleteQuietly(path);
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Cannot clean up the staging directory " + STAGING_DIR, e);
+        }
+    }
+
+    private void index(Path file, BasicFileAttributes attributes) {
+        unindex(file);
+        Set<String> fileSegments = new HashSet<>();
+        try {
+            String content = Files.readString(file);
+            if (file.toString().endsWith(".java")) {
+                Matcher matcher = STRING_LITERAL.matcher(content);
+                while (matcher.find()) fileSegments.add(matcher.group(1));
+            } else {
+                content.lines().filter(line -> !line.isBlank()).forEach(fileSegments::add);
+            }
+        } catch (IOException e) {
+            // Binary or unreadable files cannot hold a locator
+            logger.log(Level.FINE, "Cannot read file: " + file, e);
+        }
+        files.put(file, new IndexedFile(attributes.lastModifiedTime(), attributes.size(), fileSegments));
+        for (String segment : fileSegments) {
+            segments.computeIfAbsent(segment, key -> new HashSet<>()).add(file);
+        }
+    }
+
+    private void unindex(Path file) {
+        IndexedFile indexed = files.remove(file);
+        if (indexed == null) return;
+        for (String segment : indexed.segments()) {
+            Set<Path> paths = segments.get(segment);
+            if (paths != null && paths.remove(file) && paths.isEmpty()) segments.remove(segment);
+        }
+    }
+
+    /**
+     * Check if the file is relevant for locator update
+     * @param path - file path
+     * @return - true if the file is relevant, false otherwise
+     */
+    static boolean isRelevantFile(Path path) {
+        String fileName = path.toString();
+        return fileName.endsWith(".java") || fileName.endsWith(".loc") || fileName.endsWith(".properties");
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Cannot delete temp file: " + path, e);
+        }
+    }
+
+    private static Map<String, String> toMap(Collection<String> locators) {
+        Map<String, String> map = new LinkedHashMap<>();
+        locators.forEach(locator -> map.put(locator, locator));
+        return map;
+    }
+}
@@ -1,35 +1,34 @@
 package com.example.utils;
 
+import com.example.configurations.ConfigManager;
+
 import java.io.*;
 import java.nio.file.*;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Stream;
 
 public class LocatorUpdater {
     private LocatorUpdater() {}
     private static final Logger logger = Logger.getLogger(LocatorUpdater.class.getName());
+    private static final Object WRITE_LOCK = new Object();
 
     /**
      * Update locators in the project
      * @param validatedLocPath - path to the validated locators file
      * @param failedLocatorPath - path to the failed locator file
+     * @deprecated - the healing pipeline no longer writes intermediate files; use updateLocator(String, String)
      */
+    @Deprecated
     public static void updateLocators(String validatedLocPath, String failedLocatorPath) {
         try {
-            Properties properties = new Properties();
-            try (InputStream input = new FileInputStream("src/main/resources/config.properties")) {
-                properties.load(input);
-            }
-
-            String locatorPath = properties.getProperty("locatorPath");
-            String projectRootPath = (locatorPath == null || locatorPath.isEmpty()) ? System.getProperty("user.dir") : locatorPath;
             String failedLocator = readFile(failedLocatorPath).trim();
             String newLocator = getFirstFoundLocator(validatedLocPath);
 
             if (newLocator != null) {
-                updateLocatorInProject(failedLocator, newLocator, projectRootPath, locatorPath != null && !locatorPath.isEmpty());
+                updateLocator(failedLocator, newLocator);
             } else {
                 logger.log(Level.WARNING, "No valid locator found in the validated locators file.");
             }
@@ -38,19 +37,98 @@ public class LocatorUpdater {
         }
     }
 
+    /**
+     * Replace a failed locator with a new one in the configured locator path or the project root
+     * @param failedLocator - failed locator
+     * @param newLocator - new locator
+     * @throws IOException - if config.properties cannot be read
+     */
+    public static void updateLocator(String failedLocator, String newLocator) throws IOException {
+        updateLocators(Map.of(failedLocator, newLocator));
+    }
+
+    /**
+     * Replace several failed locators in the configured locator path or the project root, in one pass per file. A
+     * rewritten locators.loc is reloaded for the rest of the run.
+     * @param replacements - new locator per failed locator
+     * @throws IOException - if config.properties cannot be read
+     */
+    public static void updateLocators(Map<String, String> replacements) throws IOException {
+        LocatorIndex index = projectIndex();
+        List<Path> updated;
+        synchronized (WRITE_LOCK) {
+            updated = index.replaceAll(replacements);
+        }
+        ConfigManager.reloadLocators(updated);
+        logger.log(Level.INFO, "Updated " + replacements.size() + " locators in " + updated.size() + " files.");
+    }
+
+    /**
+     * Plan the replacement of several failed locators in the configured locator path or the project root, without
+     * writing anything
+     * @param replacements - new locator per failed locator
+     * @return - one change per affected file
+     * @throws IOException - if config.properties cannot be read
+     */
+    public static List<LocatorIndex.FileChange> planLocatorUpdates(Map<String, String> replacements) throws IOException {
+        synchronized (WRITE_LOCK) {
+            return projectIndex().plan(replacements);
+        }
+    }
+
+    /**
+     * Write planned locator updates atomically. A rewritten locators.loc is reloaded for the rest of the run.
+     * @param changes - the planned changes
+     * @return - the rewritten files
+     * @throws IOException - if config.properties cannot be read
+     */
+    public static List<Path> applyLocatorUpdates(List<LocatorIndex.FileChange> changes) throws IOException {
+        List<Path> updated;
+        synchronized (WRITE_LOCK) {
+            updated = projectIndex().apply(changes);
+        }
+        ConfigManager.reloadLocators(updated);
+        return updated;
+    }
+
+    /**
+     * Get the locator index of the configured locator path or the project root. A JVM system property locatorPath
+     * takes precedence over config.properties, so the write-back can be pointed at another tree.
+     * @return - the shared LocatorIndex
+     * @throws IOException - if config.properties cannot be read
+     */
+    private static LocatorIndex projectIndex() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream("src/main/resources/config.properties")) {
+            properties.load(input);
+        }
+
+        String locatorPath = System.getProperty("locatorPath", properties.getProperty("locatorPath"));
+        String projectRootPath = (locatorPath == null || locatorPath.isEmpty()) ? System.getProperty("user.dir") : locatorPath;
+        return LocatorIndex.forRoot(projectRootPath, locatorPath != null && !locatorPath.isEmpty());
+    }
+
     /**
      * Get the first found locator from the validated locators file
      * @param validatedLocPath - path to the validated locators file
      * @return - first found locator
      * @throws IOException - if an I/O error occurs
+     * @deprecated - use findFirstFoundLocator(String) on the validation result
      */
+    @Deprecated
     public static String getFirstFoundLocator(String validatedLocPath) throws IOException {
-        try (BufferedReader reader = new BufferedReader(new FileReader(validatedLocPath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("Locator found: ")) {
-                    return line.substring(15).trim();
-                }
+        return findFirstFoundLocator(readFile(validatedLocPath));
+    }
+
+    /**
+     * Get the first found locator from the validated locators
+     * @param validatedLocators - validation result, one "Locator found: ..." or "Locator not found: ..." line per locator
+     * @return - first found locator, or null if none was found
+     */
+    public static String findFirstFoundLocator(String validatedLocators) {
+        for (String line : validatedLocators.split("\n")) {
+            if (line.startsWith("Locator found: ")) {
+                return line.substring(15).trim();
             }
         }
         return null;
@@ -62,51 +140,29 @@ public class LocatorUpdater {
      * @param newLocator - new locator
      * @param projectRootPath - project root path
      * @param checkAllFiles - check all files in the given path
+     * @deprecated - use updateLocatorsInProject(Map, String, boolean), which rewrites each file once for all locators
      */
+    @Deprecated
     public static void updateLocatorInProject(String failedLocator, String newLocator, String projectRootPath, boolean checkAllFiles) {
-        logger.log(Level.INFO, "Starting to update locators in project. Root path: {0}, Check all files: {1}", new Object[]{projectRootPath, checkAllFiles});
-        try (Stream<Path> paths = Files.walk(Paths.get(projectRootPath))) {
-            paths.filter(Files::isRegularFile)
-                    .filter(path -> checkAllFiles || isRelevantFile(path))
-                    .forEach(path -> {
-                        logger.log(Level.FINE, "Processing file: {0}", path);
-                        updateLocatorInFile(path, failedLocator, newLocator);
-                    });
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error walking through project files at path: " + projectRootPath, e);
-        }
-        logger.log(Level.INFO, "Finished updating locators in project.");
-    }
-
-    /**
-     * Check if the file is relevant for locator update
-     * @param path - file path
-     * @return - true if the file is relevant, false otherwise
-     */
-    private static boolean isRelevantFile(Path path) {
-        String fileName = path.toString();
-        return fileName.endsWith(".java") || fileName.endsWith(".loc") || fileName.endsWith(".properties");
+        updateLocatorsInProject(Map.of(failedLocator, newLocator), projectRootPath, checkAllFiles);
     }
 
     /**
-     * Update locator in the file
-     * @param filePath - file path
-     * @param failedLocator - failed locator
-     * @param newLocator - new locator
+     * Update several locators in the project. Only the files the LocatorIndex knows to contain a failed locator are
+     * read and rewritten.
+     * @param replacements - new locator per failed locator
+     * @param projectRootPath - project root path
+     * @param checkAllFiles - check all files in the given path
      */
-    private static void updateLocatorInFile(Path filePath, String failedLocator, String newLocator) {
-        try {
-            String content = new String(Files.readAllBytes(filePath));
-            if (content.contains(failedLocator)) {
-                String updatedContent = content.replace(failedLocator, newLocator);
-                Files.write(filePath, updatedContent.getBytes());
-                logger.log(Level.INFO, "Updated locator in file: "+ filePath);
-            } else {
-                logger.log(Level.INFO, "Locator not found in file: "+ filePath);
-            }
-        } catch (IOException e) {
-            logger.log(Level.SEVERE, "Error updating locator in file: " + filePath, e);
+    public static void updateLocatorsInProject(Map<String, String> replacements, String projectRootPath, boolean checkAllFiles) {
+        logger.log(Level.INFO, "Starting to update {0} locators in project. Root path: {1}, Check all files: {2}",
+                new Object[]{replacements.size(), projectRootPath, checkAllFiles});
+        List<Path> updated;
+        // Concurrent heals read-modify-write the same files, so rewrites are serialized
+        synchronized (WRITE_LOCK) {
+            updated = LocatorIndex.forRoot(projectRootPath, checkAllFiles).replaceAll(replacements);
         }
+        logger.log(Level.INFO, "Finished updating locators in project, " + updated.size() + " files updated.");
     }
 
     /**
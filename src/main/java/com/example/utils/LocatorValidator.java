@@ -1,16 +1,169 @@
 package com.example.utils;
 
+import com.example.configurations.ConfigManager;
+import com.example.utils.healing.Cancellation;
+import com.example.utils.healing.DomCapture;
 import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
 import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
+import org.jsoup.nodes.Element;
+import org.w3c.dom.NodeList;
 
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Validates candidate locators against the failed page. The page is converted to a W3C DOM once per Page and
+ * every candidate is evaluated on it with a compiled, cached XPath expression, instead of converting the page again
+ * for each candidate. A locator matching more than one element is reported as ambiguous and never used, and
+ * evaluation stops once enough unique locators were found. Matches inside shadow root or frame content that the
+ * capture inlined into the page do not count, since a locator of the page cannot reach them; a locator matching
+ * only such content is reported as unreachable.
+ */
 public class LocatorValidator {
     private static final Logger logger = Logger.getLogger(LocatorValidator.class.getName());
 
+    private static final int MAX_UNIQUE_MATCHES = Integer.parseInt(ConfigManager.getProperty("healing.validation.maxUniqueMatches", "3"));
+    private static final int MAX_CACHED_EXPRESSIONS = Integer.parseInt(ConfigManager.getProperty("healing.validation.expressionCacheSize", "512"));
+    private static final String INLINED_CONTENT = "[" + DomCapture.SHADOW_ROOT_ATTRIBUTE + "], [" + DomCapture.FRAME_ATTRIBUTE + "]";
+    private static final XPathFactory XPATH_FACTORY = XPathFactory.newInstance();
+    private static final Map<String, XPathExpression> EXPRESSIONS = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+            return size() > MAX_CACHED_EXPRESSIONS;
+        }
+    });
+
+    /**
+     * Outcome of validating a locator
+     */
+    public enum Status {
+        FOUND("Locator found: "),
+        AMBIGUOUS("Locator ambiguous: "),
+        NOT_FOUND("Locator not found: "),
+        INVALID("Locator invalid: "),
+        UNREACHABLE("Locator unreachable: "),
+        SKIPPED("Locator skipped: ");
+
+        private final String prefix;
+
+        Status(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    /**
+     * Validation result of a single locator
+     * @param locator - the locator
+     * @param status - outcome of the validation
+     * @param matchCount - number of matched elements outside inlined content, -1 if the locator was not evaluated
+     * @param evaluationNanos - evaluation time of the locator
+     */
+    public record Validation(String locator, Status status, int matchCount, long evaluationNanos) {
+
+        /**
+         * Render the validation as one line of the validated locators
+         * @return - e.g. "Locator found: //input[@name='q']"
+         */
+        public String toLine() {
+            return status.prefix + locator + (status == Status.AMBIGUOUS ? ", Matches: " + matchCount : "");
+        }
+    }
+
+    /**
+     * A page candidates are validated against one at a time, e.g. while the LLM is still generating them. The page is
+     * converted to a W3C DOM on the first validation and every locator is only evaluated once. One Page is meant to be
+     * shared by every stage that evaluates XPath on the same parsed document.
+     */
+    public static final class Page {
+        private final Document document;
+        private final Map<String, Validation> validations = new HashMap<>();
+        private final W3CDom w3cDom = new W3CDom().namespaceAware(false);
+        private final boolean inlined;
+        private org.w3c.dom.Document w3cDocument;
+        private long conversionNanos;
+
+        /**
+         * Constructor
+         * @param document - the parsed page source
+         */
+        public Page(Document document) {
+            this.document = document;
+            this.inlined = document.selectFirst(INLINED_CONTENT) != null;
+        }
+
+        /**
+         * Get the parsed page source
+         * @return - the jsoup Document of the page
+         */
+        public Document getDocument() {
+            return document;
+        }
+
+        /**
+         * Validate a locator against the page
+         * @param locator - the locator
+         * @return - the validation of the locator
+         */
+        public synchronized Validation validate(String locator) {
+            Validation validation = validations.get(locator);
+            if (validation == null) {
+                validation = evaluate(locator, convert(), inlined);
+                validations.put(locator, validation);
+            }
+            return validation;
+        }
+
+        /**
+         * Check if a locator matches exactly the given element of the page. The evaluation is kept as the validation
+         * of the locator, so validating it later costs nothing.
+         * @param locator - the locator
+         * @param element - an element of the parsed page source
+         * @return - true if the locator matches this element and no other
+         */
+        public synchronized boolean matchesOnly(String locator, Element element) {
+            Validation validation = validations.get(locator);
+            if (validation != null && validation.status() != Status.FOUND) return false;
+            long start = System.nanoTime();
+            NodeList matches;
+            try {
+                matches = select(locator, convert());
+            } catch (XPathExpressionException e) {
+                validations.put(locator, new Validation(locator, Status.INVALID, 0, System.nanoTime() - start));
+                return false;
+            }
+            Validation evaluated = toValidation(locator, matches, inlined, start);
+            validations.putIfAbsent(locator, evaluated);
+            if (evaluated.status() != Status.FOUND || (inlined && element.closest(INLINED_CONTENT) != null)) return false;
+            // The element is the single reachable match if it is among the matches at all
+            return w3cDom.sourceNodes(matches, Element.class).stream().anyMatch(match -> match == element);
+        }
+
+        private org.w3c.dom.Document convert() {
+            if (w3cDocument == null) {
+                long start = System.nanoTime();
+                w3cDocument = w3cDom.fromJsoup(document);
+                conversionNanos = System.nanoTime() - start;
+            }
+            return w3cDocument;
+        }
+    }
+
+    private LocatorValidator() {}
+
     /**
      * Validate the locators from the LLM output file against the HTML file
      * @param llmOutputPath - the path to the LLM output file
@@ -20,38 +173,170 @@ public class LocatorValidator {
     public static void validateLocators(String llmOutputPath, String htmlFilePath, String validatedLocPath) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(validatedLocPath))) {
             String htmlContent = readFile(htmlFilePath);
-            Document document = Jsoup.parse(htmlContent);
-
-            try (BufferedReader reader = new BufferedReader(new FileReader(llmOutputPath))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (line.startsWith("Locator: ")) {
-                        String locator = line.substring(9, line.indexOf(", Score:"));
-                        validateLocator(locator, document, writer);
-                    }
-                }
-            }
+            String llmOutput = readFile(llmOutputPath);
+            writer.write(validateLocators(llmOutput, Jsoup.parse(htmlContent)));
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Error reading files", e);
         }
     }
 
     /**
-     * Validate the locator against the HTML document
-     * @param locator - the locator to validate
-     * @param document - the HTML document
-     * @param writer - the writer to write the results
-     * @throws IOException - if an I/O error occurs
+     * Validate the locators from the LLM output against an already parsed page
+     * @param llmOutput - the LLM output, one "Locator: ..., Score: ..." entry per line
+     * @param document - the parsed page source
+     * @return - the validation result, one "Locator found: ...", "Locator ambiguous: ...", "Locator not found: ...",
+     * "Locator invalid: ..." or "Locator skipped: ..." line per locator
+     */
+    public static String validateLocators(String llmOutput, Document document) {
+        return validateLocators(llmOutput, new Page(document));
+    }
+
+    /**
+     * Validate the locators from the LLM output against a page, reusing the validations already made on it
+     * @param llmOutput - the LLM output, one "Locator: ..., Score: ..." entry per line
+     * @param page - the page
+     * @return - the validation result, one line per locator as for {@link #validateLocators(String, Document)}
      */
-    private static void validateLocator(String locator, Document document, BufferedWriter writer) throws IOException {
-        Elements elements = document.selectXpath(locator);
-        if (elements.isEmpty()) {
-            logger.log(Level.WARNING, "Locator not found: " + locator);
-            writer.write("Locator not found: " + locator + "\n");
-        } else {
-            logger.log(Level.INFO, "Locator found: " + locator);
-            writer.write("Locator found: " + locator + "\n");
+    public static String validateLocators(String llmOutput, Page page) {
+        List<String> locators = new ArrayList<>();
+        for (String line : llmOutput.split("\n")) {
+            if (line.startsWith("Locator: ") && line.contains(", Score:")) {
+                locators.add(line.substring(9, line.indexOf(", Score:")));
+            }
+        }
+
+        StringBuilder validated = new StringBuilder();
+        for (Validation validation : validate(locators, page, MAX_UNIQUE_MATCHES)) {
+            validated.append(validation.toLine()).append("\n");
+        }
+        return validated.toString();
+    }
+
+    /**
+     * Evaluate locators against an already parsed page, in order
+     * @param locators - the locators
+     * @param document - the parsed page source
+     * @param maxUniqueMatches - number of unique locators after which the remaining ones are skipped
+     * @return - one validation per locator
+     */
+    public static List<Validation> validate(List<String> locators, Document document, int maxUniqueMatches) {
+        return validate(locators, new Page(document), maxUniqueMatches);
+    }
+
+    /**
+     * Evaluate locators against a page, in order, reusing the validations already made on it
+     * @param locators - the locators
+     * @param page - the page
+     * @param maxUniqueMatches - number of unique locators after which the remaining ones are skipped
+     * @return - one validation per locator
+     */
+    public static List<Validation> validate(List<String> locators, Page page, int maxUniqueMatches) {
+        List<Validation> validations = new ArrayList<>(locators.size());
+        if (locators.isEmpty()) return validations;
+
+        long start = System.nanoTime();
+        int uniqueMatches = 0;
+        for (String locator : locators) {
+            Cancellation.checkInterrupted();
+            if (uniqueMatches >= maxUniqueMatches) {
+                validations.add(new Validation(locator, Status.SKIPPED, -1, 0));
+                continue;
+            }
+            Validation validation = page.validate(locator);
+            if (validation.status() == Status.FOUND) uniqueMatches++;
+            logger.log(validation.status() == Status.FOUND ? Level.INFO : Level.WARNING, "{0} ({1} matches, {2} µs)",
+                    new Object[]{validation.toLine(), validation.matchCount(), validation.evaluationNanos() / 1_000});
+            validations.add(validation);
+        }
+        logger.log(Level.INFO, String.format(Locale.ROOT, "Validated %d locators in %.2f ms (DOM conversion %.2f ms), %d unique",
+                locators.size(), (System.nanoTime() - start) / 1e6, page.conversionNanos / 1e6, uniqueMatches));
+        return validations;
+    }
+
+    /**
+     * Evaluate a single locator
+     * @param locator - the locator
+     * @param w3cDocument - the page converted to a W3C DOM
+     * @return - the validation of the locator
+     */
+    private static Validation evaluate(String locator, org.w3c.dom.Document w3cDocument, boolean inlined) {
+        long start = System.nanoTime();
+        try {
+            return toValidation(locator, select(locator, w3cDocument), inlined, start);
+        } catch (XPathExpressionException e) {
+            logger.log(Level.FINE, "Locator cannot be evaluated: " + locator, e);
+            return new Validation(locator, Status.INVALID, 0, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Classify the matches of a locator, leaving out the matches inside inlined shadow root or frame content
+     * @param locator - the locator
+     * @param matches - the matched nodes
+     * @param inlined - whether the page has inlined content at all
+     * @param start - start time of the evaluation
+     * @return - the validation of the locator
+     */
+    private static Validation toValidation(String locator, NodeList matches, boolean inlined, long start) {
+        int count = matches.getLength();
+        int reachable = count;
+        if (inlined) {
+            for (int i = 0; i < count; i++) {
+                if (isInlined(matches.item(i))) reachable--;
+            }
+        }
+        Status status = reachable == 0 ? (count > 0 ? Status.UNREACHABLE : Status.NOT_FOUND)
+                : reachable == 1 ? Status.FOUND : Status.AMBIGUOUS;
+        return new Validation(locator, status, reachable, System.nanoTime() - start);
+    }
+
+    /**
+     * Check if a node is, or lies inside, content the capture inlined into the page
+     * @param node - a node of the W3C DOM
+     * @return - true if the node cannot be reached by a locator of the page
+     */
+    private static boolean isInlined(org.w3c.dom.Node node) {
+        for (org.w3c.dom.Node current = node; current != null; current = current.getParentNode()) {
+            if (current instanceof org.w3c.dom.Element element
+                    && (element.hasAttribute(DomCapture.SHADOW_ROOT_ATTRIBUTE) || element.hasAttribute(DomCapture.FRAME_ATTRIBUTE))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluate a locator to the nodes it matches
+     * @param locator - the locator
+     * @param w3cDocument - the page converted to a W3C DOM
+     * @return - the matched nodes
+     * @throws XPathExpressionException - if the locator is not a valid XPath
+     */
+    private static NodeList select(String locator, org.w3c.dom.Document w3cDocument) throws XPathExpressionException {
+        XPathExpression expression = compile(locator);
+        // Compiled expressions are not thread-safe, concurrent healings sharing one take turns
+        synchronized (expression) {
+            return (NodeList) expression.evaluate(w3cDocument, XPathConstants.NODESET);
+        }
+    }
+
+    /**
+     * Get the compiled expression of a locator from the cache, compiling it on a miss
+     * @param locator - the locator
+     * @return - the compiled expression
+     * @throws XPathExpressionException - if the locator is not a valid XPath
+     */
+    private static XPathExpression compile(String locator) throws XPathExpressionException {
+        XPathExpression expression = EXPRESSIONS.get(locator);
+        if (expression == null) {
+            XPath xpath;
+            synchronized (XPATH_FACTORY) {
+                xpath = XPATH_FACTORY.newXPath();
+            }
+            expression = xpath.compile(locator);
+            EXPRESSIONS.put(locator, expression);
         }
+        return expression;
     }
 
     /**
@@ -70,4 +355,4 @@ public class LocatorValidator {
         }
         return contentBuilder.toString();
     }
-}
\ No newline at end of file
+}
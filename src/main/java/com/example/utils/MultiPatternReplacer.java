@@ -0,0 +1,147 @@
+package com.example.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Replaces any number of patterns in a single pass over the text with an Aho-Corasick automaton. Where matches
+ * overlap, the leftmost match wins, and of those starting at the same position the longest.
+ */
+public class MultiPatternReplacer {
+    private final List<String> patterns;
+    private final List<String> replacements;
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final List<Integer> failure = new ArrayList<>();
+    private final List<List<Integer>> outputs = new ArrayList<>();
+
+    /**
+     * Constructor
+     * @param replacements - replacement per pattern, empty patterns are ignored
+     */
+    public MultiPatternReplacer(Map<String, String> replacements) {
+        this.patterns = new ArrayList<>();
+        this.replacements = new ArrayList<>();
+        addState();
+        replacements.forEach((pattern, replacement) -> {
+            if (pattern.isEmpty()) return;
+            patterns.add(pattern);
+            this.replacements.add(replacement);
+            addPattern(pattern, patterns.size() - 1);
+        });
+        buildFailureLinks();
+    }
+
+    /**
+     * Check if any pattern occurs in the text
+     * @param text - the text
+     * @return - true if at least one pattern occurs
+     */
+    public boolean matches(String text) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            if (!outputs.get(state).isEmpty()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replace all pattern occurrences
+     * @param text - the text
+     * @return - the text with every occurrence replaced, the same instance if nothing matched
+     */
+    public String replace(String text) {
+        return replace(text, null);
+    }
+
+    /**
+     * Replace all pattern occurrences and collect the patterns that were replaced. A pattern that only occurs inside
+     * a longer, overlapping match is not replaced and not collected.
+     * @param text - the text
+     * @param replaced - receives every replaced pattern, may be null
+     * @return - the text with every occurrence replaced, the same instance if nothing matched
+     */
+    public String replace(String text, Set<String> replaced) {
+        // Best match per start position: the longest pattern starting there
+        int[] bestPattern = null;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            for (int pattern : outputs.get(state)) {
+                if (bestPattern == null) {
+                    bestPattern = new int[text.length()];
+                    Arrays.fill(bestPattern, -1);
+                }
+                int start = i - patterns.get(pattern).length() + 1;
+                if (bestPattern[start] < 0 || patterns.get(bestPattern[start]).length() < patterns.get(pattern).length()) {
+                    bestPattern[start] = pattern;
+                }
+            }
+        }
+        if (bestPattern == null) return text;
+
+        StringBuilder result = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            if (bestPattern[i] >= 0) {
+                result.append(replacements.get(bestPattern[i]));
+                if (replaced != null) replaced.add(patterns.get(bestPattern[i]));
+                i += patterns.get(bestPattern[i]).length();
+            } else {
+                result.append(text.charAt(i++));
+            }
+        }
+        return result.toString();
+    }
+
+    private int addState() {
+        transitions.add(new HashMap<>());
+        failure.add(0);
+        outputs.add(new ArrayList<>());
+        return transitions.size() - 1;
+    }
+
+    private void addPattern(String pattern, int index) {
+        int state = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            Integer target = transitions.get(state).get(pattern.charAt(i));
+            if (target == null) {
+                target = addState();
+                transitions.get(state).put(pattern.charAt(i), target);
+            }
+            state = target;
+        }
+        outputs.get(state).add(index);
+    }
+
+    private void buildFailureLinks() {
+        Queue<Integer> queue = new ArrayDeque<>(transitions.getFirst().values());
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+                int target = transition.getValue();
+                int fallback = failure.get(state);
+                while (fallback != 0 && !transitions.get(fallback).containsKey(transition.getKey())) {
+                    fallback = failure.get(fallback);
+                }
+                Integer link = transitions.get(fallback).get(transition.getKey());
+                failure.set(target, link != null && link != target ? link : 0);
+                outputs.get(target).addAll(outputs.get(failure.get(target)));
+                queue.add(target);
+            }
+        }
+    }
+
+    private int next(int state, char c) {
+        while (state != 0 && !transitions.get(state).containsKey(c)) {
+            state = failure.get(state);
+        }
+        return transitions.get(state).getOrDefault(c, 0);
+    }
+}
@@ -2,16 +2,15 @@ package com.example.utils;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class ProcessHTML {
     private static final Logger logger = Logger.getLogger(ProcessHTML.class.getName());
@@ -23,65 +22,74 @@ public class ProcessHTML {
      * @param htmlFilePath - the path to the HTML file
      * @param txtFilePath - the path to the text file containing the locator
      * @param failedPageFilePath - the path to the output file
+     * @deprecated - the healing pipeline passes parsed pages; use extractFailedPart(Document, String)
      */
+    @Deprecated
     public static void extractFailedPartOfHTML(String htmlFilePath, String txtFilePath, String failedPageFilePath) {
         try {
             String pageSource = readFileContent(htmlFilePath);
             String locator = readFileContent(txtFilePath).trim();
 
             try (FileWriter failedPageWriter = new FileWriter(failedPageFilePath, false)) {
-                processLocator(pageSource, locator, failedPageWriter);
+                failedPageWriter.write(extractFailedPart(Jsoup.parse(pageSource), locator));
             }
-        } catch (Exception e) {
+        } catch (CancellationException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (IOException | IllegalArgumentException | IllegalStateException e) {
             logger.log(Level.INFO, "Failed to capture failed part of HTML", e);
         }
     }
 
     /**
-     * Read file content
-     * @param filePath - the path to the file
-     * @return - the content of the file
-     * @throws Exception - if an I/O error occurs
+     * Extract failed part of an already parsed page based on locator. Elements are ranked by similarity to the
+     * locator and cut down to fit the configured token budget.
+     * @param document - the parsed page source
+     * @param locator - the locator
+     * @return - the cleaned HTML of the most relevant elements, one per line, or an empty string if the page cannot
+     * be processed
+     * @throws CancellationException - if the healing stage was cancelled while extracting
      */
-    private static String readFileContent(String filePath) throws Exception {
-        return new String(Files.readAllBytes(new File(filePath).toPath()));
+    public static String extractFailedPart(Document document, String locator) {
+        try {
+            return ContextExtractor.getInstance().extract(document, locator);
+        } catch (CancellationException e) {
+            // The healing stage timed out or was cancelled, which must not look like an empty snippet
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.log(Level.INFO, "Failed to capture snippet for locator " + locator, e);
+            return "";
+        }
     }
 
     /**
-     * Process locator
-     * @param pageSource - the HTML content
-     * @param locator - the locator
-     * @param failedPageWriter - the writer to write the results
+     * Extract the part of an already parsed page shared by several failed locators
+     * @param document - the parsed page source
+     * @param locators - the locators
+     * @return - the cleaned HTML of the most relevant elements of all locators, one per line, or an empty string if
+     * the page cannot be processed
+     * @throws CancellationException - if the healing stage was cancelled while extracting
      */
-    private static void processLocator(String pageSource, String locator, FileWriter failedPageWriter) {
+    public static String extractFailedPart(Document document, List<String> locators) {
         try {
-            Pattern pattern = Pattern.compile("//(\\w+)");
-            Matcher matcher = pattern.matcher(locator);
-            if (matcher.find()) {
-                String tagName = matcher.group(1);
-                logger.info("Tag name: " + tagName);
-
-                Document doc = Jsoup.parse(pageSource);
-                List<Element> matchingTags = doc.getElementsByTag(tagName);
-                logger.info("Found " + matchingTags.size() + " tags with name " + tagName);
-
-                writeTagsToFile(matchingTags, failedPageWriter);
-            }
-        } catch (Exception e) {
-            logger.log(Level.INFO, "Failed to capture snippet for locator " + locator, e);
+            return ContextExtractor.getInstance().extract(document, locators);
+        } catch (CancellationException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            logger.log(Level.INFO, "Failed to capture snippet for locators " + locators, e);
+            return "";
         }
     }
 
     /**
-     * Write tags to file
-     * @param tags - the list of tags
-     * @param writer - the writer to write the results
-     * @throws Exception - if an I/O error occurs
+     * Read file content
+     * @param filePath - the path to the file
+     * @return - the content of the file
+     * @throws IOException - if an I/O error occurs
      */
-    private static void writeTagsToFile(List<Element> tags, FileWriter writer) throws Exception {
-        for (Element tag : tags) {
-            writer.write(tag.outerHtml() + "\n");
-            logger.info("Tag HTML: " + tag + "\n");
-        }
+    private static String readFileContent(String filePath) throws IOException {
+        return new String(Files.readAllBytes(new File(filePath).toPath()));
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,9 @@
 package com.example.utils;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.StringTokenizer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -12,15 +12,44 @@ public class TokenCounter {
     private static final Logger logger = Logger.getLogger(TokenCounter.class.getName());
 
     /**
-     * Count the number of tokens in a file
+     * Count the number of tokens in a file, streaming it instead of reading it into memory
      * @param file - the file to count the tokens
      * @return - the number of tokens in the file
      * @throws IOException - if an I/O error occurs
      */
     public static int countTokensInFile(File file) throws IOException {
-        String content = new String(Files.readAllBytes(file.toPath()));
-        StringTokenizer tokenizer = new StringTokenizer(content);
-        return tokenizer.countTokens();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
+            return (int) Math.min(Integer.MAX_VALUE, TokenEstimator.getInstance().count(reader));
+        }
+    }
+
+    /**
+     * Count the number of tokens in a string
+     * @param content - the content to count the tokens
+     * @return - the number of tokens in the content
+     */
+    public static int countTokens(String content) {
+        return TokenEstimator.getInstance().count(content);
+    }
+
+    /**
+     * Check if the content fits into a token budget
+     * @param content - the content to check
+     * @param budget - the maximum number of tokens
+     * @return - true if the content has at most budget tokens
+     */
+    public static boolean fitsWithinBudget(String content, int budget) {
+        return TokenEstimator.getInstance().fitsWithin(content, budget);
+    }
+
+    /**
+     * Truncate the content to a token budget
+     * @param content - the content to truncate
+     * @param budget - the maximum number of tokens
+     * @return - the content, cut after at most budget tokens
+     */
+    public static String truncateToBudget(String content, int budget) {
+        return TokenEstimator.getInstance().truncate(content, budget);
     }
 
     /**
@@ -0,0 +1,254 @@
+package com.example.utils;
+
+import com.example.configurations.ConfigManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline token count estimator. No vocab ships with the project, since the tokenizers of the configured models are
+ * not published as offline rank files, so by default tokens are estimated from the UTF-8 length of each
+ * pre-tokenized piece. The estimate tracks billed token counts on HTML far better than whitespace counting, but it
+ * is not exact; budgets built on it should leave some headroom. When a tiktoken style vocab file (one base64 encoded
+ * token and its rank per line) is configured with tokenizer.vocab, either a classpath resource or a file path, pieces
+ * are byte pair encoded with its ranks instead, which is exact only for models using that vocab.
+ */
+public class TokenEstimator {
+    private static final Logger logger = Logger.getLogger(TokenEstimator.class.getName());
+
+    private static final Pattern PIECE_PATTERN = Pattern.compile(
+            "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}{1,3}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+");
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_PENDING = 16 * CHUNK_SIZE;
+    private static final int BYTES_PER_ESTIMATED_TOKEN = 4;
+    private static final int MAX_CACHED_PIECES = 100_000;
+
+    private static final TokenEstimator INSTANCE = new TokenEstimator(loadRanks(ConfigManager.getProperty("tokenizer.vocab", "")));
+
+    private final Map<ByteSequence, Integer> ranks;
+    private final Map<String, Integer> pieceCache = new ConcurrentHashMap<>();
+
+    private record ByteSequence(byte[] bytes, int from, int to) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ByteSequence sequence
+                    && Arrays.equals(bytes, from, to, sequence.bytes, sequence.from, sequence.to);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (int i = from; i < to; i++) hash = 31 * hash + bytes[i];
+            return hash;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param ranks - BPE merge ranks by token bytes, empty to estimate token counts
+     */
+    private TokenEstimator(Map<ByteSequence, Integer> ranks) {
+        this.ranks = ranks;
+    }
+
+    /**
+     * Get the token estimator configured in config.properties
+     * @return - shared TokenEstimator instance
+     */
+    public static TokenEstimator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Count the tokens of a string
+     * @param text - the text
+     * @return - number of tokens
+     */
+    public int count(String text) {
+        int tokens = 0;
+        Matcher matcher = PIECE_PATTERN.matcher(text);
+        while (matcher.find()) {
+            tokens += countPiece(matcher.group());
+        }
+        return tokens;
+    }
+
+    /**
+     * Count the tokens of a character stream without reading it into memory. The stream is consumed in chunks that
+     * are cut before whitespace, so pieces are not split across chunks. A run without whitespace, e.g. an inlined
+     * data URI, is cut once it reaches MAX_PENDING characters to keep memory bounded.
+     * @param reader - the character stream, not closed by this method
+     * @return - number of tokens
+     * @throws IOException - if the stream cannot be read
+     */
+    public long count(Reader reader) throws IOException {
+        long tokens = 0;
+        char[] buffer = new char[CHUNK_SIZE];
+        StringBuilder pending = new StringBuilder();
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            pending.append(buffer, 0, read);
+            int cut = lastPieceBoundary(pending);
+            if (cut == 0 && pending.length() >= MAX_PENDING) {
+                cut = Character.isHighSurrogate(pending.charAt(pending.length() - 1)) ? pending.length() - 1 : pending.length();
+            }
+            if (cut > 0) {
+                tokens += count(pending.substring(0, cut));
+                pending.delete(0, cut);
+            }
+        }
+        return tokens + count(pending.toString());
+    }
+
+    /**
+     * Check if a text fits into a token budget, stopping as soon as the budget is exceeded
+     * @param text - the text
+     * @param budget - maximum number of tokens
+     * @return - true if the text has at most budget tokens
+     */
+    public boolean fitsWithin(String text, int budget) {
+        int tokens = 0;
+        Matcher matcher = PIECE_PATTERN.matcher(text);
+        while (matcher.find()) {
+            tokens += countPiece(matcher.group());
+            if (tokens > budget) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Cut a text to a token budget, at a piece boundary
+     * @param text - the text
+     * @param budget - maximum number of tokens
+     * @return - the longest prefix of the text with at most budget tokens
+     */
+    public String truncate(String text, int budget) {
+        int tokens = 0;
+        Matcher matcher = PIECE_PATTERN.matcher(text);
+        while (matcher.find()) {
+            tokens += countPiece(matcher.group());
+            if (tokens > budget) return text.substring(0, matcher.start());
+        }
+        return text;
+    }
+
+    /**
+     * Check if token counts come from a vocab file or are estimated from the byte length
+     * @return - true if a vocab file is loaded
+     */
+    public boolean hasVocab() {
+        return !ranks.isEmpty();
+    }
+
+    private int countPiece(String piece) {
+        if (ranks.isEmpty()) {
+            return Math.max(1, (utf8Length(piece) + BYTES_PER_ESTIMATED_TOKEN - 1) / BYTES_PER_ESTIMATED_TOKEN);
+        }
+        Integer cached = pieceCache.get(piece);
+        if (cached != null) return cached;
+
+        int tokens = encodedLength(piece.getBytes(StandardCharsets.UTF_8));
+        if (pieceCache.size() >= MAX_CACHED_PIECES) pieceCache.clear();
+        pieceCache.put(piece, tokens);
+        return tokens;
+    }
+
+    /**
+     * Number of tokens of a piece after applying BPE merges in rank order
+     * @param bytes - UTF-8 bytes of the piece
+     * @return - number of tokens
+     */
+    private int encodedLength(byte[] bytes) {
+        if (ranks.containsKey(new ByteSequence(bytes, 0, bytes.length))) return 1;
+
+        // boundaries[i] is the start of the i-th part, the last entry is the end of the piece
+        int[] boundaries = new int[bytes.length + 1];
+        for (int i = 0; i <= bytes.length; i++) boundaries[i] = i;
+        int parts = bytes.length;
+
+        while (parts > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            int bestIndex = -1;
+            for (int i = 0; i < parts - 1; i++) {
+                Integer rank = ranks.get(new ByteSequence(bytes, boundaries[i], boundaries[i + 2]));
+                if (rank != null && rank < bestRank) {
+                    bestRank = rank;
+                    bestIndex = i;
+                }
+            }
+            if (bestIndex < 0) break;
+            System.arraycopy(boundaries, bestIndex + 2, boundaries, bestIndex + 1, parts - bestIndex - 1);
+            parts--;
+        }
+        return parts;
+    }
+
+    private static int lastPieceBoundary(CharSequence text) {
+        for (int i = text.length() - 1; i > 0; i--) {
+            if (Character.isWhitespace(text.charAt(i)) && !Character.isWhitespace(text.charAt(i - 1))) return i;
+        }
+        return 0;
+    }
+
+    private static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) length++;
+            else if (c < 0x800) length += 2;
+            else if (Character.isHighSurrogate(c)) { length += 4; i++; }
+            else length += 3;
+        }
+        return length;
+    }
+
+    /**
+     * Load BPE ranks from a tiktoken style vocab file
+     * @param vocab - classpath resource or file path, blank for none
+     * @return - ranks by token bytes, empty if no vocab is configured or it cannot be read
+     */
+    private static Map<ByteSequence, Integer> loadRanks(String vocab) {
+        Map<ByteSequence, Integer> ranks = new HashMap<>();
+        if (vocab.isBlank()) {
+            logger.log(Level.INFO, "No tokenizer vocab configured, token counts are estimated from the byte length");
+            return ranks;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(openVocab(vocab), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator <= 0) continue;
+                byte[] token = Base64.getDecoder().decode(line.substring(0, separator));
+                ranks.put(new ByteSequence(token, 0, token.length), Integer.parseInt(line.substring(separator + 1).trim()));
+            }
+            logger.log(Level.INFO, "Loaded " + ranks.size() + " tokenizer ranks from " + vocab);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.SEVERE, "Error loading tokenizer vocab " + vocab + ", token counts are estimated", e);
+            ranks.clear();
+        }
+        return ranks;
+    }
+
+    private static InputStream openVocab(String vocab) throws IOException {
+        InputStream resource = TokenEstimator.class.getClassLoader().getResourceAsStream(vocab);
+        if (resource != null) return resource;
+        Path path = Paths.get(vocab);
+        return Files.newInputStream(path);
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The parts of a simple XPath locator that identify an element: the tag of the last step, the attribute values and
+ * the text it is matched on. Only the predicate forms used in locators.loc and by the LLM templates are understood,
+ * e.g. //a[@class='gb_A' and @aria-label='Google apps'] or //h3[contains(text(),'Selenium')].
+ */
+public class XPathLocator {
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("@([\\w:.-]+)\\s*=\\s*(['\"])(.*?)\\2");
+    private static final Pattern CONTAINS_ATTRIBUTE_PATTERN = Pattern.compile("contains\\(\\s*@([\\w:.-]+)\\s*,\\s*(['\"])(.*?)\\2\\s*\\)");
+    private static final Pattern TEXT_PATTERN = Pattern.compile("(?:text\\(\\)|normalize-space\\((?:text\\(\\)|\\.)?\\)|\\.)\\s*=\\s*(['\"])(.*?)\\1");
+    private static final Pattern CONTAINS_TEXT_PATTERN = Pattern.compile("contains\\(\\s*(?:text\\(\\)|normalize-space\\((?:text\\(\\)|\\.)?\\)|\\.)\\s*,\\s*(['\"])(.*?)\\1\\s*\\)");
+
+    private final String tagName;
+    private final Map<String, String> attributes;
+    private final List<String> texts;
+    private final List<String> ancestorTags;
+
+    private XPathLocator(String tagName, Map<String, String> attributes, List<String> texts, List<String> ancestorTags) {
+        this.tagName = tagName;
+        this.attributes = Collections.unmodifiableMap(attributes);
+        this.texts = Collections.unmodifiableList(texts);
+        this.ancestorTags = Collections.unmodifiableList(ancestorTags);
+    }
+
+    /**
+     * Parse an XPath locator
+     * @param xpath - the locator
+     * @return - the identifying parts of the locator, empty parts if it could not be understood
+     */
+    public static XPathLocator parse(String xpath) {
+        List<String> steps = steps(xpath);
+        String lastStep = steps.isEmpty() ? "" : steps.getLast();
+        String tagName = lastStep.isEmpty() ? "*" : lastStep.split("\\[", 2)[0].trim().toLowerCase();
+        if (tagName.isEmpty() || !tagName.matches("[\\w-]+|\\*")) tagName = "*";
+
+        Map<String, String> attributes = new LinkedHashMap<>();
+        Matcher matcher = ATTRIBUTE_PATTERN.matcher(lastStep);
+        while (matcher.find()) attributes.put(matcher.group(1), matcher.group(3));
+        matcher = CONTAINS_ATTRIBUTE_PATTERN.matcher(lastStep);
+        while (matcher.find()) attributes.putIfAbsent(matcher.group(1), matcher.group(3));
+
+        List<String> texts = new ArrayList<>();
+        matcher = TEXT_PATTERN.matcher(lastStep);
+        while (matcher.find()) texts.add(matcher.group(2));
+        matcher = CONTAINS_TEXT_PATTERN.matcher(lastStep);
+        while (matcher.find()) texts.add(matcher.group(2));
+
+        List<String> ancestorTags = new ArrayList<>();
+        for (String step : steps.subList(0, Math.max(0, steps.size() - 1))) {
+            String ancestorTag = step.split("\\[", 2)[0].trim().toLowerCase();
+            if (ancestorTag.matches("[\\w-]+")) ancestorTags.add(ancestorTag);
+        }
+
+        return new XPathLocator(tagName, attributes, texts, ancestorTags);
+    }
+
+    public String getTagName() {
+        return tagName;
+    }
+
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+
+    public List<String> getTexts() {
+        return texts;
+    }
+
+    /**
+     * Get the tags of the location steps before the last one, e.g. [div, ul] for //div[@id='menu']/ul/li
+     * @return - ancestor tags, outermost first
+     */
+    public List<String> getAncestorTags() {
+        return ancestorTags;
+    }
+
+    /**
+     * Check if the locator has any attribute or text predicate
+     * @return - true if the locator is matched on more than its tag
+     */
+    public boolean hasPredicates() {
+        return !attributes.isEmpty() || !texts.isEmpty();
+    }
+
+    /**
+     * Split the XPath into its location steps, ignoring slashes inside predicates and quotes
+     * @param xpath - the locator
+     * @return - the non-empty steps including their predicates, outermost first
+     */
+    private static List<String> steps(String xpath) {
+        List<String> steps = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < xpath.length(); i++) {
+            char c = xpath.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (c == '/' && depth == 0) {
+                addStep(steps, xpath.substring(start, i));
+                start = i + 1;
+            }
+        }
+        addStep(steps, xpath.substring(start));
+        return steps;
+    }
+
+    private static void addStep(List<String> steps, String step) {
+        if (!step.isBlank()) steps.add(step.trim());
+    }
+}
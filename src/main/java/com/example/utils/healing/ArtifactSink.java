@@ -0,0 +1,99 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persists healing artifacts to Healing_Docs in the background. The pipeline keeps working on the in-memory
+ * artifacts; writes are queued on a single writer thread, in order, and can be switched off entirely. Artifacts of
+ * healing runs go to the content addressed ArtifactStore, other files are written as they are.
+ */
+public class ArtifactSink {
+    private static final Logger logger = Logger.getLogger(ArtifactSink.class.getName());
+
+    private static final ArtifactSink INSTANCE = new ArtifactSink(
+            Boolean.parseBoolean(ConfigManager.getProperty("healing.artifacts.persist", "true")), ArtifactStore.getInstance());
+
+    private final boolean enabled;
+    private final ArtifactStore store;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(Thread.ofPlatform().daemon().name("artifact-sink").factory());
+
+    /**
+     * Constructor
+     * @param enabled - whether artifacts are written at all
+     * @param store - store of the artifacts of healing runs
+     */
+    public ArtifactSink(boolean enabled, ArtifactStore store) {
+        this.enabled = enabled;
+        this.store = store;
+    }
+
+    /**
+     * Get the sink configured in config.properties
+     * @return - shared ArtifactSink instance
+     */
+    public static ArtifactSink getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue an artifact for writing
+     * @param filePath - path of the artifact file
+     * @param content - artifact content, nothing is written when null
+     */
+    public void write(String filePath, String content) {
+        if (!enabled || content == null) return;
+        writer.execute(() -> {
+            try {
+                Files.writeString(Paths.get(filePath), content);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error writing healing artifact: " + filePath, e);
+            }
+        });
+    }
+
+    /**
+     * Queue an artifact of a healing run for the content addressed ArtifactStore
+     * @param context - HealingContext of the run
+     * @param kind - kind of the artifact
+     * @param content - artifact content, nothing is stored when null
+     */
+    public void store(HealingContext context, ArtifactStore.Kind kind, String content) {
+        if (!enabled || content == null) return;
+        writer.execute(() -> {
+            try {
+                store.put(context, kind, content);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Error storing healing artifact " + kind + " of " + context.id(), e);
+            }
+        });
+    }
+
+    /**
+     * Wait until all queued artifacts are written
+     * @param timeout - maximum time to wait
+     * @return - true if all artifacts were written in time
+     */
+    public boolean flush(Duration timeout) {
+        try {
+            writer.submit(() -> { }).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.Hashing;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content addressed store of healing artifacts. Every artifact is stored once per distinct content as a gzip
+ * compressed object named by its SHA-256, so identical page sources captured by many failures take the space of one.
+ * An append-only index maps healing runs to the objects of their artifacts. Objects are evicted by age and, oldest
+ * use first, by total size; index entries of evicted objects are dropped with them.
+ */
+public class ArtifactStore {
+    private static final Logger logger = Logger.getLogger(ArtifactStore.class.getName());
+
+    private static final String OBJECT_SUFFIX = ".gz";
+    private static final String LOCK_FILE = "index.lock";
+    /**
+     * A JVM may hold the lock of a file only once, so stores of the same directory take turns within the JVM first
+     */
+    private static final Object INDEX_FILE_LOCK = new Object();
+    private static final int COMPRESSION_BUFFER_SIZE = 64 * 1024;
+
+    private static final ArtifactStore INSTANCE = new ArtifactStore(
+            Paths.get(ConfigManager.getProperty("healing.store.dir", "Healing_Docs/store")),
+            Long.parseLong(ConfigManager.getProperty("healing.store.maxMegabytes", "1024")) * 1024 * 1024,
+            Long.parseLong(ConfigManager.getProperty("healing.store.maxAgeDays", "14")) * 24 * 60 * 60 * 1000);
+
+    private final Path objectsDir;
+    private final Path indexFile;
+    private final Path lockFile;
+    private final long maxBytes;
+    private final long maxAgeMillis;
+    private final List<IndexEntry> index = new ArrayList<>();
+
+    /**
+     * Kinds of healing artifacts
+     */
+    public enum Kind { PAGE_SOURCE, FAILED_LOCATOR, PROCESSED_HTML, LLM_OUTPUT, VALIDATED_LOCATORS }
+
+    /**
+     * An artifact of a healing run
+     * @param healingId - id of the healing run
+     * @param testName - name of the failed test method
+     * @param kind - kind of the artifact
+     * @param hash - SHA-256 of the content, the name of its object
+     * @param size - content length in characters
+     * @param storedAt - store time in epoch milliseconds
+     */
+    public record IndexEntry(String healingId, String testName, Kind kind, String hash, long size, long storedAt) {
+    }
+
+    /**
+     * Constructor
+     * @param storeDir - directory of the objects and the index
+     * @param maxBytes - maximum size of all objects on disk
+     * @param maxAgeMillis - objects not stored or reused for this long are evicted
+     */
+    public ArtifactStore(Path storeDir, long maxBytes, long maxAgeMillis) {
+        this.objectsDir = storeDir.resolve("objects");
+        this.indexFile = storeDir.resolve("index.jsonl");
+        this.lockFile = storeDir.resolve(LOCK_FILE);
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        loadIndex();
+    }
+
+    /**
+     * Get the store configured in config.properties
+     * @return - shared ArtifactStore instance
+     */
+    public static ArtifactStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Store an artifact of a healing run. Content already in the store is not written again, only marked as used.
+     * @param context - HealingContext of the run
+     * @param kind - kind of the artifact
+     * @param content - artifact content
+     * @return - hash of the content
+     * @throws IOException - if the object cannot be written
+     */
+    public String put(HealingContext context, Kind kind, String content) throws IOException {
+        String hash = Hashing.sha256(content);
+        Path object = objectPath(hash);
+        if (Files.exists(object)) {
+            Files.setLastModifiedTime(object, FileTime.fromMillis(System.currentTimeMillis()));
+        } else {
+            writeObject(object, content);
+        }
+        IndexEntry entry = new IndexEntry(context.id(), context.testName(), kind, hash, content.length(), System.currentTimeMillis());
+        synchronized (this) {
+            index.add(entry);
+            withIndexLock(() -> Files.writeString(indexFile, toJson(entry) + System.lineSeparator(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        }
+        return hash;
+    }
+
+    /**
+     * Read the content of an object
+     * @param hash - hash of the content
+     * @return - the content, or null if it is not in the store
+     */
+    public String read(String hash) {
+        Path object = objectPath(hash);
+        if (!Files.exists(object)) return null;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(object), COMPRESSION_BUFFER_SIZE)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error reading healing artifact " + hash, e);
+            return null;
+        }
+    }
+
+    /**
+     * Write the decompressed content of an object to a file, unless the file already exists
+     * @param hash - hash of the content
+     * @param target - the file to write
+     * @return - true if the file exists afterwards, false if the object is not in the store or cannot be read
+     */
+    public boolean copyTo(String hash, Path target) {
+        if (Files.exists(target)) return true;
+        Path object = objectPath(hash);
+        if (!Files.exists(object)) return false;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(object), COMPRESSION_BUFFER_SIZE)) {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), target.getFileName().toString(), ".tmp");
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error copying healing artifact " + hash + " to " + target, e);
+            return false;
+        }
+    }
+
+    /**
+     * Read an artifact of a healing run
+     * @param healingId - id of the healing run
+     * @param kind - kind of the artifact
+     * @return - the content, or null if the run has no such artifact
+     */
+    public String read(String healingId, Kind kind) {
+        return find(healingId).stream()
+                .filter(entry -> entry.kind() == kind)
+                .reduce((first, second) -> second)
+                .map(entry -> read(entry.hash()))
+                .orElse(null);
+    }
+
+    /**
+     * Find the artifacts of a healing run
+     * @param healingId - id of the healing run
+     * @return - index entries of the run, in store order
+     */
+    public synchronized List<IndexEntry> find(String healingId) {
+        return index.stream().filter(entry -> entry.healingId().equals(healingId)).toList();
+    }
+
+    /**
+     * Get the whole index
+     * @return - all index entries, in store order
+     */
+    public synchronized List<IndexEntry> entries() {
+        return List.copyOf(index);
+    }
+
+    /**
+     * Evict objects older than the maximum age, then the least recently used ones until the store fits its maximum
+     * size, and drop the index entries of evicted objects and those older than the maximum age, including the entries
+     * other JVMs sharing the store appended to the index file
+     */
+    public synchronized void evict() {
+        if (!Files.isDirectory(objectsDir)) return;
+        record StoredObject(Path path, String hash, long modified, long size) {
+        }
+        List<StoredObject> objects = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(objectsDir)) {
+            for (Path path : paths.filter(path -> path.toString().endsWith(OBJECT_SUFFIX)).toList()) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                String fileName = path.getFileName().toString();
+                objects.add(new StoredObject(path, fileName.substring(0, fileName.length() - OBJECT_SUFFIX.length()),
+                        attributes.lastModifiedTime().toMillis(), attributes.size()));
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error listing healing artifacts for eviction", e);
+            return;
+        }
+
+        objects.sort(Comparator.comparingLong(StoredObject::modified));
+        long totalBytes = objects.stream().mapToLong(StoredObject::size).sum();
+        long oldest = System.currentTimeMillis() - maxAgeMillis;
+        Set<String> evicted = new HashSet<>();
+        for (StoredObject object : objects) {
+            if (object.modified() >= oldest && totalBytes <= maxBytes) break;
+            try {
+                Files.deleteIfExists(object.path());
+                totalBytes -= object.size();
+                evicted.add(object.hash());
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error evicting healing artifact " + object.path(), e);
+            }
+        }
+        index.removeIf(entry -> evicted.contains(entry.hash()) || entry.storedAt() < oldest);
+        try {
+            // Other JVMs append to the same index, so the file on disk is filtered rather than rewritten from memory
+            withIndexLock(() -> compactIndex(evicted, oldest));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error compacting the healing artifact index", e);
+        }
+        logger.log(Level.INFO, "Evicted " + evicted.size() + " healing artifacts, " + totalBytes / 1024 + " KB kept");
+    }
+
+    /**
+     * Drop the lines of the index file that belong to evicted objects or are older than the maximum age. Must hold the
+     * index lock, since the file is replaced by a rename and appends to the old file would be lost.
+     * @param evicted - hashes of the evicted objects
+     * @param oldest - store time in epoch milliseconds below which entries are dropped
+     * @throws IOException - if the index cannot be read or written
+     */
+    private void compactIndex(Set<String> evicted, long oldest) throws IOException {
+        if (!Files.exists(indexFile)) return;
+        List<String> lines = Files.readAllLines(indexFile);
+        List<String> kept = new ArrayList<>();
+        for (String line : lines) {
+            if (line.isBlank()) continue;
+            try {
+                JSONObject entry = new JSONObject(line);
+                if (evicted.contains(entry.getString("hash")) || entry.optLong("storedAt") < oldest) continue;
+            } catch (JSONException e) {
+                // A line cut short by a crash
+                continue;
+            }
+            kept.add(line);
+        }
+        if (kept.size() == lines.size()) return;
+        Path temp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+        StringBuilder content = new StringBuilder();
+        kept.forEach(line -> content.append(line).append(System.lineSeparator()));
+        Files.writeString(temp, content);
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Run an update of the index file while holding the lock all JVMs sharing the store take for it
+     * @param update - the update
+     * @throws IOException - if the lock cannot be taken or the update fails
+     */
+    private void withIndexLock(IndexUpdate update) throws IOException {
+        Files.createDirectories(lockFile.getParent());
+        synchronized (INDEX_FILE_LOCK) {
+            try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                update.run();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexUpdate {
+        void run() throws IOException;
+    }
+
+    private void writeObject(Path object, String content) throws IOException {
+        Files.createDirectories(object.getParent());
+        Path temp = Files.createTempFile(object.getParent(), object.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             Writer out = new OutputStreamWriter(new GZIPOutputStream(Channels.newOutputStream(channel), COMPRESSION_BUFFER_SIZE), StandardCharsets.UTF_8)) {
+            out.write(content);
+        }
+        try {
+            Files.move(temp, object, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Stored concurrently with the same content
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Get the file of an object
+     * @param hash - hash of the content
+     * @return - path of the gzip compressed object
+     */
+    public Path getObjectPath(String hash) {
+        return objectPath(hash);
+    }
+
+    private Path objectPath(String hash) {
+        return objectsDir.resolve(hash.substring(0, 2)).resolve(hash + OBJECT_SUFFIX);
+    }
+
+    private void loadIndex() {
+        if (!Files.exists(indexFile)) return;
+        try {
+            for (String line : Files.readAllLines(indexFile)) {
+                if (line.isBlank()) continue;
+                try {
+                    JSONObject entry = new JSONObject(line);
+                    index.add(new IndexEntry(entry.getString("healingId"), entry.optString("testName"),
+                            Kind.valueOf(entry.getString("kind")), entry.getString("hash"), entry.optLong("size"), entry.optLong("storedAt")));
+                } catch (JSONException | IllegalArgumentException e) {
+                    // A line cut short by a crash
+                    logger.log(Level.WARNING, "Skipping unreadable healing artifact index entry: " + line);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error reading the healing artifact index", e);
+        }
+    }
+
+    private static JSONObject toJson(IndexEntry entry) {
+        return new JSONObject()
+                .put("healingId", entry.healingId())
+                .put("testName", entry.testName())
+                .put("kind", entry.kind().name())
+                .put("hash", entry.hash())
+                .put("size", entry.size())
+                .put("storedAt", entry.storedAt());
+    }
+}
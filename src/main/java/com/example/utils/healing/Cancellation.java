@@ -0,0 +1,19 @@
+package com.example.utils.healing;
+
+import java.util.concurrent.CancellationException;
+
+public class Cancellation {
+    private Cancellation() {}
+
+    /**
+     * Stop a stage body once its stage timed out or its healing run was cancelled. Cancelling a stage only interrupts
+     * its thread, which CPU bound work such as ranking or validating never notices, so long running stages call this
+     * between units of work.
+     * @throws CancellationException - if the current thread is interrupted
+     */
+    public static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Healing stage interrupted");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.XPathLocator;
+import com.example.utils.metrics.HealingMetrics;
+import com.example.utils.metrics.HealingStageEvent;
+import com.example.utils.metrics.JfrEvents;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Captures the page of a failed test for healing. In script mode the DOM is serialized in the browser by a single
+ * script call: open shadow roots are inlined into their hosts, same-origin frames are appended after their frame
+ * element, script and style contents are left out and serialization stops at a size cap. Inlined content is wrapped
+ * in an element marked with {@link #SHADOW_ROOT_ATTRIBUTE} or {@link #FRAME_ATTRIBUTE}: an XPath on the page cannot
+ * reach it, so locators matching it are rejected during validation. Optionally only the
+ * subtrees around the elements with the failed locator's tag are captured. Source mode keeps getPageSource.
+ */
+public class DomCapture {
+    private static final Logger logger = Logger.getLogger(DomCapture.class.getName());
+
+    /**
+     * Attribute of the element wrapping the inlined content of an open shadow root
+     */
+    public static final String SHADOW_ROOT_ATTRIBUTE = "data-healing-shadow-root";
+
+    /**
+     * Attribute of the element wrapping the inlined body of a same-origin frame, its value is the frame's src
+     */
+    public static final String FRAME_ATTRIBUTE = "data-healing-frame";
+
+    private static final DomCapture INSTANCE = new DomCapture(
+            Mode.valueOf(ConfigManager.getProperty("healing.capture.mode", "script").toUpperCase()),
+            Integer.parseInt(ConfigManager.getProperty("healing.capture.maxChars", "2000000")),
+            Boolean.parseBoolean(ConfigManager.getProperty("healing.capture.subtree", "false")),
+            Integer.parseInt(ConfigManager.getProperty("healing.capture.subtreeDepth", "3")),
+            Integer.parseInt(ConfigManager.getProperty("healing.capture.maxSubtrees", "50")));
+
+    /**
+     * Serializes the page. arguments: maxChars, tag of the subtree roots or null for the whole page, subtree depth,
+     * maximum number of subtrees. Returns {html, truncated}.
+     */
+    private static final String CAPTURE_SCRIPT = """
+            var maxChars = arguments[0], tag = arguments[1], depth = arguments[2], maxSubtrees = arguments[3];
+            var SKIPPED = {script: 1, style: 1, noscript: 1, template: 1};
+            var VOID = {area: 1, base: 1, br: 1, col: 1, embed: 1, hr: 1, img: 1, input: 1, link: 1, meta: 1,
+                        source: 1, track: 1, wbr: 1};
+            var out = [], length = 0, truncated = false;
+            function push(s) { out.push(s); length += s.length; }
+            function text(s) { return s.replace(/&/g, '&amp;').replace(/</g, '&lt;').replace(/>/g, '&gt;'); }
+            function attr(s) { return s.replace(/&/g, '&amp;').replace(/"/g, '&quot;'); }
+            function children(parent) {
+              for (var child = parent.firstChild; child; child = child.nextSibling) serialize(child);
+            }
+            function serialize(node) {
+              if (length > maxChars) { truncated = true; return; }
+              if (node.nodeType === 3) { push(text(node.nodeValue)); return; }
+              if (node.nodeType !== 1) return;
+              var name = node.tagName.toLowerCase();
+              var open = '<' + name;
+              for (var i = 0; i < node.attributes.length; i++) {
+                open += ' ' + node.attributes[i].name + '="' + attr(node.attributes[i].value) + '"';
+              }
+              push(open + '>');
+              if (VOID[name]) return;
+              if (!SKIPPED[name]) {
+                if (node.shadowRoot) {
+                  push('<div data-healing-shadow-root="">');
+                  children(node.shadowRoot);
+                  push('</div>');
+                }
+                children(node);
+              }
+              push('</' + name + '>');
+              if (name === 'iframe' || name === 'frame') {
+                var frameBody = null;
+                try { frameBody = node.contentDocument && node.contentDocument.body; } catch (e) {}
+                if (frameBody) {
+                  push('<div data-healing-frame="' + attr(node.getAttribute('src') || '') + '">');
+                  children(frameBody);
+                  push('</div>');
+                }
+              }
+            }
+            var roots = [];
+            if (tag) {
+              var elements = document.getElementsByTagName(tag);
+              for (var i = 0; i < elements.length && roots.length < maxSubtrees; i++) {
+                var root = elements[i];
+                for (var d = 0; d < depth && root.parentElement && root.parentElement !== document.body; d++) {
+                  root = root.parentElement;
+                }
+                if (roots.some(function (r) { return r.contains(root); })) continue;
+                roots = roots.filter(function (r) { return !root.contains(r); });
+                roots.push(root);
+              }
+            }
+            if (roots.length) {
+              push('<html><head><title>' + text(document.title) + '</title></head><body>');
+              roots.forEach(serialize);
+              push('</body></html>');
+            } else {
+              push('<!DOCTYPE html>');
+              serialize(document.documentElement);
+            }
+            return {html: out.join(''), truncated: truncated};
+            """;
+
+    /**
+     * How the page is captured
+     */
+    public enum Mode { SOURCE, SCRIPT }
+
+    private final Mode mode;
+    private final int maxChars;
+    private final boolean subtree;
+    private final int subtreeDepth;
+    private final int maxSubtrees;
+
+    /**
+     * Constructor
+     * @param mode - SCRIPT to serialize the DOM in the browser, SOURCE to use getPageSource
+     * @param maxChars - size cap of a script capture, serialization stops once it is reached
+     * @param subtree - only capture the subtrees around the elements with the failed locator's tag
+     * @param subtreeDepth - number of ancestors above such an element included in its subtree
+     * @param maxSubtrees - maximum number of subtrees captured
+     */
+    public DomCapture(Mode mode, int maxChars, boolean subtree, int subtreeDepth, int maxSubtrees) {
+        this.mode = mode;
+        this.maxChars = maxChars;
+        this.subtree = subtree;
+        this.subtreeDepth = subtreeDepth;
+        this.maxSubtrees = maxSubtrees;
+    }
+
+    /**
+     * Get the capture configured in config.properties
+     * @return - shared DomCapture instance
+     */
+    public static DomCapture getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Capture the page a locator failed on. Falls back to getPageSource when the page cannot be serialized by script.
+     * @param driver - WebDriver instance
+     * @param failedLocator - the locator that failed
+     * @return - HTML of the page or of the captured subtrees
+     */
+    public String capture(WebDriver driver, String failedLocator) {
+        HealingStageEvent event = JfrEvents.ENABLED ? new HealingStageEvent() : null;
+        if (event != null) {
+            event.begin();
+            event.stage = "capture";
+            event.failedLocator = failedLocator;
+            event.outcome = "ERROR";
+        }
+        long start = System.nanoTime();
+        try {
+            String html = captureHtml(driver, failedLocator);
+            if (event != null) event.outcome = "OK";
+            return html;
+        } finally {
+            HealingMetrics.getInstance().recordLatency("capture", System.nanoTime() - start);
+            if (event != null) event.commit();
+        }
+    }
+
+    private String captureHtml(WebDriver driver, String failedLocator) {
+        if (mode == Mode.SOURCE || !(driver instanceof JavascriptExecutor executor)) {
+            return driver.getPageSource();
+        }
+        String tag = subtree ? XPathLocator.parse(failedLocator).getTagName() : null;
+        if ("*".equals(tag)) tag = null;
+        try {
+            long start = System.nanoTime();
+            Object result = executor.executeScript(CAPTURE_SCRIPT, maxChars, tag, subtreeDepth, maxSubtrees);
+            if (result instanceof Map<?, ?> capture && capture.get("html") instanceof String html) {
+                if (Boolean.TRUE.equals(capture.get("truncated"))) {
+                    logger.log(Level.WARNING, "Page capture truncated at " + maxChars + " characters");
+                }
+                logger.log(Level.INFO, "Captured " + html.length() + " characters of the page in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+                return html;
+            }
+        } catch (WebDriverException e) {
+            logger.log(Level.WARNING, "Scripted page capture failed, falling back to the page source", e);
+        }
+        return driver.getPageSource();
+    }
+}
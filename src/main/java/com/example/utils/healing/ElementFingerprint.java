@@ -0,0 +1,113 @@
+package com.example.utils.healing;
+
+import com.example.utils.ElementSimilarity;
+import org.jsoup.nodes.Element;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact description of an element as it was found on a passing run: what the healer needs to recognize the element
+ * after its locator broke, without keeping the page.
+ * @param tag - lower case tag name
+ * @param attributes - values of the stable attributes the element had, by attribute name
+ * @param textHash - hash of the whitespace-normalized own text, 0 for an element without own text
+ * @param ancestorPath - tags of the nearest ancestors, outermost first, separated by '/'
+ * @param siblingIndex - 1-based position among the siblings with the same tag, as in an XPath index
+ */
+public record ElementFingerprint(String tag, Map<String, String> attributes, int textHash, String ancestorPath, int siblingIndex) {
+
+    /** Attributes that usually survive a redesign, checked in this order */
+    public static final List<String> STABLE_ATTRIBUTES = List.of("id", "data-testid", "data-test", "data-test-id", "data-qa",
+            "data-cy", "name", "aria-label", "placeholder", "title", "alt", "type", "role", "href", "class");
+    /** Number of ancestors kept in the ancestor path */
+    public static final int MAX_ANCESTORS = 8;
+
+    private static final double TAG_WEIGHT = 1.0;
+    private static final double ATTRIBUTE_WEIGHT = 2.0;
+    private static final double TEXT_WEIGHT = 2.0;
+    private static final double PATH_WEIGHT = 1.0;
+    private static final double INDEX_WEIGHT = 0.5;
+
+    /**
+     * Fingerprint an element of a parsed page
+     * @param element - the element
+     * @return - its fingerprint
+     */
+    public static ElementFingerprint of(Element element) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (String name : STABLE_ATTRIBUTES) {
+            if (element.hasAttr(name)) attributes.put(name, element.attr(name));
+        }
+        return new ElementFingerprint(element.normalName(), attributes, textHash(element.ownText()), ancestorPath(element),
+                siblingIndex(element));
+    }
+
+    /**
+     * Hash an own text the way it is stored in a fingerprint
+     * @param text - own text of the element
+     * @return - hash of the whitespace-normalized text, 0 for blank text
+     */
+    public static int textHash(String text) {
+        String normalized = text == null ? "" : text.replaceAll("\\s+", " ").trim();
+        return normalized.isEmpty() ? 0 : normalized.hashCode();
+    }
+
+    /**
+     * Score how closely an element of the current page resembles the fingerprinted element
+     * @param element - the candidate element
+     * @return - similarity between 0 (unrelated) and 1 (same tag, attributes, text and position), 0 for an element of
+     * another tag, which is left to the locator based ranking and the LLM
+     */
+    public double similarity(Element element) {
+        // Most elements of a page differ in tag; this spares them the edit distances of the attribute comparison
+        if (!element.normalName().equals(tag)) return 0.0;
+        double total = TAG_WEIGHT + PATH_WEIGHT + INDEX_WEIGHT;
+        double score = TAG_WEIGHT;
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            total += ATTRIBUTE_WEIGHT;
+            score += ATTRIBUTE_WEIGHT * ElementSimilarity.attributeSimilarity(element, attribute.getKey(), attribute.getValue());
+        }
+        if (textHash != 0) {
+            total += TEXT_WEIGHT;
+            if (textHash(element.ownText()) == textHash) score += TEXT_WEIGHT;
+        }
+        score += PATH_WEIGHT * pathSimilarity(ancestorPath(element));
+        if (siblingIndex(element) == siblingIndex) score += INDEX_WEIGHT;
+        return score / total;
+    }
+
+    /**
+     * Share of the recorded ancestors found at the same distance from the element
+     * @param path - ancestor path of the candidate element
+     * @return - similarity between 0 and 1
+     */
+    private double pathSimilarity(String path) {
+        if (ancestorPath.isEmpty()) return path.isEmpty() ? 1.0 : 0.0;
+        String[] expected = ancestorPath.split("/");
+        String[] actual = path.isEmpty() ? new String[0] : path.split("/");
+        int matched = 0;
+        for (int i = 1; i <= expected.length && i <= actual.length; i++) {
+            if (expected[expected.length - i].equals(actual[actual.length - i])) matched++;
+        }
+        return (double) matched / expected.length;
+    }
+
+    private static String ancestorPath(Element element) {
+        List<String> tags = new ArrayList<>();
+        for (Element parent = element.parent(); parent != null && tags.size() < MAX_ANCESTORS; parent = parent.parent()) {
+            if (!parent.normalName().startsWith("#")) tags.addFirst(parent.normalName());
+        }
+        return String.join("/", tags);
+    }
+
+    private static int siblingIndex(Element element) {
+        int index = 1;
+        for (Element sibling = element.previousElementSibling(); sibling != null; sibling = sibling.previousElementSibling()) {
+            if (sibling.normalName().equals(element.normalName())) index++;
+        }
+        return index;
+    }
+}
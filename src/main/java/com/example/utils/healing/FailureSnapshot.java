@@ -0,0 +1,13 @@
+package com.example.utils.healing;
+
+/**
+ * Everything the healing pipeline needs from a failed test, captured on the TestNG thread while the browser is
+ * still open so that healing can run after the driver has been quit.
+ * @param testName - name of the failed test method
+ * @param exceptionMessage - message of the NoSuchElementException
+ * @param pageUrl - URL of the page at the time of the failure, empty if unknown
+ * @param pageSource - page source at the time of the failure
+ * @param capturedAt - capture time in epoch milliseconds
+ */
+public record FailureSnapshot(String testName, String exceptionMessage, String pageUrl, String pageSource, long capturedAt) {
+}
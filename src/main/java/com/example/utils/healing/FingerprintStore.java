@@ -0,0 +1,344 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Baseline fingerprints of the elements found by LocatorFactory, keyed by locator key. A fingerprint is captured the
+ * first time a key resolves in a run and kept per test thread until the test ends; only passing tests commit theirs.
+ * The store is an append-only log of length-prefixed binary records that is read and scanned once when it is
+ * opened; a fingerprint is only appended when it differs from the stored one, and superseded records are dropped
+ * by compaction at the end of the suite.
+ */
+public class FingerprintStore {
+    private static final Logger logger = Logger.getLogger(FingerprintStore.class.getName());
+
+    private static final byte RECORD_VERSION = 1;
+    private static final int MAX_STRING_CHARS = 512;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    /**
+     * Fingerprints arguments[0] in the browser: the stable attributes named in arguments[1], the whitespace-normalized
+     * own text, the tags of up to arguments[2] ancestors and the position among siblings with the same tag
+     */
+    private static final String FINGERPRINT_SCRIPT = """
+            var e = arguments[0], names = arguments[1], attrs = {};
+            for (var i = 0; i < names.length; i++) {
+              var value = e.getAttribute(names[i]);
+              if (value !== null) attrs[names[i]] = value;
+            }
+            var text = '';
+            for (var c = e.firstChild; c; c = c.nextSibling) if (c.nodeType === 3) text += c.nodeValue;
+            var path = [];
+            for (var p = e.parentElement; p && path.length < arguments[2]; p = p.parentElement) path.unshift(p.tagName.toLowerCase());
+            var index = 1;
+            for (var s = e.previousElementSibling; s; s = s.previousElementSibling) if (s.tagName === e.tagName) index++;
+            return {tag: e.tagName.toLowerCase(), attrs: attrs, text: text, path: path.join('/'), index: index};
+            """;
+
+    private static final FingerprintStore INSTANCE = new FingerprintStore(
+            Boolean.parseBoolean(ConfigManager.getProperty("locators.fingerprint.enabled", "true")),
+            Paths.get(ConfigManager.getProperty("locators.fingerprint.file", "Healing_Docs/fingerprints/fingerprints.bin")));
+
+    private final boolean enabled;
+    private final Path storeFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, String> keysByLocator = new ConcurrentHashMap<>();
+    private final Set<String> capturedThisRun = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Map<String, Entry>> pending = ThreadLocal.withInitial(LinkedHashMap::new);
+    private volatile boolean loaded;
+    private int records;
+
+    /**
+     * A stored fingerprint
+     * @param key - locator key in locators.loc
+     * @param locator - current locator of the key when the fingerprint was taken, the one a failure would name
+     * @param fingerprint - the fingerprint of the element
+     * @param recordedAt - capture time in epoch milliseconds
+     */
+    public record Entry(String key, String locator, ElementFingerprint fingerprint, long recordedAt) {
+    }
+
+    /**
+     * Constructor
+     * @param enabled - whether fingerprints are captured and used at all
+     * @param storeFile - file of the fingerprint log
+     */
+    public FingerprintStore(boolean enabled, Path storeFile) {
+        this.enabled = enabled;
+        this.storeFile = storeFile;
+    }
+
+    /**
+     * Get the store configured in config.properties
+     * @return - shared FingerprintStore instance
+     */
+    public static FingerprintStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Check if fingerprints are captured and used
+     * @return - true if enabled in config.properties
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Fingerprint a found element for the running test, unless its key was already fingerprinted in this run. The
+     * fingerprint is kept until the test ends and only stored if the test passes.
+     * @param driver - WebDriver instance that found the element
+     * @param key - locator key
+     * @param locator - current locator of the key
+     * @param element - the found element
+     */
+    public void capture(WebDriver driver, String key, String locator, WebElement element) {
+        if (!enabled || capturedThisRun.contains(key) || pending.get().containsKey(key)
+                || !(driver instanceof JavascriptExecutor executor)) return;
+        try {
+            Object result = executor.executeScript(FINGERPRINT_SCRIPT, element, ElementFingerprint.STABLE_ATTRIBUTES,
+                    ElementFingerprint.MAX_ANCESTORS);
+            if (!(result instanceof Map<?, ?> values)) return;
+            Map<String, String> attributes = new LinkedHashMap<>();
+            if (values.get("attrs") instanceof Map<?, ?> attrs) {
+                for (String name : ElementFingerprint.STABLE_ATTRIBUTES) {
+                    if (attrs.get(name) instanceof String value) attributes.put(name, truncate(value));
+                }
+            }
+            ElementFingerprint fingerprint = new ElementFingerprint(String.valueOf(values.get("tag")), attributes,
+                    ElementFingerprint.textHash((String) values.get("text")), String.valueOf(values.get("path")),
+                    values.get("index") instanceof Number index ? index.intValue() : 1);
+            pending.get().put(key, new Entry(key, locator, fingerprint, System.currentTimeMillis()));
+        } catch (WebDriverException e) {
+            logger.log(Level.FINE, "Could not fingerprint element of " + key, e);
+        }
+    }
+
+    /**
+     * Store the fingerprints captured by the passing test of this thread. Fingerprints equal to the stored ones are
+     * not written again.
+     */
+    public void commitPending() {
+        Map<String, Entry> captured = pending.get();
+        if (captured.isEmpty()) return;
+        List<Entry> changed = new ArrayList<>();
+        ensureLoaded();
+        for (Entry entry : captured.values()) {
+            capturedThisRun.add(entry.key());
+            Entry stored = entries.get(entry.key());
+            if (stored == null || !stored.fingerprint().equals(entry.fingerprint()) || !stored.locator().equals(entry.locator())) {
+                changed.add(entry);
+            }
+        }
+        captured.clear();
+        if (!changed.isEmpty()) append(changed);
+    }
+
+    /**
+     * Drop the fingerprints captured by the failed or skipped test of this thread
+     */
+    public void discardPending() {
+        pending.get().clear();
+    }
+
+    /**
+     * Get the baseline fingerprint of the element a failed locator used to find
+     * @param failedLocator - the locator that failed
+     * @return - the stored entry of the key the locator belonged to, or null if none was recorded
+     */
+    public Entry findByLocator(String failedLocator) {
+        if (!enabled || failedLocator == null) return null;
+        ensureLoaded();
+        String key = keysByLocator.get(failedLocator);
+        return key == null ? null : entries.get(key);
+    }
+
+    /**
+     * Get the baseline fingerprint of a locator key
+     * @param key - locator key
+     * @return - the stored entry, or null if none was recorded
+     */
+    public Entry find(String key) {
+        if (!enabled) return null;
+        ensureLoaded();
+        return entries.get(key);
+    }
+
+    /**
+     * Rewrite the log without superseded records once they make up more than half of it
+     */
+    public void compact() {
+        if (!enabled || !loaded) return;
+        synchronized (this) {
+            if (records <= 2 * entries.size()) return;
+            try (FileChannel lockChannel = FileChannel.open(lockFile(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // The lock is released when its channel is closed
+                lockChannel.lock();
+                // Pick up records other JVMs appended since the store was opened
+                load();
+                Path temp = Files.createTempFile(storeFile.toAbsolutePath().getParent(), storeFile.getFileName().toString(), ".tmp");
+                try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    for (Entry entry : entries.values()) {
+                        channel.write(encode(entry));
+                    }
+                }
+                Files.move(temp, storeFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                logger.log(Level.INFO, "Compacted element fingerprints from " + records + " to " + entries.size() + " records");
+                records = entries.size();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error compacting element fingerprints", e);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        synchronized (this) {
+            if (loaded) return;
+            load();
+            loaded = true;
+        }
+    }
+
+    /**
+     * Replay the log; later records of a key replace earlier ones. A record cut off by a concurrent append ends the
+     * replay. The log is read onto the heap rather than mapped: a mapping stays open until it is garbage collected, and
+     * a mapped file cannot be replaced by compaction on every platform.
+     */
+    private synchronized void load() {
+        if (!Files.exists(storeFile)) return;
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = readFully(channel);
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) break;
+                ByteBuffer record = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                Entry entry = decode(record);
+                if (entry == null) continue;
+                entries.put(entry.key(), entry);
+                keysByLocator.put(entry.locator(), entry.key());
+                count++;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error reading element fingerprints from " + storeFile, e);
+        }
+        records = count;
+        logger.log(Level.INFO, "Loaded " + entries.size() + " element fingerprints from " + storeFile);
+    }
+
+    private synchronized void append(List<Entry> changed) {
+        try {
+            Files.createDirectories(storeFile.toAbsolutePath().getParent());
+            try (FileChannel lockChannel = FileChannel.open(lockFile(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                lockChannel.lock();
+                try (FileChannel channel = FileChannel.open(storeFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    for (Entry entry : changed) {
+                        channel.write(encode(entry));
+                        entries.put(entry.key(), entry);
+                        keysByLocator.put(entry.locator(), entry.key());
+                        records++;
+                    }
+                }
+            }
+            logger.log(Level.FINE, "Stored " + changed.size() + " element fingerprints");
+        } catch (IOException | BufferOverflowException e) {
+            logger.log(Level.WARNING, "Error storing element fingerprints", e);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+            // read until the end of the log
+        }
+        return buffer.flip();
+    }
+
+    private Path lockFile() {
+        return storeFile.resolveSibling(storeFile.getFileName() + ".lock");
+    }
+
+    private static ByteBuffer encode(Entry entry) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_RECORD_BYTES);
+        buffer.position(Integer.BYTES);
+        buffer.put(RECORD_VERSION);
+        buffer.putLong(entry.recordedAt());
+        putString(buffer, entry.key());
+        putString(buffer, entry.locator());
+        ElementFingerprint fingerprint = entry.fingerprint();
+        putString(buffer, fingerprint.tag());
+        buffer.putInt(fingerprint.textHash());
+        putString(buffer, fingerprint.ancestorPath());
+        buffer.putInt(fingerprint.siblingIndex());
+        buffer.putShort((short) fingerprint.attributes().size());
+        for (Map.Entry<String, String> attribute : fingerprint.attributes().entrySet()) {
+            putString(buffer, attribute.getKey());
+            putString(buffer, attribute.getValue());
+        }
+        buffer.putInt(0, buffer.position() - Integer.BYTES);
+        return buffer.flip();
+    }
+
+    private static Entry decode(ByteBuffer record) {
+        try {
+            if (record.get() != RECORD_VERSION) return null;
+            long recordedAt = record.getLong();
+            String key = getString(record);
+            String locator = getString(record);
+            String tag = getString(record);
+            int textHash = record.getInt();
+            String ancestorPath = getString(record);
+            int siblingIndex = record.getInt();
+            int attributeCount = record.getShort();
+            Map<String, String> attributes = new LinkedHashMap<>();
+            for (int i = 0; i < attributeCount; i++) {
+                attributes.put(getString(record), getString(record));
+            }
+            return new Entry(key, locator, new ElementFingerprint(tag, attributes, textHash, ancestorPath, siblingIndex), recordedAt);
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_STRING_CHARS ? value.substring(0, MAX_STRING_CHARS) : value;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = truncate(value).getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
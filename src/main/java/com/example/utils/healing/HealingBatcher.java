@@ -0,0 +1,129 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects failures that happened on the same page so that they are healed together with one LLM call. Failures are
+ * grouped by the URL and the exact content of their page, so every failure of a batch is validated against the page
+ * it actually failed on; a batch is handed to the HealingEngine once its window has passed or it reached the maximum
+ * batch size. Grouping runs on a single batcher thread, never on the TestNG thread, and only compares strings: the
+ * page is parsed once per batch on the engine worker that heals it.
+ */
+public class HealingBatcher {
+    private static final Logger logger = Logger.getLogger(HealingBatcher.class.getName());
+
+    private static final HealingBatcher INSTANCE = new HealingBatcher(
+            HealingEngine.getInstance(),
+            Duration.ofMillis(Long.parseLong(ConfigManager.getProperty("healing.batch.windowMillis", "2000"))),
+            Integer.parseInt(ConfigManager.getProperty("healing.batch.maxSize", "10")));
+
+    private final HealingEngine engine;
+    private final Duration window;
+    private final int maxSize;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().daemon().name("healing-batcher").factory());
+    private final Map<PageKey, Batch> batches = new LinkedHashMap<>();
+
+    /**
+     * Identity of a captured page. The page source string caches its hash code, so a lookup only compares the full
+     * content when the hashes are equal.
+     * @param url - URL of the page
+     * @param pageSource - page source
+     */
+    private record PageKey(String url, String pageSource) {
+    }
+
+    /**
+     * Failures collected for one page, only accessed on the batcher thread
+     */
+    private static final class Batch {
+        private final Consumer<List<FailureSnapshot>> healer;
+        private final List<FailureSnapshot> snapshots = new ArrayList<>();
+        private ScheduledFuture<?> flushTask;
+
+        private Batch(Consumer<List<FailureSnapshot>> healer) {
+            this.healer = healer;
+        }
+    }
+
+    /**
+     * Constructor
+     * @param engine - HealingEngine running the batches
+     * @param window - how long failures on the same page are collected before the batch is healed
+     * @param maxSize - number of failures after which a batch is healed without waiting for the window
+     */
+    public HealingBatcher(HealingEngine engine, Duration window, int maxSize) {
+        this.engine = engine;
+        this.window = window;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the batcher configured in config.properties
+     * @return - shared HealingBatcher instance
+     */
+    public static HealingBatcher getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add a failure to the batch of its page
+     * @param snapshot - the captured failure
+     * @param healer - the pipeline to run for the batch, which parses the page shared by all its failures once
+     */
+    public void add(FailureSnapshot snapshot, Consumer<List<FailureSnapshot>> healer) {
+        try {
+            scheduler.execute(() -> group(snapshot, healer));
+        } catch (RejectedExecutionException e) {
+            logger.log(Level.SEVERE, "Healing batcher rejected failure of " + snapshot.testName(), e);
+        }
+    }
+
+    /**
+     * Hand all open batches to the HealingEngine without waiting for their windows
+     * @param timeout - maximum time to wait
+     * @return - true if all batches were handed over in time
+     */
+    public boolean flush(Duration timeout) {
+        try {
+            scheduler.submit(() -> List.copyOf(batches.keySet()).forEach(this::flushBatch))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException | ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void group(FailureSnapshot snapshot, Consumer<List<FailureSnapshot>> healer) {
+        PageKey page = new PageKey(snapshot.pageUrl(), snapshot.pageSource());
+        Batch batch = batches.computeIfAbsent(page, key -> new Batch(healer));
+        batch.snapshots.add(snapshot);
+        if (batch.snapshots.size() == 1) {
+            batch.flushTask = scheduler.schedule(() -> flushBatch(page), window.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (batch.snapshots.size() >= maxSize) {
+            flushBatch(page);
+        }
+    }
+
+    private void flushBatch(PageKey page) {
+        Batch batch = batches.remove(page);
+        if (batch == null) return;
+        batch.flushTask.cancel(false);
+        logger.log(Level.INFO, "Healing batch of " + batch.snapshots.size() + " failures on page " + page.url());
+        engine.submitBatch(batch.snapshots, batch.healer);
+    }
+}
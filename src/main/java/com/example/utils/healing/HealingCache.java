@@ -0,0 +1,262 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.Hashing;
+import com.example.utils.metrics.HealingMetrics;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Disk backed cache of healed locators, keyed by the failed locator and a fingerprint of the page it failed on.
+ * Every entry is a small properties file written through a temp file and an atomic rename, so any number of
+ * JVMs can share the same cache directory without locking on the read path.
+ */
+public class HealingCache {
+    private static final Logger logger = Logger.getLogger(HealingCache.class.getName());
+
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final String LOCK_FILE = ".evict.lock";
+    private static final int FINGERPRINT_DEPTH = 6;
+
+    private static final HealingCache INSTANCE = new HealingCache(
+            Boolean.parseBoolean(ConfigManager.getProperty("healing.cache.enabled")),
+            Paths.get(ConfigManager.getProperty("healing.cache.dir", "Healing_Docs/cache")),
+            Integer.parseInt(ConfigManager.getProperty("healing.cache.maxEntries", "500")),
+            Long.parseLong(ConfigManager.getProperty("healing.cache.ttlMinutes", "1440")) * 60_000L,
+            Long.parseLong(ConfigManager.getProperty("healing.cache.evictIntervalSeconds", "60")) * 1000L);
+
+    private final boolean enabled;
+    private final Path cacheDir;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long evictIntervalMillis;
+    private final AtomicLong nextEviction = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param enabled - whether the cache is used at all
+     * @param cacheDir - directory holding the cache entries
+     * @param maxEntries - maximum number of entries kept before the least recently used are evicted
+     * @param ttlMillis - time to live of an entry in milliseconds
+     * @param evictIntervalMillis - minimum time between two evictions started by put
+     */
+    public HealingCache(boolean enabled, Path cacheDir, int maxEntries, long ttlMillis, long evictIntervalMillis) {
+        this.enabled = enabled;
+        this.cacheDir = cacheDir;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.evictIntervalMillis = evictIntervalMillis;
+        HealingMetrics.getInstance().registerGauge("healing_cache_hits", hits::get);
+        HealingMetrics.getInstance().registerGauge("healing_cache_misses", misses::get);
+    }
+
+    /**
+     * Get the cache configured in config.properties
+     * @return - shared HealingCache instance
+     */
+    public static HealingCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Compute a fingerprint of the page layout. Only the tag skeleton of the upper levels of the document and its
+     * title are hashed, so changing text, ids and attribute values do not defeat the cache.
+     * @param document - parsed page source
+     * @return - hex encoded fingerprint
+     */
+    public static String fingerprint(Document document) {
+        StringBuilder skeleton = new StringBuilder(document.title()).append('|');
+        appendSkeleton(document.body(), 0, skeleton);
+        return Hashing.sha256(skeleton.toString());
+    }
+
+    /**
+     * Look up a healed locator
+     * @param failedLocator - the locator that failed
+     * @param fingerprint - fingerprint of the page the locator failed on
+     * @return - the cached replacement locator, or null on a miss
+     */
+    public String lookup(String failedLocator, String fingerprint) {
+        if (!enabled) return null;
+        Path entryPath = entryPath(failedLocator, fingerprint);
+        try {
+            Properties entry = readEntry(entryPath);
+            if (entry == null || isExpired(entry) || !failedLocator.equals(entry.getProperty("failedLocator"))) {
+                misses.incrementAndGet();
+                logStats();
+                return null;
+            }
+            Files.setLastModifiedTime(entryPath, FileTime.fromMillis(System.currentTimeMillis()));
+            hits.incrementAndGet();
+            logStats();
+            return entry.getProperty("replacement");
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error reading healing cache entry: " + entryPath, e);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Store a healed locator
+     * @param failedLocator - the locator that failed
+     * @param fingerprint - fingerprint of the page the locator failed on
+     * @param replacement - the validated replacement locator
+     */
+    public void put(String failedLocator, String fingerprint, String replacement) {
+        if (!enabled || replacement == null) return;
+        Properties entry = new Properties();
+        entry.setProperty("failedLocator", failedLocator);
+        entry.setProperty("fingerprint", fingerprint);
+        entry.setProperty("replacement", replacement);
+        entry.setProperty("createdAt", String.valueOf(System.currentTimeMillis()));
+        try {
+            Files.createDirectories(cacheDir);
+            Path tempFile = Files.createTempFile(cacheDir, "entry", ".tmp");
+            try (OutputStream output = Files.newOutputStream(tempFile)) {
+                entry.store(output, null);
+            }
+            Files.move(tempFile, entryPath(failedLocator, fingerprint), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            logger.log(Level.INFO, "Healed locator cached: {0} -> {1}", new Object[]{failedLocator, replacement});
+            evictIfDue();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error writing healing cache entry for locator: " + failedLocator, e);
+        }
+    }
+
+    /**
+     * Remove a cached entry, e.g. when its replacement no longer validates against the page
+     * @param failedLocator - the locator that failed
+     * @param fingerprint - fingerprint of the page the locator failed on
+     */
+    public void invalidate(String failedLocator, String fingerprint) {
+        try {
+            Files.deleteIfExists(entryPath(failedLocator, fingerprint));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error invalidating healing cache entry for locator: " + failedLocator, e);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Evict at most once per evictIntervalMillis, since eviction lists and reads every entry of the cache directory.
+     * Lookups expire entries on their own, so between two evictions the cache can only exceed maxEntries for a while.
+     */
+    private void evictIfDue() {
+        long now = System.currentTimeMillis();
+        long due = nextEviction.get();
+        if (now < due || !nextEviction.compareAndSet(due, now + evictIntervalMillis)) return;
+        evict();
+    }
+
+    /**
+     * Drop entries older than the TTL and, above maxEntries, the least recently used ones. Only one JVM evicts at a time;
+     * the others skip eviction while the lock is held.
+     */
+    void evict() {
+        try (FileChannel channel = FileChannel.open(cacheDir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            if (lock == null) return;
+
+            List<Path> entries = new ArrayList<>();
+            try (Stream<Path> paths = Files.list(cacheDir)) {
+                paths.filter(path -> path.toString().endsWith(ENTRY_SUFFIX)).forEach(entries::add);
+            }
+
+            // The TTL counts from createdAt like in lookup; the modification time is the last hit and only orders the LRU
+            List<Path> live = new ArrayList<>();
+            for (Path entry : entries) {
+                Properties properties = readEntry(entry);
+                if (properties == null) continue;
+                if (isExpired(properties)) {
+                    Files.deleteIfExists(entry);
+                } else {
+                    live.add(entry);
+                }
+            }
+
+            if (live.size() > maxEntries) {
+                live.sort(Comparator.comparingLong(HealingCache::lastModified));
+                for (Path entry : live.subList(0, live.size() - maxEntries)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            logger.log(Level.FINE, "Skipping healing cache eviction", e);
+        }
+    }
+
+    private Properties readEntry(Path entryPath) throws IOException {
+        if (!Files.exists(entryPath)) return null;
+        Properties entry = new Properties();
+        try (InputStream input = Files.newInputStream(entryPath)) {
+            entry.load(input);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        return entry;
+    }
+
+    private boolean isExpired(Properties entry) {
+        long createdAt;
+        try {
+            createdAt = Long.parseLong(entry.getProperty("createdAt", "0"));
+        } catch (NumberFormatException e) {
+            createdAt = 0L;
+        }
+        return System.currentTimeMillis() - createdAt > ttlMillis;
+    }
+
+    private Path entryPath(String failedLocator, String fingerprint) {
+        return cacheDir.resolve(Hashing.sha256(failedLocator + "\n" + fingerprint) + ENTRY_SUFFIX);
+    }
+
+    private void logStats() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        logger.log(Level.INFO, "Healing cache hits: {0}/{1}", new Object[]{hitCount, total});
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private static void appendSkeleton(Element element, int depth, StringBuilder skeleton) {
+        if (element == null || depth > FINGERPRINT_DEPTH) return;
+        skeleton.append(element.tagName()).append('(');
+        for (Element child : element.children()) {
+            appendSkeleton(child, depth + 1, skeleton);
+        }
+        skeleton.append(')');
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.utils.healing;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * Identity of a single healing run. A context is created once per failure and passed to every stage, so concurrent
+ * failures never share or overwrite each other's artifacts.
+ * @param id - unique id of the healing run, the key of its artifacts in the ArtifactStore
+ * @param testName - name of the failed test method
+ * @param failedLocator - the locator that failed
+ */
+public record HealingContext(String id, String testName, String failedLocator) {
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy_HH-mm-ss-SSS");
+
+    /**
+     * Create the context of a new healing run
+     * @param snapshot - the captured failure
+     * @param failedLocator - the locator extracted from the failure
+     * @return - a new HealingContext with a unique id
+     */
+    public static HealingContext create(FailureSnapshot snapshot, String failedLocator) {
+        String id = LocalDateTime.now().format(TIMESTAMP_FORMAT) + "_" + UUID.randomUUID().toString().substring(0, 8);
+        return new HealingContext(id, snapshot.testName(), failedLocator);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.metrics.HealingMetrics;
+import com.example.utils.metrics.HealingStageEvent;
+import com.example.utils.metrics.JfrEvents;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs healing off the TestNG worker threads. Failure snapshots are accepted into a bounded queue and healed on a
+ * configurable executor (virtual threads by default), each pipeline stage under its own timeout. When the queue is
+ * full the submitting test thread waits up to the offer timeout before the snapshot is dropped.
+ */
+public class HealingEngine {
+    private static final Logger logger = Logger.getLogger(HealingEngine.class.getName());
+
+    private static final HealingEngine INSTANCE = new HealingEngine(
+            ConfigManager.getProperty("healing.executor", "virtual"),
+            Integer.parseInt(ConfigManager.getProperty("healing.executor.parallelism", "4")),
+            Integer.parseInt(ConfigManager.getProperty("healing.queue.capacity", "64")),
+            Duration.ofSeconds(Long.parseLong(ConfigManager.getProperty("healing.queue.offerTimeoutSeconds", "30"))),
+            Duration.ofSeconds(Long.parseLong(ConfigManager.getProperty("healing.stage.timeoutSeconds", "120"))));
+
+    private final ExecutorService executor;
+    private final ExecutorService stageExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore queueSlots;
+    private final Semaphore workerSlots;
+    private final Duration offerTimeout;
+    private final Duration stageTimeout;
+    private final Set<Future<?>> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A pipeline stage without a result
+     */
+    @FunctionalInterface
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    /**
+     * Constructor
+     * @param executorType - "virtual" for a virtual thread per failure, "fixed" for a platform thread pool
+     * @param parallelism - maximum number of failures healed at the same time
+     * @param queueCapacity - maximum number of failures queued or in progress
+     * @param offerTimeout - how long a test thread waits for a free queue slot before the failure is dropped
+     * @param stageTimeout - maximum duration of a single pipeline stage
+     */
+    public HealingEngine(String executorType, int parallelism, int queueCapacity, Duration offerTimeout, Duration stageTimeout) {
+        this.executor = "fixed".equalsIgnoreCase(executorType)
+                ? Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().daemon().name("healing-", 0).factory())
+                : Executors.newVirtualThreadPerTaskExecutor();
+        this.queueSlots = new Semaphore(queueCapacity);
+        this.workerSlots = new Semaphore(parallelism);
+        this.offerTimeout = offerTimeout;
+        this.stageTimeout = stageTimeout;
+        HealingMetrics.getInstance().registerGauge("healing_queue_depth", pending::size);
+    }
+
+    /**
+     * Get the engine configured in config.properties
+     * @return - shared HealingEngine instance
+     */
+    public static HealingEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue a failure for healing
+     * @param snapshot - the captured failure
+     * @param healer - the pipeline to run for the failure
+     * @return - future of the healing run, or null if the queue stayed full and the failure was dropped
+     */
+    public Future<?> submit(FailureSnapshot snapshot, Consumer<FailureSnapshot> healer) {
+        return submit(snapshot.testName(), () -> healer.accept(snapshot));
+    }
+
+    /**
+     * Queue a batch of failures on the same page for healing as one unit
+     * @param snapshots - the captured failures
+     * @param healer - the pipeline to run for the batch
+     * @return - future of the healing run, or null if the queue stayed full and the batch was dropped
+     */
+    public Future<?> submitBatch(List<FailureSnapshot> snapshots, Consumer<List<FailureSnapshot>> healer) {
+        String testNames = String.join(", ", snapshots.stream().map(FailureSnapshot::testName).toList());
+        return submit(testNames, () -> healer.accept(snapshots));
+    }
+
+    private Future<?> submit(String testNames, Runnable healer) {
+        try {
+            if (!queueSlots.tryAcquire(offerTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.log(Level.WARNING, "Healing queue is full, dropping failure of " + testNames);
+                HealingMetrics.getInstance().increment("healing_dropped_total");
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            heal(testNames, healer);
+            return null;
+        });
+        pending.add(task);
+        HealingMetrics.getInstance().recordMax("healing_queue_depth_max", pending.size());
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    pending.remove(task);
+                    queueSlots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(task);
+            queueSlots.release();
+            logger.log(Level.SEVERE, "Healing executor rejected failure of " + testNames, e);
+            return null;
+        }
+        return task;
+    }
+
+    /**
+     * Run a pipeline stage under the stage timeout
+     * @param stageName - name of the stage, used in the timeout message and the stage metrics
+     * @param stage - the stage to run
+     * @throws Exception - if the stage fails, times out or the healing run is cancelled
+     */
+    public void runStage(String stageName, Stage stage) throws Exception {
+        runStage(stageName, null, stage);
+    }
+
+    /**
+     * Run a pipeline stage of a failed locator under the stage timeout
+     * @param stageName - name of the stage, used in the timeout message and the stage metrics
+     * @param failedLocator - the locator being healed, recorded in the HealingStageEvent
+     * @param stage - the stage to run
+     * @throws Exception - if the stage fails, times out or the healing run is cancelled
+     */
+    public void runStage(String stageName, String failedLocator, Stage stage) throws Exception {
+        callStage(stageName, failedLocator, () -> {
+            stage.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a pipeline stage under the stage timeout and return its result
+     * @param stageName - name of the stage, used in the timeout message and the stage metrics
+     * @param stage - the stage to run
+     * @return - result of the stage
+     * @throws Exception - if the stage fails, times out or the healing run is cancelled
+     */
+    public <T> T callStage(String stageName, Callable<T> stage) throws Exception {
+        return callStage(stageName, null, stage);
+    }
+
+    /**
+     * Run a pipeline stage of a failed locator under the stage timeout and return its result
+     * @param stageName - name of the stage, used in the timeout message and the stage metrics
+     * @param failedLocator - the locator being healed, recorded in the HealingStageEvent
+     * @param stage - the stage to run
+     * @return - result of the stage
+     * @throws Exception - if the stage fails, times out or the healing run is cancelled
+     */
+    public <T> T callStage(String stageName, String failedLocator, Callable<T> stage) throws Exception {
+        HealingStageEvent event = JfrEvents.ENABLED ? new HealingStageEvent() : null;
+        if (event != null) {
+            event.begin();
+            event.stage = stageName;
+            event.failedLocator = failedLocator;
+            event.outcome = "ERROR";
+        }
+        long start = System.nanoTime();
+        Future<T> future = stageExecutor.submit(stage);
+        try {
+            T result = future.get(stageTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (event != null) event.outcome = "OK";
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            if (event != null) event.outcome = "TIMEOUT";
+            HealingMetrics.getInstance().increment("healing_stage_errors_total", "stage", stageName);
+            throw new TimeoutException("Healing stage '" + stageName + "' timed out after " + stageTimeout.toSeconds() + "s");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            if (event != null) event.outcome = "CANCELLED";
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (CancellationException e) {
+            if (event != null) event.outcome = "CANCELLED";
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof CancellationException cancelled) {
+                // The stage body stopped on an interrupt, see Cancellation.checkInterrupted
+                if (event != null) event.outcome = "CANCELLED";
+                throw cancelled;
+            }
+            HealingMetrics.getInstance().increment("healing_stage_errors_total", "stage", stageName);
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            HealingMetrics.getInstance().recordLatency(stageName, System.nanoTime() - start);
+            if (event != null) event.commit();
+        }
+    }
+
+    /**
+     * Wait for all queued and running healings to finish
+     * @param timeout - maximum time to wait
+     * @return - true if everything finished in time
+     */
+    public boolean awaitCompletion(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!pending.isEmpty()) {
+            for (Future<?> future : List.copyOf(pending)) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return false;
+                try {
+                    future.get(remaining, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    return false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } catch (CancellationException | ExecutionException e) {
+                    logger.log(Level.FINE, "Healing run ended abnormally", e);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cancel all queued and running healings
+     */
+    public void cancelAll() {
+        for (Future<?> future : List.copyOf(pending)) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Get the number of failures queued or in progress
+     * @return - queue depth
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    private void heal(String testNames, Runnable healer) {
+        try {
+            workerSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(Level.WARNING, "Healing cancelled for " + testNames);
+            return;
+        }
+        try {
+            healer.run();
+        } finally {
+            workerSlots.release();
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.*;
+import com.example.utils.llm.LocatorGenerator;
+import com.example.utils.metrics.HealingMetrics;
+import com.example.utils.reporting.HealingReport;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The healing stages of a single failure. The page source is parsed once and the parsed Document and in-memory
+ * artifacts are handed from stage to stage; Healing_Docs files are only written through the ArtifactSink. Concurrent
+ * failures of the same locator share one healing run, so a failure storm costs a single LLM call and write-back.
+ */
+public class HealingPipeline {
+    private static final Logger logger = Logger.getLogger(HealingPipeline.class.getName());
+
+    private static final boolean JOURNAL_WRITE_BACK = "suite".equalsIgnoreCase(ConfigManager.getProperty("healing.writeBack", "suite"));
+
+    private static final HealingPipeline INSTANCE = new HealingPipeline(
+            HealingEngine.getInstance(), HealingCache.getInstance(), ArtifactSink.getInstance(), HealingReport.getInstance());
+
+    private final HealingEngine engine;
+    private final HealingCache healingCache;
+    private final ArtifactSink artifactSink;
+    private final HealingReport report;
+    private final SingleFlight<HealingResult> inFlight = new SingleFlight<>();
+
+    /**
+     * Constructor
+     * @param engine - HealingEngine running the stages
+     * @param healingCache - cache of previously healed locators
+     * @param artifactSink - sink persisting the artifacts
+     * @param report - run-level report the outcomes are recorded in
+     */
+    public HealingPipeline(HealingEngine engine, HealingCache healingCache, ArtifactSink artifactSink, HealingReport report) {
+        this.engine = engine;
+        this.healingCache = healingCache;
+        this.artifactSink = artifactSink;
+        this.report = report;
+    }
+
+    /**
+     * Get the pipeline configured in config.properties
+     * @return - shared HealingPipeline instance
+     */
+    public static HealingPipeline getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Heal a failed locator
+     * @param snapshot - the captured failure
+     * @return - outcome of the healing run
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    public HealingResult heal(FailureSnapshot snapshot) throws Exception {
+        Document document = engine.callStage("parse", () -> Jsoup.parse(snapshot.pageSource()));
+        return heal(snapshot, document);
+    }
+
+    /**
+     * Heal several locators that failed on the same page, parsing the page once on the calling worker
+     * @param snapshots - the captured failures, all with the same page source
+     * @return - outcome of the healing run of every failure
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    public List<HealingResult> healBatch(List<FailureSnapshot> snapshots) throws Exception {
+        Document document = engine.callStage("parse", () -> Jsoup.parse(snapshots.getFirst().pageSource()));
+        return healBatch(snapshots, document);
+    }
+
+    /**
+     * Heal several locators that failed on the same page with a single LLM call. Failures healed from the cache or
+     * locally are left out of the prompt, and a locator that failed in more than one test is only asked for once.
+     * Every locator is claimed in the same single-flight as {@link #heal(FailureSnapshot)}, so a locator healed
+     * concurrently by another batch or a single failure is awaited instead of being asked for and written back twice.
+     * @param snapshots - the captured failures
+     * @param document - the parsed page shared by all failures
+     * @return - outcome of the healing run of every failure
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    public List<HealingResult> healBatch(List<FailureSnapshot> snapshots, Document document) throws Exception {
+        if (snapshots.size() == 1) {
+            return List.of(heal(snapshots.getFirst(), document));
+        }
+
+        Map<String, List<HealingContext>> failures = new LinkedHashMap<>();
+        for (FailureSnapshot snapshot : snapshots) {
+            HealingContext context = start(snapshot);
+            failures.computeIfAbsent(normalize(context.failedLocator()), key -> new ArrayList<>()).add(context);
+        }
+        // All locators are claimed up front and the claims of other runs are only awaited once the own ones are
+        // completed, so two batches sharing locators never wait on each other
+        Map<String, SingleFlight<HealingResult>.Claim> claims = new LinkedHashMap<>();
+        failures.keySet().forEach(key -> claims.put(key, inFlight.claim(key)));
+        Map<String, HealingContext> owned = new LinkedHashMap<>();
+        claims.forEach((key, claim) -> {
+            if (claim.owner()) owned.put(key, failures.get(key).getFirst());
+        });
+
+        Map<String, HealingResult> healed = new LinkedHashMap<>();
+        Exception failure = null;
+        try {
+            healClaimed(owned, document, healed);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            for (String key : owned.keySet()) {
+                HealingResult result = healed.get(key);
+                if (result != null) {
+                    claims.get(key).complete(result);
+                } else {
+                    claims.get(key).fail(failure != null ? failure : new CancellationException("Batch healing was aborted"));
+                }
+            }
+        }
+
+        List<HealingResult> results = new ArrayList<>();
+        Exception sharedFailure = null;
+        for (Map.Entry<String, List<HealingContext>> entry : failures.entrySet()) {
+            SingleFlight<HealingResult>.Claim claim = claims.get(entry.getKey());
+            HealingResult first;
+            try {
+                first = claim.owner() ? healed.get(entry.getKey()) : claim.await();
+            } catch (Exception e) {
+                // The outcomes of the other locators are still recorded before the failure is rethrown
+                if (sharedFailure == null) sharedFailure = e;
+                continue;
+            }
+            for (HealingContext context : entry.getValue()) {
+                HealingResult result = first.context() == context ? first : share(context, first);
+                record(result);
+                results.add(result);
+            }
+        }
+        if (sharedFailure != null) throw sharedFailure;
+        return results;
+    }
+
+    /**
+     * Heal the claimed locators of a batch from the cache, locally or with one LLM call for all of the rest
+     * @param owned - context of the first failure per claimed locator
+     * @param document - the parsed page shared by all failures
+     * @param healed - receives the outcome per claimed locator
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    private void healClaimed(Map<String, HealingContext> owned, Document document, Map<String, HealingResult> healed) throws Exception {
+        if (owned.isEmpty()) return;
+        String fingerprint = HealingCache.fingerprint(document);
+        LocatorValidator.Page page = new LocatorValidator.Page(document);
+        Map<String, HealingContext> uncached = new LinkedHashMap<>();
+        for (Map.Entry<String, HealingContext> entry : owned.entrySet()) {
+            HealingContext context = entry.getValue();
+            String cachedLocator = engine.callStage("cache", context.failedLocator(), () -> healFromCache(context, fingerprint, page));
+            if (cachedLocator != null) {
+                healed.put(entry.getKey(), new HealingResult(context, null, null, null, cachedLocator, HealingResult.Source.CACHE));
+                continue;
+            }
+            HealingResult local = healLocally(context, fingerprint, page);
+            if (local != null) {
+                healed.put(entry.getKey(), local);
+            } else {
+                uncached.put(entry.getKey(), context);
+            }
+        }
+        if (uncached.isEmpty()) return;
+
+        List<String> locators = uncached.values().stream().map(HealingContext::failedLocator).toList();
+        String processedHtml = engine.callStage("processHtml", String.join(", ", locators), () -> ProcessHTML.extractFailedPart(document, locators));
+        Map<String, String> llmOutputs = locators.size() == 1
+                ? engine.callStage("llm", locators.getFirst(), () -> singleOutput(locators.getFirst(), LocatorGenerator.requestLocators(locators.getFirst(), processedHtml)))
+                : engine.callStage("llm", String.join(", ", locators), () -> LocatorGenerator.requestLocatorsBatch(locators, processedHtml));
+        logger.log(Level.INFO, "Requested locators for " + locators.size() + " failed locators in one LLM call");
+
+        for (Map.Entry<String, HealingContext> entry : uncached.entrySet()) {
+            HealingContext context = entry.getValue();
+            String llmOutput = llmOutputs == null ? null : llmOutputs.get(context.failedLocator());
+            artifactSink.store(context, ArtifactStore.Kind.PROCESSED_HTML, processedHtml);
+            healed.put(entry.getKey(), applyLlmOutput(context, page, fingerprint, processedHtml, llmOutput));
+        }
+    }
+
+    /**
+     * Heal a failed locator on an already parsed page
+     * @param snapshot - the captured failure
+     * @param document - the parsed page source
+     * @return - outcome of the healing run
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    private HealingResult heal(FailureSnapshot snapshot, Document document) throws Exception {
+        HealingContext context = start(snapshot);
+        SingleFlight.Flight<HealingResult> flight = inFlight.run(normalize(context.failedLocator()),
+                () -> healLocator(context, document));
+        if (!flight.shared()) {
+            record(flight.value());
+            return flight.value();
+        }
+        HealingResult shared = flight.value();
+        HealingResult result = share(context, shared);
+        record(result);
+        return result;
+    }
+
+    /**
+     * Take over the outcome of a healing run of the same locator for another failure
+     * @param context - HealingContext of the failure
+     * @param shared - outcome of the run that healed the locator
+     * @return - outcome of the healing run of the failure
+     */
+    private HealingResult share(HealingContext context, HealingResult shared) {
+        logger.log(Level.INFO, "Reused healing [" + shared.context().id() + "] for failed locator: " + context.failedLocator());
+        artifactSink.store(context, ArtifactStore.Kind.PROCESSED_HTML, shared.processedHtml());
+        artifactSink.store(context, ArtifactStore.Kind.LLM_OUTPUT, shared.llmOutput());
+        artifactSink.store(context, ArtifactStore.Kind.VALIDATED_LOCATORS, shared.validatedLocators());
+        return new HealingResult(context, shared.processedHtml(), shared.llmOutput(), shared.validatedLocators(),
+                shared.newLocator(), shared.source());
+    }
+
+    /**
+     * Heal a failed locator from the cache, locally or with the LLM
+     * @param context - HealingContext of the failure
+     * @param document - the parsed page source
+     * @return - outcome of the healing run
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    private HealingResult healLocator(HealingContext context, Document document) throws Exception {
+        String locator = context.failedLocator();
+
+        String fingerprint = HealingCache.fingerprint(document);
+        // One W3C conversion of the page serves the cache check, the local healer and the LLM candidates
+        LocatorValidator.Page page = new LocatorValidator.Page(document);
+        String cachedLocator = engine.callStage("cache", locator, () -> healFromCache(context, fingerprint, page));
+        if (cachedLocator != null) {
+            return new HealingResult(context, null, null, null, cachedLocator, HealingResult.Source.CACHE);
+        }
+        HealingResult local = healLocally(context, fingerprint, page);
+        if (local != null) {
+            return local;
+        }
+
+        String processedHtml = engine.callStage("processHtml", locator, () -> ProcessHTML.extractFailedPart(document, locator));
+        artifactSink.store(context, ArtifactStore.Kind.PROCESSED_HTML, processedHtml);
+
+        // Candidates are validated as they stream in and generation stops at the first unique match
+        String llmOutput = engine.callStage("llm", locator, () -> LocatorGenerator.requestLocators(locator, processedHtml,
+                candidate -> page.validate(candidate.locator()).status() == LocatorValidator.Status.FOUND));
+        return applyLlmOutput(context, page, fingerprint, processedHtml, llmOutput);
+    }
+
+    /**
+     * Create the context of a failure and persist the failed locator and page source
+     * @param snapshot - the captured failure
+     * @return - the HealingContext of the failure
+     */
+    private HealingContext start(FailureSnapshot snapshot) {
+        long extractStart = System.nanoTime();
+        String locator = ExtractFailedLoc.extractLocator(snapshot.exceptionMessage());
+        HealingMetrics.getInstance().recordLatency("extractLocator", System.nanoTime() - extractStart);
+        HealingContext context = HealingContext.create(snapshot, locator);
+        artifactSink.store(context, ArtifactStore.Kind.FAILED_LOCATOR, locator);
+        artifactSink.store(context, ArtifactStore.Kind.PAGE_SOURCE, snapshot.pageSource());
+        logger.log(Level.SEVERE, "Test " + context.testName() + " failed [" + context.id() + "]. Exception: " + locator);
+        logger.log(Level.SEVERE, "Page source captured.");
+        return context;
+    }
+
+    /**
+     * Validate the LLM output, apply the first valid locator and render the healing report
+     * @param context - HealingContext of the failure
+     * @param page - the failed page, with the candidates validated while the LLM output was streamed
+     * @param fingerprint - fingerprint of the failed page
+     * @param processedHtml - page part sent to the LLM
+     * @param llmOutput - parsed LLM output, null if the LLM call failed
+     * @return - outcome of the healing run
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    private HealingResult applyLlmOutput(HealingContext context, LocatorValidator.Page page, String fingerprint, String processedHtml, String llmOutput) throws Exception {
+        String locator = context.failedLocator();
+        if (llmOutput == null) {
+            logger.log(Level.WARNING, "No LLM output for failed locator: " + locator);
+            return new HealingResult(context, processedHtml, null, null, null, HealingResult.Source.LLM);
+        }
+        artifactSink.store(context, ArtifactStore.Kind.LLM_OUTPUT, llmOutput);
+
+        String validatedLocators = engine.callStage("validate", locator, () -> LocatorValidator.validateLocators(llmOutput, page));
+        artifactSink.store(context, ArtifactStore.Kind.VALIDATED_LOCATORS, validatedLocators);
+
+        String newLocator = LocatorUpdater.findFirstFoundLocator(validatedLocators);
+        if (newLocator != null) {
+            writeBack(context, locator, newLocator);
+            healingCache.put(locator, fingerprint, newLocator);
+        } else {
+            logger.log(Level.WARNING, "No valid locator found in the validated locators.");
+        }
+
+        return new HealingResult(context, processedHtml, llmOutput, validatedLocators, newLocator, HealingResult.Source.LLM);
+    }
+
+    /**
+     * Heal a failed locator with the local heuristic healer, without calling the LLM
+     * @param context - HealingContext of the failure
+     * @param fingerprint - fingerprint of the failed page
+     * @param page - the failed page, shared with the validation of the local output
+     * @return - outcome of the healing run, or null if the local healer was not confident or found no valid locator
+     * @throws Exception - if a stage fails, times out or the run is cancelled
+     */
+    private HealingResult healLocally(HealingContext context, String fingerprint, LocatorValidator.Page page) throws Exception {
+        String locator = context.failedLocator();
+        String localOutput = engine.callStage("local", locator, () -> HeuristicHealer.getInstance().heal(page, locator));
+        if (localOutput == null) {
+            return null;
+        }
+        String validatedLocators = engine.callStage("validate", locator, () -> LocatorValidator.validateLocators(localOutput, page));
+        String newLocator = LocatorUpdater.findFirstFoundLocator(validatedLocators);
+        if (newLocator == null) {
+            return null;
+        }
+        artifactSink.store(context, ArtifactStore.Kind.LLM_OUTPUT, localOutput);
+        artifactSink.store(context, ArtifactStore.Kind.VALIDATED_LOCATORS, validatedLocators);
+        writeBack(context, locator, newLocator);
+        healingCache.put(locator, fingerprint, newLocator);
+        return new HealingResult(context, null, localOutput, validatedLocators, newLocator, HealingResult.Source.LOCAL);
+    }
+
+    /**
+     * Normalize a failed locator for single-flight deduplication, so that quoting and whitespace differences of the
+     * same locator share one healing run
+     * @param locator - the failed locator
+     * @return - normalized locator
+     */
+    static String normalize(String locator) {
+        return locator.trim().replace('"', '\'').replaceAll("\\s+", " ").replaceAll("\\s*([\\[\\]=()/@,])\\s*", "$1");
+    }
+
+    /**
+     * Apply a healed locator to the rest of the run and write it back to the locator files, or journal it for the
+     * write-back at the end of the suite
+     * @param context - HealingContext of the failure
+     * @param locator - the failed locator
+     * @param newLocator - the locator that replaces it
+     * @throws Exception - if the immediate update fails or times out
+     */
+    private void writeBack(HealingContext context, String locator, String newLocator) throws Exception {
+        ConfigManager.putHealedLocator(locator, newLocator);
+        if (JOURNAL_WRITE_BACK) {
+            LocatorJournal.getInstance().record(locator, newLocator, context.id());
+        } else {
+            engine.runStage("update", locator, () -> LocatorUpdater.updateLocator(locator, newLocator));
+        }
+    }
+
+    /**
+     * Record the outcome of a healing run in the report and the healing metrics
+     * @param result - outcome of the healing run
+     */
+    private void record(HealingResult result) {
+        report.record(result);
+        HealingMetrics.getInstance().increment(HealingMetrics.RESULTS, "source", result.isHealed() ? result.source().name() : "NONE");
+    }
+
+    private static Map<String, String> singleOutput(String locator, String llmOutput) {
+        return llmOutput == null ? null : Map.of(locator, llmOutput);
+    }
+
+    /**
+     * Heal the failed locator from the healing cache, without calling the LLM
+     * @param context - HealingContext of the failure
+     * @param fingerprint - Fingerprint of the failed page
+     * @param page - the failed page, shared with the local and LLM stages
+     * @return - the cached locator if it was found, matches exactly one element and was applied, null otherwise
+     * @throws Exception - if the locator could not be updated
+     */
+    private String healFromCache(HealingContext context, String fingerprint, LocatorValidator.Page page) throws Exception {
+        String locator = context.failedLocator();
+        String cachedLocator = healingCache.lookup(locator, fingerprint);
+        if (cachedLocator == null) {
+            return null;
+        }
+        LocatorValidator.Validation validation = page.validate(cachedLocator);
+        if (validation.status() == LocatorValidator.Status.INVALID) {
+            logger.log(Level.WARNING, "Cached locator could not be evaluated: " + cachedLocator);
+            healingCache.invalidate(locator, fingerprint);
+            return null;
+        }
+        if (validation.status() != LocatorValidator.Status.FOUND) {
+            // A cached locator is only trusted if it still identifies exactly one element, like any LLM candidate
+            logger.log(Level.WARNING, "Cached locator no longer matches a unique element (" + validation.matchCount()
+                    + " matches): " + cachedLocator);
+            healingCache.invalidate(locator, fingerprint);
+            return null;
+        }
+        logger.log(Level.INFO, "Healed from cache: " + locator + " -> " + cachedLocator);
+        writeBack(context, locator, cachedLocator);
+        return cachedLocator;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.utils.healing;
+
+/**
+ * In-memory outcome of a healing run
+ * @param context - HealingContext of the run
+ * @param processedHtml - page part sent to the LLM, null when not healed by the LLM
+ * @param llmOutput - parsed LLM or local healer output, null when healed from cache or the LLM call failed
+ * @param validatedLocators - validation result of the LLM output
+ * @param newLocator - locator that replaced the failed one, null when healing failed
+ * @param source - where the new locator came from
+ */
+public record HealingResult(HealingContext context, String processedHtml, String llmOutput, String validatedLocators,
+                            String newLocator, Source source) {
+
+    /**
+     * Where the locators of a healing run came from
+     */
+    public enum Source {
+        CACHE, LOCAL, LLM
+    }
+
+    /**
+     * Check if the failed locator was replaced
+     * @return - true if a new locator was found
+     */
+    public boolean isHealed() {
+        return newLocator != null;
+    }
+
+    /**
+     * Check if the new locator came from the healing cache
+     * @return - true if healed from cache
+     */
+    public boolean fromCache() {
+        return source == Source.CACHE;
+    }
+}
@@ -0,0 +1,301 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.LocatorIndex;
+import com.example.utils.LocatorUpdater;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only journal of healed locators. Heals are only recorded while the suite runs; at the end of the suite the
+ * journal is committed once as a single batched, atomic write-back of all locator files. Entries of a run that
+ * ended before committing, and entries whose change could not be written, are read back on start and committed
+ * with the next suite.
+ */
+public class LocatorJournal {
+    private static final Logger logger = Logger.getLogger(LocatorJournal.class.getName());
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy_HH-mm-ss-SSS");
+
+    private static final LocatorJournal INSTANCE = new LocatorJournal(
+            Paths.get(ConfigManager.getProperty("healing.journal.dir", "Healing_Docs/journal")),
+            Boolean.parseBoolean(ConfigManager.getProperty("healing.writeBack.dryRun", "false")));
+
+    private final Path journalDir;
+    private final Path journalFile;
+    private final boolean dryRun;
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * A recorded heal
+     * @param failedLocator - the locator that failed
+     * @param newLocator - the locator that replaces it
+     * @param healingId - id of the healing run
+     * @param recordedAt - record time in epoch milliseconds
+     */
+    public record Entry(String failedLocator, String newLocator, String healingId, long recordedAt) {
+    }
+
+    /**
+     * Outcome of a commit
+     * @param replacements - applied new locator per failed locator
+     * @param conflicts - failed locators healed with different replacements, not applied
+     * @param changedFiles - files rewritten, or that would be rewritten in dry-run mode
+     */
+    public record CommitResult(Map<String, String> replacements, Map<String, Set<String>> conflicts, List<Path> changedFiles) {
+    }
+
+    /**
+     * Constructor
+     * @param journalDir - directory of the journal, its commit archive and the dry-run diffs
+     * @param dryRun - only write a diff of the changes instead of the locator files
+     */
+    public LocatorJournal(Path journalDir, boolean dryRun) {
+        this.journalDir = journalDir;
+        this.journalFile = journalDir.resolve("locator_journal.jsonl");
+        this.dryRun = dryRun;
+        load();
+    }
+
+    /**
+     * Get the journal configured in config.properties
+     * @return - shared LocatorJournal instance
+     */
+    public static LocatorJournal getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record a heal
+     * @param failedLocator - the locator that failed
+     * @param newLocator - the locator that replaces it
+     * @param healingId - id of the healing run
+     */
+    public synchronized void record(String failedLocator, String newLocator, String healingId) {
+        Entry entry = new Entry(failedLocator, newLocator, healingId, System.currentTimeMillis());
+        entries.add(entry);
+        JSONObject line = toJson(entry);
+        try {
+            Files.createDirectories(journalDir);
+            Files.writeString(journalFile, line + System.lineSeparator(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error appending to locator journal, the heal is kept in memory only", e);
+        }
+        logger.log(Level.INFO, "Journaled locator update: " + failedLocator + " -> " + newLocator);
+    }
+
+    /**
+     * Get the recorded, not yet committed heals
+     * @return - the entries, in record order
+     */
+    public synchronized List<Entry> getEntries() {
+        return List.copyOf(entries);
+    }
+
+    /**
+     * Write all recorded heals back to the locator files at once. Failed locators healed with different
+     * replacements are conflicts and are left for manual review. Heals of a locator that was itself healed in the
+     * same run (L -> X, then X -> Y) are collapsed, so L is written as Y. Only the heals whose change was actually
+     * written are archived; heals found in no file, skipped because the file changed since planning, or failed to
+     * write stay in the journal for the next commit.
+     * @return - outcome of the commit
+     */
+    public synchronized CommitResult commit() {
+        Map<String, String> heals = new LinkedHashMap<>();
+        Map<String, Set<String>> conflicts = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            if (entry.failedLocator().equals(entry.newLocator())) continue;
+            Set<String> conflict = conflicts.get(entry.failedLocator());
+            if (conflict != null) {
+                conflict.add(entry.newLocator());
+                continue;
+            }
+            String previous = heals.putIfAbsent(entry.failedLocator(), entry.newLocator());
+            if (previous != null && !previous.equals(entry.newLocator())) {
+                heals.remove(entry.failedLocator());
+                conflicts.put(entry.failedLocator(), new LinkedHashSet<>(List.of(previous, entry.newLocator())));
+            }
+        }
+        Map<String, String> replacements = collapseChains(heals, conflicts);
+        conflicts.forEach((failedLocator, candidates) -> logger.log(Level.SEVERE,
+                "Conflicting heals for " + failedLocator + ", not updated: " + candidates));
+        if (replacements.isEmpty()) {
+            logger.log(Level.INFO, "No locator updates to commit");
+            archive(Set.of());
+            return new CommitResult(replacements, conflicts, List.of());
+        }
+
+        try {
+            List<LocatorIndex.FileChange> changes = LocatorUpdater.planLocatorUpdates(replacements);
+            List<Path> changedFiles;
+            if (dryRun) {
+                changedFiles = changes.stream().map(LocatorIndex.FileChange::path).toList();
+                Path diffFile = journalDir.resolve("locator_changes_" + LocalDateTime.now().format(TIMESTAMP_FORMAT) + ".diff");
+                Files.writeString(diffFile, diff(changes));
+                logger.log(Level.INFO, "Dry run: " + replacements.size() + " locator updates in " + changedFiles.size()
+                        + " files written to " + diffFile);
+                return new CommitResult(replacements, conflicts, changedFiles);
+            }
+            changedFiles = LocatorUpdater.applyLocatorUpdates(changes);
+            Set<String> written = new HashSet<>();
+            for (LocatorIndex.FileChange change : changes) {
+                if (changedFiles.contains(change.path())) written.addAll(change.replaced());
+            }
+            Set<String> committedLocators = chainMembers(written, heals);
+            Map<String, String> committed = new LinkedHashMap<>(replacements);
+            committed.keySet().retainAll(committedLocators);
+            for (String failedLocator : replacements.keySet()) {
+                if (!committedLocators.contains(failedLocator)) {
+                    logger.log(Level.WARNING, "Locator update not written, kept in the journal: " + failedLocator
+                            + " -> " + replacements.get(failedLocator));
+                }
+            }
+            logger.log(Level.INFO, "Committed " + committed.size() + " of " + replacements.size() + " locator updates to "
+                    + changedFiles.size() + " files");
+            archive(committedLocators);
+            return new CommitResult(committed, conflicts, changedFiles);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error committing the locator journal, it is kept for the next run", e);
+            return new CommitResult(Map.of(), conflicts, List.of());
+        }
+    }
+
+    /**
+     * Resolve every failed locator to the end of its chain of heals, the way ConfigManager.getLocator follows them.
+     * Chains that loop are moved to the conflicts.
+     * @param heals - new locator per failed locator, without conflicts
+     * @param conflicts - conflicting heals, extended with looping chains
+     * @return - final locator per failed locator
+     */
+    static Map<String, String> collapseChains(Map<String, String> heals, Map<String, Set<String>> conflicts) {
+        Map<String, String> replacements = new LinkedHashMap<>();
+        for (String failedLocator : heals.keySet()) {
+            Set<String> chain = new LinkedHashSet<>(List.of(failedLocator));
+            String locator = heals.get(failedLocator);
+            while (heals.containsKey(locator) && chain.add(locator)) {
+                locator = heals.get(locator);
+            }
+            if (chain.contains(locator)) {
+                conflicts.put(failedLocator, chain);
+            } else {
+                replacements.put(failedLocator, locator);
+            }
+        }
+        return replacements;
+    }
+
+    /**
+     * Get the failed locators whose heal is covered by the written ones: a written locator and every locator of the
+     * chain it was collapsed through
+     * @param written - failed locators replaced in a written file
+     * @param heals - new locator per failed locator
+     * @return - failed locators of the committed heals
+     */
+    private static Set<String> chainMembers(Set<String> written, Map<String, String> heals) {
+        Set<String> members = new HashSet<>();
+        for (String locator : written) {
+            while (locator != null && members.add(locator)) {
+                locator = heals.get(locator);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Render planned changes as a line diff
+     * @param changes - the planned changes
+     * @return - the changed lines of every file, prefixed with - and +
+     */
+    public static String diff(List<LocatorIndex.FileChange> changes) {
+        StringBuilder diff = new StringBuilder();
+        for (LocatorIndex.FileChange change : changes) {
+            diff.append("--- ").append(change.path()).append('\n').append("+++ ").append(change.path()).append('\n');
+            List<String> before = change.before().lines().toList();
+            List<String> after = change.after().lines().toList();
+            // Locator replacements never add or remove lines, so lines can be compared by index
+            for (int i = 0; i < Math.min(before.size(), after.size()); i++) {
+                if (!before.get(i).equals(after.get(i))) {
+                    diff.append("@@ line ").append(i + 1).append(" @@\n")
+                            .append('-').append(before.get(i)).append('\n')
+                            .append('+').append(after.get(i)).append('\n');
+                }
+            }
+        }
+        return diff.toString();
+    }
+
+    /**
+     * Move the committed heals, and heals that change nothing, to the archive and keep the rest in the journal
+     * @param committed - failed locators of the heals that were written
+     */
+    private void archive(Set<String> committed) {
+        if (entries.isEmpty()) return;
+        List<Entry> archived = new ArrayList<>();
+        List<Entry> kept = new ArrayList<>();
+        for (Entry entry : entries) {
+            boolean done = committed.contains(entry.failedLocator()) || entry.failedLocator().equals(entry.newLocator());
+            (done ? archived : kept).add(entry);
+        }
+        try {
+            Files.createDirectories(journalDir);
+            if (!archived.isEmpty()) {
+                Files.writeString(journalDir.resolve("committed_" + LocalDateTime.now().format(TIMESTAMP_FORMAT) + ".jsonl"), toLines(archived));
+            }
+            Path temp = Files.createTempFile(journalDir, journalFile.getFileName().toString(), ".tmp");
+            Files.writeString(temp, toLines(kept));
+            Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            entries.clear();
+            entries.addAll(kept);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error archiving the locator journal", e);
+        }
+        if (!kept.isEmpty()) {
+            logger.log(Level.INFO, kept.size() + " uncommitted locator updates kept in " + journalFile);
+        }
+    }
+
+    private static String toLines(List<Entry> entries) {
+        StringBuilder lines = new StringBuilder();
+        entries.forEach(entry -> lines.append(toJson(entry)).append(System.lineSeparator()));
+        return lines.toString();
+    }
+
+    private static JSONObject toJson(Entry entry) {
+        return new JSONObject()
+                .put("failedLocator", entry.failedLocator())
+                .put("newLocator", entry.newLocator())
+                .put("healingId", entry.healingId())
+                .put("recordedAt", entry.recordedAt());
+    }
+
+    /**
+     * Read back the heals of a run that ended before committing
+     */
+    private void load() {
+        if (!Files.exists(journalFile)) return;
+        try {
+            for (String line : Files.readAllLines(journalFile)) {
+                if (line.isBlank()) continue;
+                try {
+                    JSONObject entry = new JSONObject(line);
+                    entries.add(new Entry(entry.getString("failedLocator"), entry.getString("newLocator"),
+                            entry.optString("healingId"), entry.optLong("recordedAt")));
+                } catch (JSONException e) {
+                    // A line cut short by a crash
+                    logger.log(Level.WARNING, "Skipping unreadable locator journal entry: " + line);
+                }
+            }
+            logger.log(Level.INFO, "Recovered " + entries.size() + " uncommitted locator updates from " + journalFile);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error reading the locator journal", e);
+        }
+    }
+}
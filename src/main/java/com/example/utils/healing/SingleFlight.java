@@ -0,0 +1,132 @@
+package com.example.utils.healing;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs at most one call per key at a time. The first caller of a key runs the call, callers arriving while it is in
+ * flight wait for the same result instead of running it again. Once the call has finished the key is released, so
+ * later callers run it anew.
+ * @param <T> - result type of the call
+ */
+public class SingleFlight<T> {
+    private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Result of a call
+     * @param value - value returned by the call
+     * @param shared - true if the value was computed by another, concurrent caller
+     * @param <T> - result type of the call
+     */
+    public record Flight<T>(T value, boolean shared) {
+    }
+
+    /**
+     * Run the call, or wait for the call already in flight for the same key
+     * @param key - key of the call
+     * @param call - the call
+     * @return - the result of the call
+     * @throws Exception - the exception of the call, also for waiting callers
+     */
+    public Flight<T> run(String key, Callable<T> call) throws Exception {
+        Claim claim = claim(key);
+        if (!claim.owner()) {
+            return new Flight<>(claim.await(), true);
+        }
+        try {
+            T value = call.call();
+            claim.complete(value);
+            return new Flight<>(value, false);
+        } catch (Throwable t) {
+            claim.fail(t);
+            throw t;
+        }
+    }
+
+    /**
+     * Claim a key without blocking, for callers that run the calls of several keys together. The owner of a claim
+     * must complete or fail it; a caller holding claims must complete all of them before awaiting a claim it does
+     * not own, so that two such callers never wait on each other.
+     * @param key - key of the call
+     * @return - an owned claim if no call was in flight for the key, otherwise a claim on the call in flight
+     */
+    public Claim claim(String key) {
+        CompletableFuture<T> own = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, own);
+        return existing == null ? new Claim(key, own, true) : new Claim(key, existing, false);
+    }
+
+    /**
+     * A claimed key, either owned by the caller or held by a call in flight
+     */
+    public final class Claim {
+        private final String key;
+        private final CompletableFuture<T> future;
+        private final boolean owner;
+
+        private Claim(String key, CompletableFuture<T> future, boolean owner) {
+            this.key = key;
+            this.future = future;
+            this.owner = owner;
+        }
+
+        /**
+         * Check if the caller runs the call of the key
+         * @return - true if the claim is owned
+         */
+        public boolean owner() {
+            return owner;
+        }
+
+        /**
+         * Hand the result of an owned claim to the waiting callers and release the key
+         * @param value - value of the call
+         */
+        public void complete(T value) {
+            if (!owner) return;
+            future.complete(value);
+            inFlight.remove(key, future);
+        }
+
+        /**
+         * Hand the exception of an owned claim to the waiting callers and release the key
+         * @param t - exception of the call
+         */
+        public void fail(Throwable t) {
+            if (!owner) return;
+            future.completeExceptionally(t);
+            inFlight.remove(key, future);
+        }
+
+        /**
+         * Wait for the result of the call
+         * @return - value of the call
+         * @throws Exception - the exception of the call
+         */
+        public T await() throws Exception {
+            return SingleFlight.await(future);
+        }
+    }
+
+    /**
+     * Get the number of keys in flight
+     * @return - number of running calls
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } catch (CancellationException e) {
+            throw new InterruptedException("Shared healing run was cancelled");
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.utils.llm;
+
+import com.example.configurations.ConfigManager;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.model.ContentBlock;
+import software.amazon.awssdk.services.bedrockruntime.model.ConversationRole;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.ConverseStreamResponseHandler;
+import software.amazon.awssdk.services.bedrockruntime.model.Message;
+import software.amazon.awssdk.services.bedrockruntime.model.TokenUsage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+/**
+ * Bedrock Converse provider on one shared BedrockRuntimeAsyncClient, whose connection pool, TLS sessions and
+ * resolved credentials are reused by every request. Streamed responses use ConverseStream; the streamed text is
+ * handed to the listener on virtual threads instead of the SDK's event loop.
+ */
+public class BedrockProvider implements LlmProvider {
+    private static final String MODEL_ID = ConfigManager.getProperty("bedrock.modelId");
+    private static final String AWS_REGION = ConfigManager.getProperty("aws.region");
+    private static final String AWS_PROFILE = ConfigManager.getProperty("aws.profile");
+    private static final String TEMPERATURE = ConfigManager.getProperty("bedrock.temperature");
+    private static final String TOP_P = ConfigManager.getProperty("bedrock.topP");
+    private static final String GUARDRAIL_ID = ConfigManager.getProperty("bedrock.guardrailId");
+    private static final String GUARDRAIL_VERSION = ConfigManager.getProperty("bedrock.guardrailVersion");
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile BedrockRuntimeAsyncClient client;
+
+    @Override
+    public String getName() {
+        return "bedrock";
+    }
+
+    @Override
+    public String getModel() {
+        return MODEL_ID;
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> complete(String prompt) {
+        Message message = Message.builder()
+                .content(ContentBlock.fromText(prompt))
+                .role(ConversationRole.USER)
+                .build();
+
+        CompletableFuture<ConverseResponse> call = getClient().converse(request -> request
+                        .modelId(MODEL_ID)
+                        .messages(message)
+                        .inferenceConfig(config -> config
+                                .temperature(Float.valueOf(TEMPERATURE))
+                                .topP(Float.valueOf(TOP_P)))
+                        .guardrailConfig(config -> config
+                                .guardrailIdentifier(GUARDRAIL_ID)
+                                .guardrailVersion(GUARDRAIL_VERSION)))
+;
+        CompletableFuture<LlmResponse> result = call.thenApply(response -> {
+            TokenUsage usage = response.usage();
+            return new LlmResponse(response.output().message().content().getFirst().text(),
+                    usage != null && usage.inputTokens() != null ? usage.inputTokens() : -1,
+                    usage != null && usage.outputTokens() != null ? usage.outputTokens() : -1);
+        });
+        // Cancelling the SDK future aborts the HTTP request, cancelling the derived future alone would not
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) call.cancel(true);
+        });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> stream(String prompt, Predicate<String> onText) {
+        Message message = Message.builder()
+                .content(ContentBlock.fromText(prompt))
+                .role(ConversationRole.USER)
+                .build();
+
+        CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        StringBuilder text = new StringBuilder();
+        TokenUsage[] usage = new TokenUsage[1];
+        AtomicBoolean stopped = new AtomicBoolean();
+        // The listener parses and validates candidates, which must not block the SDK's event loop: every delta is
+        // handed to a virtual thread, chained so the deltas are still read one at a time and in order
+        CompletableFuture<?>[] parsed = {CompletableFuture.completedFuture(null)};
+        ConverseStreamResponseHandler handler = ConverseStreamResponseHandler.builder()
+                .subscriber(ConverseStreamResponseHandler.Visitor.builder()
+                        .onContentBlockDelta(event -> {
+                            String delta = event.delta().text();
+                            if (delta == null || stopped.get()) return;
+                            parsed[0] = parsed[0].thenRunAsync(() -> {
+                                if (stopped.get()) return;
+                                text.append(delta);
+                                if (!onText.test(delta) && stopped.compareAndSet(false, true)) {
+                                    result.complete(toResponse(text, null));
+                                }
+                            }, executor);
+                        })
+                        .onMetadata(event -> usage[0] = event.usage())
+                        .build())
+                .onError(result::completeExceptionally)
+                .onComplete(() -> parsed[0].whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                    } else {
+                        result.complete(toResponse(text, usage[0]));
+                    }
+                }))
+                .build();
+
+        CompletableFuture<Void> call = getClient().converseStream(request -> request
+                        .modelId(MODEL_ID)
+                        .messages(message)
+                        .inferenceConfig(config -> config
+                                .temperature(Float.valueOf(TEMPERATURE))
+                                .topP(Float.valueOf(TOP_P)))
+                        .guardrailConfig(config -> config
+                                .guardrailIdentifier(GUARDRAIL_ID)
+                                .guardrailVersion(GUARDRAIL_VERSION)),
+                handler);
+        call.whenComplete((ignored, error) -> {
+            if (error != null && !stopped.get()) result.completeExceptionally(error);
+        });
+        // Ending early cancels the rest of the generation
+        result.whenComplete((response, error) -> {
+            if (stopped.get() || error != null) call.cancel(true);
+        });
+        return result;
+    }
+
+    private static LlmResponse toResponse(StringBuilder text, TokenUsage usage) {
+        return new LlmResponse(text.toString(),
+                usage != null && usage.inputTokens() != null ? usage.inputTokens() : -1,
+                usage != null && usage.outputTokens() != null ? usage.outputTokens() : -1);
+    }
+
+    private BedrockRuntimeAsyncClient getClient() {
+        BedrockRuntimeAsyncClient bedrockClient = client;
+        if (bedrockClient == null) {
+            synchronized (this) {
+                if (client == null) {
+                    client = BedrockRuntimeAsyncClient.builder()
+                            .credentialsProvider(ProfileCredentialsProvider.builder().profileName(AWS_PROFILE).build())
+                            .region(Region.of(AWS_REGION))
+                            .build();
+                }
+                bedrockClient = client;
+            }
+        }
+        return bedrockClient;
+    }
+
+    @Override
+    public synchronized void close() {
+        executor.shutdown();
+        if (client != null) {
+            client.close();
+            client = null;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.utils.llm;
+
+import com.cohere.api.Cohere;
+import com.cohere.api.core.ClientOptions;
+import com.cohere.api.core.CohereApiApiError;
+import com.cohere.api.core.CohereApiError;
+import com.cohere.api.core.Environment;
+import com.cohere.api.core.ObjectMappers;
+import com.cohere.api.core.Stream;
+import com.cohere.api.requests.ChatRequest;
+import com.cohere.api.types.ApiMeta;
+import com.cohere.api.types.ApiMetaBilledUnits;
+import com.cohere.api.types.NonStreamedChatResponse;
+import com.cohere.api.types.StreamedChatResponse;
+import com.example.configurations.ConfigManager;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cohere chat provider. The Cohere SDK only offers a blocking client, so one shared client is called on virtual
+ * threads to give the pipeline a non-blocking future. Streamed responses are requested on the HTTP client of the SDK
+ * rather than through Cohere.chatStream: in SDK 1.3.2 chatStream closes its HTTP response before returning the
+ * stream, which then fails on the first read and offers no way to close the response. Holding the response here lets
+ * a stream left early close it, which drops the HTTP exchange and stops the generation.
+ */
+public class CohereProvider implements LlmProvider {
+    private static final Logger logger = Logger.getLogger(CohereProvider.class.getName());
+
+    private static final String API_KEY = System.getenv("COHERE_API_KEY");
+    private static final String MODEL = ConfigManager.getProperty("cohere.model");
+    private static final String TEMPERATURE = ConfigManager.getProperty("cohere.temperature");
+
+    private static final String CHAT_PATH = "v1/chat";
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final String token;
+    private final Environment environment;
+    private volatile ClientOptions clientOptions;
+    private volatile Cohere client;
+
+    /**
+     * Constructor of the provider for the Cohere API, authenticated with COHERE_API_KEY
+     */
+    public CohereProvider() {
+        this(API_KEY, Environment.PRODUCTION);
+    }
+
+    /**
+     * Constructor
+     * @param token - Cohere API key
+     * @param environment - base URL of the Cohere API
+     */
+    CohereProvider(String token, Environment environment) {
+        this.token = token;
+        this.environment = environment;
+    }
+
+    @Override
+    public String getName() {
+        return "cohere";
+    }
+
+    @Override
+    public String getModel() {
+        return MODEL;
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> complete(String prompt) {
+        return submit(() -> {
+            NonStreamedChatResponse response = chat(prompt);
+            return toResponse(response.getText(), response.getMeta());
+        });
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> stream(String prompt, Predicate<String> onText) {
+        return submit(() -> {
+            StringBuilder text = new StringBuilder();
+            Optional<ApiMeta> meta = Optional.empty();
+            try (Response response = chatStream(prompt)) {
+                for (StreamedChatResponse event : new Stream<>(StreamedChatResponse.class, response.body().charStream(), "\n")) {
+                    if (event.isTextGeneration()) {
+                        String delta = event.getTextGeneration().orElseThrow().getText();
+                        text.append(delta);
+                        if (!onText.test(delta)) {
+                            // Closing the response when the caller has enough cancels the rest of the generation
+                            logger.log(Level.FINE, "Cohere stream left after {0} characters", text.length());
+                            break;
+                        }
+                    } else if (event.isStreamEnd()) {
+                        meta = event.getStreamEnd().orElseThrow().getResponse().getMeta();
+                    }
+                }
+            }
+            return toResponse(text.toString(), meta);
+        });
+    }
+
+    /**
+     * Run a blocking Cohere call on a virtual thread. Cancelling the returned future interrupts the thread, which
+     * aborts the socket read of the HTTP call, so a request given up by the caller does not run to its end.
+     * @param call - the blocking call
+     * @return - future of the response
+     */
+    private CompletableFuture<LlmResponse> submit(Callable<LlmResponse> call) {
+        CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        Future<?> task = executor.submit(() -> {
+            try {
+                result.complete(call.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) task.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Start a streamed chat on the HTTP client of the SDK, with the request and errors of Cohere.chatStream
+     * @param prompt - the prompt
+     * @return - the open HTTP response streaming one JSON event per line, to be closed by the caller
+     */
+    private Response chatStream(String prompt) {
+        ClientOptions options = getClientOptions();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", prompt);
+        body.put("model", MODEL);
+        body.put("stream", true);
+        body.put("temperature", Double.parseDouble(TEMPERATURE));
+        Request request;
+        try {
+            request = new Request.Builder()
+                    .url(HttpUrl.parse(options.environment().getUrl()).newBuilder().addPathSegments(CHAT_PATH).build())
+                    .post(RequestBody.create(ObjectMappers.JSON_MAPPER.writeValueAsBytes(body), JSON))
+                    .headers(Headers.of(options.headers(null)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new CohereApiError("Error serializing the Cohere chat request", e);
+        }
+
+        Response response;
+        try {
+            response = options.httpClient().newCall(request).execute();
+        } catch (IOException e) {
+            throw new CohereApiError("Network error executing HTTP request", e);
+        }
+        if (response.isSuccessful()) return response;
+        try (response) {
+            String error = response.body() == null ? "{}" : response.body().string();
+            throw new CohereApiApiError("Error with status code " + response.code(), response.code(), error);
+        } catch (IOException e) {
+            throw new CohereApiError("Network error reading the Cohere error response", e);
+        }
+    }
+
+    private static LlmResponse toResponse(String text, Optional<ApiMeta> meta) {
+        double inputTokens = meta.flatMap(ApiMeta::getBilledUnits).flatMap(ApiMetaBilledUnits::getInputTokens).orElse(-1.0);
+        double outputTokens = meta.flatMap(ApiMeta::getBilledUnits).flatMap(ApiMetaBilledUnits::getOutputTokens).orElse(-1.0);
+        return new LlmResponse(text, (int) inputTokens, (int) outputTokens);
+    }
+
+    /**
+     * Send a prompt and wait for the raw Cohere response
+     * @param prompt - the prompt
+     * @return - the Cohere chat response
+     */
+    public NonStreamedChatResponse chat(String prompt) {
+        return getClient().chat(ChatRequest.builder()
+                .message(prompt)
+                .model(MODEL)
+                .temperature(Double.parseDouble(TEMPERATURE))
+                .build());
+    }
+
+    /**
+     * Check if the API key is set
+     * @return - true if COHERE_API_KEY is set
+     */
+    public static boolean hasApiKey() {
+        return API_KEY != null && !API_KEY.isEmpty();
+    }
+
+    private Cohere getClient() {
+        Cohere cohere = client;
+        if (cohere == null) {
+            synchronized (this) {
+                if (client == null) {
+                    client = new Cohere(getClientOptions());
+                }
+                cohere = client;
+            }
+        }
+        return cohere;
+    }
+
+    /**
+     * Get the options the Cohere client is built from, with the same headers as Cohere.builder()
+     * @return - shared client options, holding the HTTP client of the SDK
+     */
+    private ClientOptions getClientOptions() {
+        ClientOptions options = clientOptions;
+        if (options == null) {
+            synchronized (this) {
+                if (clientOptions == null) {
+                    if (token == null || token.isEmpty()) {
+                        throw new LlmConfigurationException("Cohere API key is not set in environment variables.");
+                    }
+                    clientOptions = ClientOptions.builder()
+                            .environment(environment)
+                            .addHeader("Authorization", "Bearer " + token)
+                            .addHeader("X-Client-Name", "snippet")
+                            .build();
+                }
+                options = clientOptions;
+            }
+        }
+        return options;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
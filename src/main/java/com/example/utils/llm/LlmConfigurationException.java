@@ -0,0 +1,13 @@
+package com.example.utils.llm;
+
+/**
+ * Thrown when a provider cannot be called as configured, e.g. because its API key is missing. Retrying cannot help,
+ * so ResilientLlmProvider fails such a call right away.
+ */
+public class LlmConfigurationException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public LlmConfigurationException(String message) {
+        super(message);
+    }
+}
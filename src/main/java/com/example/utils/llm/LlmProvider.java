@@ -0,0 +1,53 @@
+package com.example.utils.llm;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * A large language model the healing pipeline can send prompts to. Implementations keep one long-lived, thread-safe
+ * client and may be called concurrently.
+ */
+public interface LlmProvider extends AutoCloseable {
+
+    /**
+     * Get the name of the provider, as used for llm.provider in config.properties
+     * @return - provider name
+     */
+    String getName();
+
+    /**
+     * Get the model the provider sends prompts to
+     * @return - model id, empty if the provider has no configurable model
+     */
+    default String getModel() {
+        return "";
+    }
+
+    /**
+     * Send a prompt
+     * @param prompt - the prompt
+     * @return - future of the model response
+     */
+    CompletableFuture<LlmResponse> complete(String prompt);
+
+    /**
+     * Send a prompt and receive the response text as it is generated. Providers without a streaming API deliver the
+     * whole text as one chunk.
+     * @param prompt - the prompt
+     * @param onText - called with every chunk of the response text, returns false to end the response early
+     * @return - future of the model response, with the text received until the end or the early stop
+     */
+    default CompletableFuture<LlmResponse> stream(String prompt, Predicate<String> onText) {
+        return complete(prompt).thenApply(response -> {
+            if (response.text() != null) onText.test(response.text());
+            return response;
+        });
+    }
+
+    /**
+     * Release the client of the provider
+     */
+    @Override
+    default void close() {
+    }
+}
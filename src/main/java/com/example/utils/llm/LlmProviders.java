@@ -0,0 +1,72 @@
+package com.example.utils.llm;
+
+import com.example.configurations.ConfigManager;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the LLM providers. Every provider is created once, wrapped in a ResilientLlmProvider, and shared by all
+ * healing runs. The provider used for healing is selected with llm.provider in config.properties.
+ */
+public class LlmProviders {
+    private static final Map<String, Supplier<LlmProvider>> FACTORIES = new ConcurrentHashMap<>(Map.of(
+            "cohere", CohereProvider::new,
+            "bedrock", BedrockProvider::new));
+    private static final Map<String, LlmProvider> PROVIDERS = new ConcurrentHashMap<>();
+
+    private LlmProviders() {}
+
+    /**
+     * Get the provider selected in config.properties
+     * @return - the configured provider
+     */
+    public static LlmProvider getDefault() {
+        return get(ConfigManager.getProperty("llm.provider", "cohere"));
+    }
+
+    /**
+     * Get a provider by name
+     * @param name - provider name
+     * @return - the shared provider instance
+     */
+    public static LlmProvider get(String name) {
+        return PROVIDERS.computeIfAbsent(name.toLowerCase(), key -> {
+            Supplier<LlmProvider> factory = FACTORIES.get(key);
+            if (factory == null) {
+                throw new IllegalArgumentException("Unsupported LLM provider: " + name);
+            }
+            return resilient(factory.get());
+        });
+    }
+
+    /**
+     * Register an additional provider, e.g. a local stub for offline runs
+     * @param name - provider name
+     * @param factory - creates the provider on first use
+     */
+    public static void register(String name, Supplier<LlmProvider> factory) {
+        FACTORIES.put(name.toLowerCase(), factory);
+        LlmProvider previous = PROVIDERS.remove(name.toLowerCase());
+        if (previous != null) previous.close();
+    }
+
+    /**
+     * Close all created providers
+     */
+    public static void closeAll() {
+        PROVIDERS.values().forEach(LlmProvider::close);
+        PROVIDERS.clear();
+    }
+
+    private static LlmProvider resilient(LlmProvider provider) {
+        return new ResilientLlmProvider(provider,
+                Duration.ofSeconds(Long.parseLong(ConfigManager.getProperty("llm.timeoutSeconds", "60"))),
+                Integer.parseInt(ConfigManager.getProperty("llm.retry.maxAttempts", "3")),
+                Duration.ofMillis(Long.parseLong(ConfigManager.getProperty("llm.retry.baseDelayMillis", "500"))),
+                Integer.parseInt(ConfigManager.getProperty("llm.circuitBreaker.failureThreshold", "5")),
+                Duration.ofSeconds(Long.parseLong(ConfigManager.getProperty("llm.circuitBreaker.openSeconds", "60"))));
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.utils.llm;
+
+/**
+ * Response of a large language model
+ * @param text - generated text
+ * @param inputTokens - prompt tokens billed by the provider, -1 if not reported
+ * @param outputTokens - completion tokens billed by the provider, -1 if not reported
+ */
+public record LlmResponse(String text, int inputTokens, int outputTokens) {
+}
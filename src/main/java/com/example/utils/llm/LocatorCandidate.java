@@ -0,0 +1,21 @@
+package com.example.utils.llm;
+
+import java.util.Locale;
+
+/**
+ * A replacement locator proposed by the LLM
+ * @param group - key of the failed locator in a batch response, e.g. "1", null for a single-locator response
+ * @param locator - the proposed locator
+ * @param score - confidence given by the LLM, 0 if missing
+ * @param explanation - why the LLM chose the locator, empty if missing
+ */
+public record LocatorCandidate(String group, String locator, double score, String explanation) {
+
+    /**
+     * Render the candidate as an entry of the LLM output
+     * @return - "Locator: ..., Score: ..., Explanation: ..." followed by a blank line
+     */
+    public String toEntry() {
+        return String.format(Locale.ROOT, "Locator: %s, Score: %s, Explanation: %s%n%n", locator, score, explanation);
+    }
+}
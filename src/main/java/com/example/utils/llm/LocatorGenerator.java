@@ -0,0 +1,319 @@
+package com.example.utils.llm;
+
+import com.example.configurations.ConfigManager;
+import com.example.utils.TokenCounter;
+import com.example.utils.metrics.HealingMetrics;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asks an LLM provider for replacement locators: builds the prompt from LLM_prompt.txt within the prompt token
+ * budget and parses the response into "Locator: ..., Score: ..., Explanation: ..." lines. Several locators failing on
+ * the same page are sent in one LLM_batch_prompt.txt prompt that carries the page source once. With llm.streaming
+ * the response of a single locator is parsed while it is generated, and generation stops at the first candidate the
+ * caller accepts.
+ */
+public class LocatorGenerator {
+    private static final Logger logger = Logger.getLogger(LocatorGenerator.class.getName());
+    private static final String PROMPT_TEMPLATE = "LLM_prompt.txt";
+    private static final String BATCH_PROMPT_TEMPLATE = "LLM_batch_prompt.txt";
+    private static final int MAX_PROMPT_TOKENS = Integer.parseInt(ConfigManager.getProperty("llm.maxPromptTokens", "8000"));
+    private static final boolean STREAMING = Boolean.parseBoolean(ConfigManager.getProperty("llm.streaming", "true"));
+
+    private LocatorGenerator() {}
+
+    /**
+     * Request replacement locators from the provider configured in config.properties
+     * @param failedLocator - the failed locator
+     * @param pageSource - the processed page source
+     * @return - one "Locator: ..., Score: ..., Explanation: ..." entry per generated locator, or null on failure
+     */
+    public static String requestLocators(String failedLocator, String pageSource) {
+        return requestLocators(LlmProviders.getDefault(), failedLocator, pageSource);
+    }
+
+    /**
+     * Request replacement locators from a provider
+     * @param provider - the LLM provider
+     * @param failedLocator - the failed locator
+     * @param pageSource - the processed page source
+     * @return - one "Locator: ..., Score: ..., Explanation: ..." entry per generated locator, or null on failure
+     */
+    public static String requestLocators(LlmProvider provider, String failedLocator, String pageSource) {
+        try {
+            return await(requestLocatorsAsync(provider, failedLocator, pageSource));
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error sending request to " + provider.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Request replacement locators from a provider without blocking
+     * @param provider - the LLM provider
+     * @param failedLocator - the failed locator
+     * @param pageSource - the processed page source
+     * @return - future of the parsed locators
+     */
+    public static CompletableFuture<String> requestLocatorsAsync(LlmProvider provider, String failedLocator, String pageSource) {
+        String prompt;
+        long start = System.nanoTime();
+        try {
+            prompt = createPrompt(failedLocator, pageSource);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            HealingMetrics.getInstance().recordLatency("promptBuild", System.nanoTime() - start);
+        }
+        CompletableFuture<LlmResponse> request = provider.complete(prompt);
+        return cancelling(request, request.thenApply(response -> {
+            logger.log(Level.FINE, "Request to " + provider.getName() + " successful. Tokens in/out: "
+                    + response.inputTokens() + "/" + response.outputTokens() + ". " + response.text());
+            long parseStart = System.nanoTime();
+            String locators = extractLocators(response.text());
+            HealingMetrics.getInstance().recordLatency("responseParse", System.nanoTime() - parseStart);
+            return locators;
+        }));
+    }
+
+    /**
+     * Request replacement locators from the provider configured in config.properties, stopping at the first candidate
+     * that is good enough
+     * @param failedLocator - the failed locator
+     * @param pageSource - the processed page source
+     * @param goodEnough - tells whether a candidate makes the remaining ones unnecessary, e.g. a unique valid locator
+     * @return - one "Locator: ..., Score: ..., Explanation: ..." entry per candidate received, or null on failure
+     */
+    public static String requestLocators(String failedLocator, String pageSource, Predicate<LocatorCandidate> goodEnough) {
+        LlmProvider provider = LlmProviders.getDefault();
+        try {
+            return await(STREAMING ? streamLocatorsAsync(provider, failedLocator, pageSource, goodEnough)
+                    : requestLocatorsAsync(provider, failedLocator, pageSource));
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error sending request to " + provider.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Stream replacement locators from a provider. Candidates are parsed as the response is generated and the
+     * response is cut off at the first candidate that is good enough.
+     * @param provider - the LLM provider
+     * @param failedLocator - the failed locator
+     * @param pageSource - the processed page source
+     * @param goodEnough - tells whether a candidate makes the remaining ones unnecessary
+     * @return - future of the parsed locators received until the end of the response or the early stop
+     */
+    public static CompletableFuture<String> streamLocatorsAsync(LlmProvider provider, String failedLocator, String pageSource,
+                                                                Predicate<LocatorCandidate> goodEnough) {
+        String prompt;
+        long start = System.nanoTime();
+        try {
+            prompt = createPrompt(failedLocator, pageSource);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            HealingMetrics.getInstance().recordLatency("promptBuild", System.nanoTime() - start);
+        }
+        long requestStart = System.nanoTime();
+        StreamingLocatorParser parser = new StreamingLocatorParser(goodEnough);
+        CompletableFuture<LlmResponse> request = provider.stream(prompt, parser::feed);
+        return cancelling(request, request.thenApply(response -> {
+            parser.end();
+            HealingMetrics.getInstance().recordLatency("responseParse", parser.getParseNanos());
+            List<LocatorCandidate> candidates = parser.getCandidates();
+            if (parser.isFailed() || (candidates.isEmpty() && !parser.isStopped())) {
+                // The streamed text did not hold readable JSON where expected, look for it in the whole response
+                List<LocatorCandidate> fallback = StreamingLocatorParser.parse(response.text());
+                if (fallback.size() > candidates.size()) {
+                    logger.log(Level.INFO, "Read " + fallback.size() + " candidates from the full " + provider.getName()
+                            + " response after streamed parsing found " + candidates.size());
+                    candidates = fallback;
+                }
+            }
+            if (parser.isStopped()) {
+                HealingMetrics.getInstance().recordLatency("llmFirstGoodCandidate", System.nanoTime() - requestStart);
+                logger.log(Level.INFO, "Stopped " + provider.getName() + " response at candidate " + candidates.size()
+                        + ": " + candidates.getLast().locator());
+            }
+            return toEntries(candidates);
+        }));
+    }
+
+    /**
+     * Request replacement locators for several locators that failed on the same page with one LLM call
+     * @param failedLocators - the failed locators
+     * @param pageSource - the processed page source shared by all failed locators
+     * @return - "Locator: ..., Score: ..., Explanation: ..." entries per failed locator, locators missing from the
+     * response are left out; null on failure
+     */
+    public static Map<String, String> requestLocatorsBatch(List<String> failedLocators, String pageSource) {
+        LlmProvider provider = LlmProviders.getDefault();
+        try {
+            return await(requestLocatorsBatchAsync(provider, failedLocators, pageSource));
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error sending batch request to " + provider.getName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Request replacement locators for several locators that failed on the same page without blocking
+     * @param provider - the LLM provider
+     * @param failedLocators - the failed locators
+     * @param pageSource - the processed page source shared by all failed locators
+     * @return - future of the parsed locators per failed locator
+     */
+    public static CompletableFuture<Map<String, String>> requestLocatorsBatchAsync(LlmProvider provider, List<String> failedLocators, String pageSource) {
+        String prompt;
+        long start = System.nanoTime();
+        try {
+            prompt = createBatchPrompt(failedLocators, pageSource);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            HealingMetrics.getInstance().recordLatency("promptBuild", System.nanoTime() - start);
+        }
+        CompletableFuture<LlmResponse> request = provider.complete(prompt);
+        return cancelling(request, request.thenApply(response -> {
+            logger.log(Level.FINE, "Batch request for " + failedLocators.size() + " locators to " + provider.getName()
+                    + " successful. Tokens in/out: " + response.inputTokens() + "/" + response.outputTokens() + ". " + response.text());
+            long parseStart = System.nanoTime();
+            Map<String, String> locators = extractBatchLocators(response.text(), failedLocators);
+            HealingMetrics.getInstance().recordLatency("responseParse", System.nanoTime() - parseStart);
+            return locators;
+        }));
+    }
+
+    /**
+     * Wait for a provider request. Unlike CompletableFuture.join, the wait ends on an interrupt of the calling stage,
+     * e.g. on its timeout, and cancels the request instead of leaving it running.
+     * @param request - the pending request
+     * @return - the result of the request
+     * @throws ExecutionException - if the request failed
+     * @throws CancellationException - if the calling thread was interrupted or the request was cancelled
+     */
+    private static <T> T await(CompletableFuture<T> request) throws ExecutionException {
+        try {
+            return request.get();
+        } catch (InterruptedException e) {
+            request.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("LLM request interrupted");
+        }
+    }
+
+    /**
+     * Cancel a provider request together with the future derived from it, which CompletableFuture does not do on its own
+     * @param request - the provider request
+     * @param result - the future derived from the request
+     * @return - the derived future
+     */
+    private static <T> CompletableFuture<T> cancelling(CompletableFuture<?> request, CompletableFuture<T> result) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) request.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Create the prompt, truncating the page source to the prompt token budget
+     * @param failedLocator - the failed locator
+     * @param pageSource - the processed page source
+     * @return - the prompt
+     * @throws IOException - if the prompt template cannot be read
+     */
+    public static String createPrompt(String failedLocator, String pageSource) throws IOException {
+        String promptTemplate = PromptTemplates.get(PROMPT_TEMPLATE);
+        int pageSourceBudget = MAX_PROMPT_TOKENS - TokenCounter.countTokens(promptTemplate) - TokenCounter.countTokens(failedLocator);
+        if (!TokenCounter.fitsWithinBudget(pageSource, pageSourceBudget)) {
+            logger.log(Level.WARNING, "Page source exceeds the prompt budget of " + MAX_PROMPT_TOKENS + " tokens, truncating it");
+            pageSource = TokenCounter.truncateToBudget(pageSource, Math.max(0, pageSourceBudget));
+        }
+        return String.format(promptTemplate, escapeJson(failedLocator), escapeJson(pageSource));
+    }
+
+    /**
+     * Create the batch prompt, numbering the failed locators and truncating the shared page source to the prompt
+     * token budget
+     * @param failedLocators - the failed locators
+     * @param pageSource - the processed page source
+     * @return - the prompt
+     * @throws IOException - if the prompt template cannot be read
+     */
+    public static String createBatchPrompt(List<String> failedLocators, String pageSource) throws IOException {
+        String promptTemplate = PromptTemplates.get(BATCH_PROMPT_TEMPLATE);
+        StringBuilder locatorList = new StringBuilder();
+        for (int i = 0; i < failedLocators.size(); i++) {
+            locatorList.append(i + 1).append(". ").append(escapeJson(failedLocators.get(i))).append("\n");
+        }
+        int pageSourceBudget = MAX_PROMPT_TOKENS - TokenCounter.countTokens(promptTemplate) - TokenCounter.countTokens(locatorList.toString());
+        if (!TokenCounter.fitsWithinBudget(pageSource, pageSourceBudget)) {
+            logger.log(Level.WARNING, "Page source exceeds the prompt budget of " + MAX_PROMPT_TOKENS + " tokens, truncating it");
+            pageSource = TokenCounter.truncateToBudget(pageSource, Math.max(0, pageSourceBudget));
+        }
+        return String.format(promptTemplate, locatorList, escapeJson(pageSource));
+    }
+
+    /**
+     * Extract the locators of every failed locator from a batch response
+     * @param responseBody - Response from the API, a JSON object keyed by the number of the failed locator
+     * @param failedLocators - the failed locators in prompt order
+     * @return - One "Locator: ..., Score: ..., Explanation: ..." entry per locator, per failed locator
+     */
+    public static Map<String, String> extractBatchLocators(String responseBody, List<String> failedLocators) {
+        Map<String, StringBuilder> entries = new LinkedHashMap<>();
+        for (LocatorCandidate candidate : StreamingLocatorParser.parse(responseBody)) {
+            entries.computeIfAbsent(candidate.group(), group -> new StringBuilder()).append(candidate.toEntry());
+        }
+        Map<String, String> locators = new LinkedHashMap<>();
+        for (int i = 0; i < failedLocators.size(); i++) {
+            StringBuilder candidates = entries.get(String.valueOf(i + 1));
+            if (candidates == null) {
+                logger.log(Level.WARNING, "Batch response has no locators for: " + failedLocators.get(i));
+                continue;
+            }
+            locators.put(failedLocators.get(i), candidates.toString());
+        }
+        return locators;
+    }
+
+    /**
+     * Extract locators and scores from the response
+     * @param responseBody - Response from the API
+     * @return - One "Locator: ..., Score: ..., Explanation: ..." entry per locator
+     */
+    public static String extractLocators(String responseBody) {
+        return toEntries(StreamingLocatorParser.parse(responseBody));
+    }
+
+    private static String toEntries(List<LocatorCandidate> candidates) {
+        StringBuilder locators = new StringBuilder();
+        candidates.forEach(candidate -> locators.append(candidate.toEntry()));
+        return locators.toString();
+    }
+
+    /**
+     * Escape JSON content
+     * @param str - JSON content
+     * @return - Escaped JSON content
+     */
+    private static String escapeJson(String str) {
+        return str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\r", "\\r");
+    }
+}
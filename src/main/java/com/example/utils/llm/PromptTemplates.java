@@ -0,0 +1,42 @@
+package com.example.utils.llm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prompt templates, read once from the classpath (or src/main/resources when run from the project root) and cached
+ */
+public class PromptTemplates {
+    private static final Map<String, String> TEMPLATES = new ConcurrentHashMap<>();
+
+    private PromptTemplates() {}
+
+    /**
+     * Get a prompt template
+     * @param name - file name of the template, e.g. LLM_prompt.txt
+     * @return - template content
+     * @throws IOException - if the template cannot be read
+     */
+    public static String get(String name) throws IOException {
+        String template = TEMPLATES.get(name);
+        if (template == null) {
+            template = read(name);
+            TEMPLATES.put(name, template);
+        }
+        return template;
+    }
+
+    private static String read(String name) throws IOException {
+        try (InputStream input = PromptTemplates.class.getClassLoader().getResourceAsStream(name)) {
+            if (input != null) {
+                return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        return Files.readString(Paths.get("src/main/resources", name));
+    }
+}
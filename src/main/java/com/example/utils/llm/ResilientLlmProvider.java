@@ -0,0 +1,237 @@
+package com.example.utils.llm;
+
+import com.example.utils.TokenCounter;
+import com.example.utils.metrics.HealingMetrics;
+import com.example.utils.metrics.JfrEvents;
+import com.example.utils.metrics.LlmRequestEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Wraps a provider with a per-attempt timeout, retries with exponential backoff and full jitter, and a circuit
+ * breaker. After failureThreshold consecutive failed calls the breaker opens and calls fail fast until openDuration
+ * has passed; then a single trial call decides whether it closes again. With jfr.events.enabled every attempt is
+ * recorded as an LlmRequestEvent.
+ */
+public class ResilientLlmProvider implements LlmProvider {
+    private static final Logger logger = Logger.getLogger(ResilientLlmProvider.class.getName());
+
+    private final LlmProvider delegate;
+    private final Duration timeout;
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final int failureThreshold;
+    private final Duration openDuration;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openUntil = new AtomicLong();
+
+    /**
+     * Thrown while the circuit breaker is open
+     */
+    public static class CircuitOpenException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The attempt in flight of a call. Cancelling the call cancels it and prevents further attempts.
+     */
+    private static final class InFlight {
+        private volatile CompletableFuture<LlmResponse> attempt;
+        private volatile boolean cancelled;
+
+        private void cancel() {
+            cancelled = true;
+            CompletableFuture<LlmResponse> pending = attempt;
+            if (pending != null) pending.cancel(true);
+        }
+    }
+
+    /**
+     * Constructor
+     * @param delegate - the provider to call
+     * @param timeout - maximum duration of a single attempt
+     * @param maxAttempts - maximum number of attempts per call
+     * @param baseDelay - backoff before the second attempt, doubled for every further attempt
+     * @param failureThreshold - consecutive failed calls that open the circuit breaker
+     * @param openDuration - how long the breaker stays open
+     */
+    public ResilientLlmProvider(LlmProvider delegate, Duration timeout, int maxAttempts, Duration baseDelay, int failureThreshold, Duration openDuration) {
+        this.delegate = delegate;
+        this.timeout = timeout;
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public String getModel() {
+        return delegate.getModel();
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> complete(String prompt) {
+        return call(prompt, () -> delegate.complete(prompt), () -> true);
+    }
+
+    /**
+     * Stream a response. A failed attempt is only retried if no text was received yet, so the listener never sees
+     * a chunk twice.
+     */
+    @Override
+    public CompletableFuture<LlmResponse> stream(String prompt, Predicate<String> onText) {
+        AtomicBoolean received = new AtomicBoolean();
+        return call(prompt, () -> delegate.stream(prompt, chunk -> {
+            received.set(true);
+            return onText.test(chunk);
+        }), () -> !received.get());
+    }
+
+    private CompletableFuture<LlmResponse> call(String prompt, Supplier<CompletableFuture<LlmResponse>> request, BooleanSupplier retryable) {
+        long now = System.currentTimeMillis();
+        long openedUntil = openUntil.get();
+        if (now < openedUntil) {
+            return CompletableFuture.failedFuture(new CircuitOpenException("Circuit breaker of " + getName() + " is open"));
+        }
+        if (openedUntil != 0 && !openUntil.compareAndSet(openedUntil, now + openDuration.toMillis())) {
+            // Another call is the half-open trial
+            return CompletableFuture.failedFuture(new CircuitOpenException("Circuit breaker of " + getName() + " is half-open"));
+        }
+
+        long start = System.nanoTime();
+        InFlight inFlight = new InFlight();
+        CompletableFuture<LlmResponse> result = attempt(prompt, request, retryable, 1, inFlight).whenComplete((response, error) -> {
+            recordMetrics(prompt, response, error, System.nanoTime() - start);
+            // A call given up by its caller says nothing about the health of the provider
+            if (error != null && inFlight.cancelled) return;
+            if (error == null) {
+                consecutiveFailures.set(0);
+                openUntil.set(0);
+            } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                openUntil.set(System.currentTimeMillis() + openDuration.toMillis());
+                logger.log(Level.WARNING, "Circuit breaker of " + getName() + " opened for " + openDuration.toSeconds() + "s");
+            }
+        });
+        result.whenComplete((response, error) -> {
+            if (result.isCancelled()) inFlight.cancel();
+        });
+        return result;
+    }
+
+    /**
+     * Record latency, outcome and token usage of a call. Token counts the provider did not report are estimated.
+     * @param prompt - the prompt
+     * @param response - the response, null if the call failed
+     * @param error - the failure, null if the call succeeded
+     * @param nanos - duration of the call including retries
+     */
+    private void recordMetrics(String prompt, LlmResponse response, Throwable error, long nanos) {
+        HealingMetrics metrics = HealingMetrics.getInstance();
+        metrics.recordLatency("llmCall", nanos);
+        metrics.increment(error == null ? "healing_llm_calls_total" : "healing_llm_errors_total", "provider", getName());
+        if (response != null) {
+            int promptTokens = response.inputTokens() >= 0 ? response.inputTokens() : TokenCounter.countTokens(prompt);
+            int completionTokens = response.outputTokens() >= 0 ? response.outputTokens()
+                    : response.text() == null ? 0 : TokenCounter.countTokens(response.text());
+            metrics.add("healing_llm_prompt_tokens_total", "provider", getName(), promptTokens);
+            metrics.add("healing_llm_completion_tokens_total", "provider", getName(), completionTokens);
+        }
+    }
+
+    /**
+     * Make one attempt of a call and the retries following it. The timeout fails a copy of the provider future, so the
+     * provider future itself can still be cancelled to stop the timed out request before the next attempt starts.
+     * @param prompt - the prompt
+     * @param request - starts the provider request
+     * @param retryable - tells whether a failed attempt may be repeated
+     * @param attempt - number of the attempt, starting at 1
+     * @param inFlight - the attempt in flight of the call
+     * @return - future of the response of this or a later attempt
+     */
+    private CompletableFuture<LlmResponse> attempt(String prompt, Supplier<CompletableFuture<LlmResponse>> request,
+                                                   BooleanSupplier retryable, int attempt, InFlight inFlight) {
+        LlmRequestEvent event = JfrEvents.ENABLED ? new LlmRequestEvent() : null;
+        if (event != null) {
+            event.begin();
+            event.provider = getName();
+            event.model = getModel();
+            event.attempt = attempt;
+            event.bytesIn = prompt.getBytes(StandardCharsets.UTF_8).length;
+        }
+        CompletableFuture<LlmResponse> provided;
+        try {
+            provided = request.get();
+        } catch (RuntimeException e) {
+            provided = CompletableFuture.failedFuture(e);
+        }
+        inFlight.attempt = provided;
+        if (inFlight.cancelled) provided.cancel(true);
+        CompletableFuture<LlmResponse> pending = provided;
+        return provided.copy().orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).handle((response, error) -> {
+            if (event != null) commitEvent(event, response, error);
+            if (error == null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) pending.cancel(true);
+            if (inFlight.cancelled || attempt >= maxAttempts || !isRetryable(cause) || !retryable.getAsBoolean()) {
+                return CompletableFuture.<LlmResponse>failedFuture(cause);
+            }
+            long backoff = ThreadLocalRandom.current().nextLong(baseDelay.toMillis() * (1L << (attempt - 1)) + 1);
+            logger.log(Level.WARNING, "Request to " + getName() + " failed (attempt " + attempt + " of " + maxAttempts + "), retrying in " + backoff + "ms: " + cause);
+            Executor delayed = CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS);
+            return CompletableFuture.supplyAsync(() -> null, delayed).thenCompose(ignored -> attempt(prompt, request, retryable, attempt + 1, inFlight));
+        }).thenCompose(future -> future);
+    }
+
+    /**
+     * Check if a failed attempt may succeed when repeated
+     * @param cause - the failure of the attempt
+     * @return - false for configuration errors, an open circuit breaker and a cancelled request
+     */
+    private static boolean isRetryable(Throwable cause) {
+        return !(cause instanceof LlmConfigurationException || cause instanceof CircuitOpenException || cause instanceof CancellationException);
+    }
+
+    private static void commitEvent(LlmRequestEvent event, LlmResponse response, Throwable error) {
+        if (error == null) {
+            event.outcome = "OK";
+            event.bytesOut = response.text() == null ? 0 : response.text().getBytes(StandardCharsets.UTF_8).length;
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            event.outcome = cause.getClass().getSimpleName();
+        }
+        event.commit();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.utils.llm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Incremental parser of the locator candidates in an LLM response. The response is fed chunk by chunk as the provider
+ * streams it; text before the JSON (prose, code fences) is skipped and the JSON that follows is read with Jackson's
+ * non-blocking parser. The JSON is only taken to start at a '[' or '{' that begins a line or follows a code fence, so
+ * brackets inside prose, like the predicate of a locator quoted in a sentence, are not mistaken for it. Every object
+ * with a "locator" field is handed to the listener as soon as it is closed, so candidates can be validated while the
+ * rest of the response is still being generated. Fields are read by name, so a missing score or an escaped quote
+ * only affects its own candidate.
+ */
+public class StreamingLocatorParser {
+    private static final Logger logger = Logger.getLogger(StreamingLocatorParser.class.getName());
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Object ARRAY = new Object();
+    private static final int MAX_FALLBACK_STARTS = 32;
+
+    private final Predicate<LocatorCandidate> onCandidate;
+    private final List<LocatorCandidate> candidates = new ArrayList<>();
+    private final Deque<Object> frames = new ArrayDeque<>();
+    private JsonParser parser;
+    private String group;
+    private boolean done;
+    private boolean stopped;
+    private boolean failed;
+    private long parseNanos;
+    // Position in the text before the JSON: only whitespace since the last line break, right after a code fence
+    private boolean lineStart = true;
+    private int backticks;
+    private boolean afterFence;
+    private boolean fenceInfoEnded;
+
+    /**
+     * Fields of the object being parsed
+     */
+    private static final class CandidateBuilder {
+        private String field;
+        private String locator;
+        private double score;
+        private String explanation = "";
+    }
+
+    /**
+     * Constructor
+     * @param onCandidate - called with every complete candidate, returns true to stop parsing, e.g. once a unique
+     *                    valid locator was found
+     */
+    public StreamingLocatorParser(Predicate<LocatorCandidate> onCandidate) {
+        this.onCandidate = onCandidate;
+    }
+
+    /**
+     * Parse a complete response. If no JSON starts at the beginning of a line or after a code fence, or it cannot be
+     * read, the JSON is looked for at every other '[' and '{' of the response, e.g. after prose on the same line.
+     * @param response - the response text
+     * @return - the candidates, in response order
+     */
+    public static List<LocatorCandidate> parse(String response) {
+        StreamingLocatorParser parser = new StreamingLocatorParser(candidate -> false);
+        if (response != null) parser.feed(response);
+        parser.end();
+        if (response == null || (!parser.isFailed() && !parser.getCandidates().isEmpty())) {
+            return parser.getCandidates();
+        }
+
+        int attempts = 0;
+        for (int i = 0; i < response.length() && attempts < MAX_FALLBACK_STARTS; i++) {
+            char c = response.charAt(i);
+            if (c != '[' && c != '{') continue;
+            attempts++;
+            StreamingLocatorParser fallback = new StreamingLocatorParser(candidate -> false);
+            fallback.feed(response.substring(i));
+            fallback.end();
+            if (!fallback.isFailed() && fallback.getCandidates().size() > parser.getCandidates().size()) {
+                return fallback.getCandidates();
+            }
+        }
+        return parser.getCandidates();
+    }
+
+    /**
+     * Feed the next chunk of the response
+     * @param chunk - text as received from the provider
+     * @return - true if more input is wanted, false once the JSON is complete, unreadable or the listener stopped it
+     */
+    public boolean feed(String chunk) {
+        if (done) return false;
+        long start = System.nanoTime();
+        try {
+            if (parser == null) {
+                int begin = jsonStart(chunk);
+                if (begin < 0) return true;
+                parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+                chunk = chunk.substring(begin);
+            }
+            byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            readAvailable();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "LLM response is not valid JSON after " + candidates.size() + " candidates: " + e.getMessage());
+            failed = true;
+            done = true;
+        } finally {
+            parseNanos += System.nanoTime() - start;
+        }
+        return !done;
+    }
+
+    /**
+     * Signal the end of the response
+     */
+    public void end() {
+        if (parser != null && !done) {
+            try {
+                ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+                readAvailable();
+            } catch (IOException e) {
+                logger.log(Level.FINE, "LLM response ended inside the JSON after " + candidates.size() + " candidates");
+                failed = true;
+            }
+        }
+        done = true;
+    }
+
+    /**
+     * Get the candidates parsed so far
+     * @return - the candidates, in response order
+     */
+    public List<LocatorCandidate> getCandidates() {
+        return List.copyOf(candidates);
+    }
+
+    /**
+     * Check if the listener stopped the parser before the end of the response
+     * @return - true if parsing was stopped early
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Check if the response was not valid JSON or ended inside it
+     * @return - true if the JSON could not be read to its end
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Get the time spent parsing
+     * @return - parse time in nanoseconds, without the time spent in the listener
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    private void readAvailable() throws IOException {
+        JsonToken token;
+        while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            Object top = frames.peek();
+            switch (token) {
+                case START_OBJECT, START_ARRAY -> {
+                    if (frames.size() == 1 && top instanceof CandidateBuilder root) group = root.field;
+                    frames.push(token == JsonToken.START_OBJECT ? new CandidateBuilder() : ARRAY);
+                }
+                case END_OBJECT -> {
+                    CandidateBuilder builder = (CandidateBuilder) frames.pop();
+                    if (builder.locator != null) emit(new LocatorCandidate(frames.isEmpty() ? null : group,
+                            builder.locator, builder.score, builder.explanation));
+                }
+                case END_ARRAY -> frames.pop();
+                case FIELD_NAME -> ((CandidateBuilder) top).field = parser.currentName();
+                default -> {
+                    if (top instanceof CandidateBuilder builder) readField(builder, token);
+                }
+            }
+            if (frames.isEmpty()) done = true;
+        }
+    }
+
+    private void readField(CandidateBuilder builder, JsonToken token) throws IOException {
+        if (builder.field == null) return;
+        switch (builder.field) {
+            case "locator" -> {
+                if (token == JsonToken.VALUE_STRING) builder.locator = parser.getText();
+            }
+            case "score" -> {
+                if (token.isNumeric()) {
+                    builder.score = parser.getDoubleValue();
+                } else if (token == JsonToken.VALUE_STRING) {
+                    try {
+                        builder.score = Double.parseDouble(parser.getText().trim());
+                    } catch (NumberFormatException e) {
+                        builder.score = 0;
+                    }
+                }
+            }
+            case "explanation" -> {
+                if (token == JsonToken.VALUE_STRING) builder.explanation = parser.getText();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void emit(LocatorCandidate candidate) {
+        candidates.add(candidate);
+        long start = System.nanoTime();
+        boolean stop = onCandidate.test(candidate);
+        parseNanos -= System.nanoTime() - start;
+        if (stop) {
+            stopped = true;
+            done = true;
+        }
+    }
+
+    /**
+     * Find the start of the JSON in the next chunk of the text before it. The position in the text is kept across
+     * chunks, so a line break or code fence in one chunk still counts for a bracket in the next.
+     * @param chunk - the chunk
+     * @return - index of the opening bracket in the chunk, -1 if the JSON does not start in it
+     */
+    private int jsonStart(String chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if ((c == '[' || c == '{') && (lineStart || afterFence)) return i;
+            if (c == '`') {
+                if (++backticks >= 3) {
+                    afterFence = true;
+                    fenceInfoEnded = false;
+                }
+                lineStart = false;
+                continue;
+            }
+            backticks = 0;
+            if (c == '\n') {
+                lineStart = true;
+                fenceInfoEnded = afterFence;
+            } else if (Character.isWhitespace(c)) {
+                // Whitespace keeps the start of a line, and ends the info string of a fence like ```json
+                fenceInfoEnded = afterFence;
+            } else {
+                lineStart = false;
+                if (!afterFence || fenceInfoEnded || !Character.isLetterOrDigit(c)) afterFence = false;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.utils.metrics;
+
+import com.example.configurations.ConfigManager;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Registry of the healing metrics: an HDR latency histogram per stage, counters with at most one label, and gauges
+ * read at export time. Recording is lock-free. At the end of the suite the registry is exported as JSON and in the
+ * Prometheus text format, so latency and cost SLOs can be checked per run or scraped by a textfile collector.
+ */
+public class HealingMetrics {
+    private static final Logger logger = Logger.getLogger(HealingMetrics.class.getName());
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] QUANTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    /** Counter of the healing outcomes, labelled with the source of the healed locator or NONE */
+    public static final String RESULTS = "healing_results_total";
+
+    private static final HealingMetrics INSTANCE = new HealingMetrics(
+            Paths.get(ConfigManager.getProperty("healing.metrics.dir", "Healing_Docs/metrics")));
+
+    private final Path metricsDir;
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<Series, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<Series, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private final Map<Series, LongAccumulator> maxima = new ConcurrentHashMap<>();
+
+    /**
+     * A metric name with an optional label
+     * @param name - metric name
+     * @param label - label name, null for a metric without labels
+     * @param value - label value
+     */
+    private record Series(String name, String label, String value) implements Comparable<Series> {
+
+        private String prometheus() {
+            return label == null ? name : name + "{" + label + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+        }
+
+        @Override
+        public int compareTo(Series other) {
+            return prometheus().compareTo(other.prometheus());
+        }
+    }
+
+    /**
+     * Constructor
+     * @param metricsDir - directory the metrics files are exported to
+     */
+    public HealingMetrics(Path metricsDir) {
+        this.metricsDir = metricsDir;
+    }
+
+    /**
+     * Get the registry configured in config.properties
+     * @return - shared HealingMetrics instance
+     */
+    public static HealingMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record the duration of a stage
+     * @param stage - name of the stage
+     * @param nanos - duration in nanoseconds
+     */
+    public void recordLatency(String stage, long nanos) {
+        long micros = Math.min(HIGHEST_TRACKABLE_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        latencies.computeIfAbsent(stage, key -> new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS))
+                .recordValue(micros);
+    }
+
+    /**
+     * Increment a counter
+     * @param name - counter name
+     */
+    public void increment(String name) {
+        add(name, null, null, 1);
+    }
+
+    /**
+     * Increment a labelled counter
+     * @param name - counter name
+     * @param label - label name
+     * @param value - label value
+     */
+    public void increment(String name, String label, String value) {
+        add(name, label, value, 1);
+    }
+
+    /**
+     * Add to a labelled counter
+     * @param name - counter name
+     * @param label - label name, null for a counter without labels
+     * @param value - label value
+     * @param amount - amount to add
+     */
+    public void add(String name, String label, String value, long amount) {
+        counters.computeIfAbsent(new Series(name, label, value), key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Keep the maximum of an observed value, e.g. the deepest the healing queue got
+     * @param name - metric name
+     * @param observed - observed value
+     */
+    public void recordMax(String name, long observed) {
+        maxima.computeIfAbsent(new Series(name, null, null), key -> new LongAccumulator(Math::max, Long.MIN_VALUE)).accumulate(observed);
+    }
+
+    /**
+     * Register a gauge, read when the metrics are exported
+     * @param name - gauge name
+     * @param supplier - current value of the gauge
+     */
+    public void registerGauge(String name, LongSupplier supplier) {
+        gauges.put(new Series(name, null, null), supplier);
+    }
+
+    /**
+     * Render the metrics as JSON. Latencies are in milliseconds.
+     * @return - the metrics
+     */
+    public JSONObject toJson() {
+        JSONObject stages = new JSONObject();
+        new TreeMap<>(latencies).forEach((stage, histogram) -> {
+            Histogram snapshot = histogram.copy();
+            JSONObject latency = new JSONObject()
+                    .put("count", snapshot.getTotalCount())
+                    .put("meanMillis", snapshot.getMean() / 1000.0)
+                    .put("maxMillis", snapshot.getMaxValue() / 1000.0);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                latency.put(QUANTILE_NAMES[i] + "Millis", snapshot.getValueAtPercentile(QUANTILES[i] * 100) / 1000.0);
+            }
+            stages.put(stage, latency);
+        });
+        JSONObject values = new JSONObject();
+        new TreeMap<>(counters).forEach((series, counter) -> values.put(series.prometheus(), counter.sum()));
+        new TreeMap<>(maxima).forEach((series, max) -> values.put(series.prometheus(), Math.max(0, max.get())));
+        new TreeMap<>(gauges).forEach((series, gauge) -> values.put(series.prometheus(), gauge.getAsLong()));
+        long healings = 0;
+        long unhealed = 0;
+        for (Map.Entry<Series, LongAdder> counter : counters.entrySet()) {
+            if (!RESULTS.equals(counter.getKey().name())) continue;
+            healings += counter.getValue().sum();
+            if ("NONE".equals(counter.getKey().value())) unhealed += counter.getValue().sum();
+        }
+        JSONObject json = new JSONObject().put("stageLatencies", stages).put("metrics", values);
+        if (healings > 0) json.put("healingSuccessRate", (double) (healings - unhealed) / healings);
+        return json;
+    }
+
+    /**
+     * Render the metrics in the Prometheus text format. Latencies are summaries in seconds.
+     * @return - the metrics
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        if (!latencies.isEmpty()) {
+            text.append("# TYPE healing_stage_latency_seconds summary\n");
+            new TreeMap<>(latencies).forEach((stage, histogram) -> {
+                Histogram snapshot = histogram.copy();
+                for (double quantile : QUANTILES) {
+                    text.append("healing_stage_latency_seconds{stage=\"").append(stage).append("\",quantile=\"").append(quantile).append("\"} ")
+                            .append(seconds(snapshot.getValueAtPercentile(quantile * 100))).append('\n');
+                }
+                text.append("healing_stage_latency_seconds_sum{stage=\"").append(stage).append("\"} ")
+                        .append(seconds((long) (snapshot.getMean() * snapshot.getTotalCount()))).append('\n');
+                text.append("healing_stage_latency_seconds_count{stage=\"").append(stage).append("\"} ").append(snapshot.getTotalCount()).append('\n');
+            });
+        }
+        String type = null;
+        for (Map.Entry<Series, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            if (!counter.getKey().name().equals(type)) {
+                type = counter.getKey().name();
+                text.append("# TYPE ").append(type).append(" counter\n");
+            }
+            text.append(counter.getKey().prometheus()).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        new TreeMap<>(maxima).forEach((series, max) -> text.append("# TYPE ").append(series.name()).append(" gauge\n")
+                .append(series.prometheus()).append(' ').append(Math.max(0, max.get())).append('\n'));
+        new TreeMap<>(gauges).forEach((series, gauge) -> text.append("# TYPE ").append(series.name()).append(" gauge\n")
+                .append(series.prometheus()).append(' ').append(gauge.getAsLong()).append('\n'));
+        return text.toString();
+    }
+
+    /**
+     * Write the metrics to healing_metrics.json and healing_metrics.prom in the metrics directory
+     */
+    public void export() {
+        try {
+            Files.createDirectories(metricsDir);
+            writeAtomically(metricsDir.resolve("healing_metrics.json"), toJson().toString(2));
+            writeAtomically(metricsDir.resolve("healing_metrics.prom"), toPrometheus());
+            logger.log(Level.INFO, "Healing metrics exported to " + metricsDir);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error exporting healing metrics", e);
+        }
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        Files.writeString(temp, content);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String seconds(long micros) {
+        return String.format(Locale.ROOT, "%.6f", micros / 1_000_000.0);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.utils.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a healing stage, recorded on the thread that waited for the stage
+ */
+@Name("com.example.HealingStage")
+@Label("Healing Stage")
+@Category({"Test Automation", "Healing"})
+@Description("A stage of the healing pipeline of a failed locator")
+@StackTrace(false)
+public class HealingStageEvent extends Event {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Failed Locator")
+    @Description("Locator being healed, comma separated for a batch, empty before it is known")
+    public String failedLocator;
+
+    @Label("Outcome")
+    @Description("OK, ERROR, TIMEOUT or CANCELLED")
+    public String outcome;
+}
@@ -0,0 +1,13 @@
+package com.example.utils.metrics;
+
+import com.example.configurations.ConfigManager;
+
+/**
+ * Switch of the custom Flight Recorder events. When jfr.events.enabled is false no event object is created at all,
+ * so the instrumented code only pays for reading this constant.
+ */
+public final class JfrEvents {
+    public static final boolean ENABLED = Boolean.parseBoolean(ConfigManager.getProperty("jfr.events.enabled", "false"));
+
+    private JfrEvents() {}
+}
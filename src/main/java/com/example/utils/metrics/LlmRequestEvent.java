@@ -0,0 +1,43 @@
+package com.example.utils.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a single request to an LLM provider. Every retry attempt is its own event.
+ */
+@Name("com.example.LlmRequest")
+@Label("LLM Request")
+@Category({"Test Automation", "Healing"})
+@Description("A request to a large language model, from sending the prompt to the response or failure")
+@StackTrace(false)
+public class LlmRequestEvent extends Event {
+
+    @Label("Provider")
+    public String provider;
+
+    @Label("Model")
+    public String model;
+
+    @Label("Attempt")
+    public int attempt;
+
+    @Label("Bytes In")
+    @Description("UTF-8 size of the prompt")
+    @DataAmount
+    public long bytesIn;
+
+    @Label("Bytes Out")
+    @Description("UTF-8 size of the response text")
+    @DataAmount
+    public long bytesOut;
+
+    @Label("Outcome")
+    @Description("OK or the simple name of the failure")
+    public String outcome;
+}
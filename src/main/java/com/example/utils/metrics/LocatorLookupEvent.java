@@ -0,0 +1,34 @@
+package com.example.utils.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a LocatorFactory.getLocator lookup, spanning the implicit wait
+ */
+@Name("com.example.LocatorLookup")
+@Label("Locator Lookup")
+@Category({"Test Automation", "Locators"})
+@Description("Resolution of a locators.loc key to a WebElement")
+@StackTrace(false)
+public class LocatorLookupEvent extends Event {
+
+    @Label("Key")
+    public String key;
+
+    @Label("XPath")
+    @Description("Locator that resolved the key, or the current locator of the key if nothing matched")
+    public String xpath;
+
+    @Label("Chain Index")
+    @Description("Position of the resolving locator in the locator chain, 0 for the current locator")
+    public int chainIndex;
+
+    @Label("Outcome")
+    @Description("FOUND, ALTERNATE, NOT_FOUND or ERROR")
+    public String outcome;
+}
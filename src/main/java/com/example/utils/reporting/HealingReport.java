@@ -1,30 +1,103 @@
 package com.example.utils.reporting;
 
-import java.io.FileWriter;
+import com.example.configurations.ConfigManager;
+import com.example.utils.healing.ArtifactStore;
+import com.example.utils.healing.HealingResult;
+
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Collects the outcomes of the healing runs of a suite and writes them as one healing report at the end of the suite.
+ */
 public class HealingReport {
     private static final Logger logger = Logger.getLogger(HealingReport.class.getName());
-    private HealingReport() {}
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy_HH-mm-ss-SSS");
+
+    private static final HealingReport INSTANCE = new HealingReport(
+            Paths.get(ConfigManager.getProperty("healing.report.dir", "Healing_Docs/healing_report")),
+            Integer.parseInt(ConfigManager.getProperty("healing.report.pageSize", "50")),
+            Integer.parseInt(ConfigManager.getProperty("healing.report.maxArtifactChars", "20000")),
+            Boolean.parseBoolean(ConfigManager.getProperty("healing.report.aiSummary.enabled", "false"))
+                    ? new ReportSummarizer(Paths.get(ConfigManager.getProperty("healing.report.aiSummary.cacheFile", "Healing_Docs/cache/report_summaries.properties")),
+                    Integer.parseInt(ConfigManager.getProperty("healing.report.aiSummary.batchSize", "20")))
+                    : null,
+            Long.parseLong(ConfigManager.getProperty("healing.report.aiSummary.timeoutSeconds", "60")) * 1000);
+
+    private final Path reportDir;
+    private final HealingReportGenerator generator;
+    private final ReportSummarizer summarizer;
+    private final long summaryTimeoutMillis;
+    private final List<HealingResult> results = new ArrayList<>();
+
+    /**
+     * Constructor
+     * @param reportDir - directory of the reports
+     * @param pageSize - rows per report page
+     * @param maxArtifactChars - artifacts are cut to this length in the report
+     * @param summarizer - summarizer of the healing runs, null to leave out AI summaries
+     * @param summaryTimeoutMillis - how long the report waits for the AI summaries
+     */
+    public HealingReport(Path reportDir, int pageSize, int maxArtifactChars, ReportSummarizer summarizer, long summaryTimeoutMillis) {
+        this.reportDir = reportDir;
+        this.generator = new HealingReportGenerator(ArtifactStore.getInstance(), pageSize, maxArtifactChars);
+        this.summarizer = summarizer;
+        this.summaryTimeoutMillis = summaryTimeoutMillis;
+    }
+
+    /**
+     * Get the report configured in config.properties
+     * @return - shared HealingReport instance
+     */
+    public static HealingReport getInstance() {
+        return INSTANCE;
+    }
 
     /**
-     * Generate a healing report
-     * @param failedLocatorPath - Path to the failed locator file
-     * @param failedPageFilePath - Path to the failed page file
-     * @param llmOutputPath - Path to the LLM output file
-     * @param validatedLocPath - Path to the validated locators file
-     * @param reportFilePath - Path to save the generated report
+     * Add the outcome of a healing run to the report
+     * @param result - outcome of the healing run
      */
-    public static void generateReport(String failedLocatorPath, String failedPageFilePath, String llmOutputPath, String validatedLocPath, String reportFilePath) {
-        try (FileWriter writer = new FileWriter(reportFilePath)) {
-            HealingReportGenerator reportGenerator = new HealingReportGenerator();
-            String reportContent = reportGenerator.generateHTMLReport(failedLocatorPath, failedPageFilePath, llmOutputPath, validatedLocPath);
-            writer.write(reportContent);
-            logger.log(Level.INFO, "Healing report generated at: " + reportFilePath);
+    public synchronized void record(HealingResult result) {
+        results.add(result);
+    }
+
+    /**
+     * Write the report of all healing runs recorded since the last report, if there were any
+     * @return - path of the report, null if nothing was healed or the report could not be written
+     */
+    public Path write() {
+        List<HealingResult> recorded;
+        synchronized (this) {
+            recorded = List.copyOf(results);
+            results.clear();
+        }
+        if (recorded.isEmpty()) return null;
+
+        CompletableFuture<Map<String, String>> summaries = summarizer == null ? null : summarizer.summarize(recorded);
+        Path reportFile = reportDir.resolve("healing_report_" + LocalDateTime.now().format(TIMESTAMP_FORMAT) + ".html");
+        try {
+            Files.createDirectories(reportDir);
+            try (Writer out = new BufferedWriter(Files.newBufferedWriter(reportFile), 64 * 1024)) {
+                generator.write(recorded, summaries, summaryTimeoutMillis, reportDir, out);
+            }
+            logger.log(Level.INFO, "Healing report of " + recorded.size() + " failures generated at: " + reportFile);
+            return reportFile;
         } catch (IOException e) {
             logger.log(Level.SEVERE, "Failed to generate healing report", e);
+            return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,142 +1,211 @@
 package com.example.utils.reporting;
 
-import com.example.utils.CohereLLM;
-import com.example.utils.LocatorUpdater;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.utils.Hashing;
+import com.example.utils.healing.ArtifactStore;
+import com.example.utils.healing.HealingResult;
 import com.github.jknack.handlebars.internal.text.StringEscapeUtils;
+import org.json.JSONObject;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Writes the run-level healing report. The report is streamed to the writer row by row; artifacts are written once
+ * per distinct content into inert templates at the end of the document and only rendered when their row is expanded,
+ * and the rows are paginated in the browser. AI summaries are written last, so they can be requested while the rest
+ * of the report is written.
+ */
 public class HealingReportGenerator {
     private static final Logger logger = Logger.getLogger(HealingReportGenerator.class.getName());
 
+    private static final String STYLE = """
+            body { font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background: #f0f0f0; }
+            h1 { color: #333; text-align: center; }
+            pre { background: #f4f4f4; padding: 10px; border: 1px solid #ddd; border-radius: 5px; white-space: pre-wrap; word-wrap: break-word; max-height: 500px; overflow: auto; }
+            table { width: 100%; border-collapse: collapse; background: white; }
+            th, td { padding: 8px; border-bottom: 1px solid #ddd; text-align: left; vertical-align: top; }
+            th { background-color: #007bff; color: white; }
+            code { word-break: break-all; }
+            .summary { background: linear-gradient(135deg, #e0f7fa, #80deea); padding: 20px; border-radius: 10px; box-shadow: 0 4px 8px rgba(0, 0, 0, 0.1); margin-bottom: 20px; }
+            .summary h2 { color: #00796b; }
+            .summary p { color: #004d40; font-size: 16px; }
+            .artifact, #pager button { cursor: pointer; margin: 2px; padding: 4px 8px; border: none; border-radius: 5px; background-color: #007bff; color: white; }
+            .artifact:hover, #pager button:hover { background-color: #0056b3; }
+            #pager { margin: 10px 0; }
+            #pager button.current { background-color: #00796b; }
+            .ai-summary { color: #004d40; font-style: italic; }
+            """;
+
+    private static final String SCRIPT = """
+            document.addEventListener('DOMContentLoaded', function () {
+              var rows = Array.prototype.slice.call(document.querySelectorAll('tr.row'));
+              var pageSize = Number(document.getElementById('results').dataset.pageSize);
+              var pages = Math.max(1, Math.ceil(rows.length / pageSize));
+              function show(page) {
+                rows.forEach(function (row, i) {
+                  var visible = Math.floor(i / pageSize) === page;
+                  row.hidden = !visible;
+                  if (!visible) row.nextElementSibling.hidden = true;
+                });
+                var pager = document.getElementById('pager');
+                pager.innerHTML = '';
+                for (var p = 0; p < pages && pages > 1; p++) {
+                  var button = document.createElement('button');
+                  button.textContent = p + 1;
+                  if (p === page) button.className = 'current';
+                  button.onclick = show.bind(null, p);
+                  pager.appendChild(button);
+                }
+              }
+              document.addEventListener('click', function (event) {
+                var button = event.target.closest('.artifact');
+                if (!button) return;
+                var detail = button.closest('tr').nextElementSibling;
+                var pre = detail.querySelector('pre');
+                if (!detail.hidden && pre.dataset.ref === button.dataset.ref) {
+                  detail.hidden = true;
+                  return;
+                }
+                pre.dataset.ref = button.dataset.ref;
+                pre.textContent = document.getElementById(button.dataset.ref).content.textContent;
+                detail.hidden = false;
+              });
+              var summaries = JSON.parse(document.getElementById('summaries').textContent);
+              Object.keys(summaries).forEach(function (id) {
+                var cell = document.querySelector('[data-summary="' + id + '"]');
+                if (cell) cell.textContent = summaries[id];
+              });
+              show(0);
+            });
+            """;
+
+    private static final String PAGE_SOURCE_DIR = "page_sources";
+
+    private final ArtifactStore store;
+    private final int pageSize;
+    private final int maxArtifactChars;
+
     /**
-     * Generate an HTML report
-     * @param failedLocatorPath - Path to the failed locator file
-     * @param failedPageFilePath - Path to the failed page file
-     * @param llmOutputPath - Path to the LLM output file
-     * @param validatedLocPath - Path to the validated locators file
-     * @return - HTML report content
-     * @throws IOException - If an I/O error occurs
+     * Constructor
+     * @param store - store of the artifacts, queried for the page sources of the healing runs
+     * @param pageSize - rows per report page
+     * @param maxArtifactChars - artifacts are cut to this length in the report
      */
-    public String generateHTMLReport(String failedLocatorPath, String failedPageFilePath, String llmOutputPath, String validatedLocPath) throws IOException {
-        String failedLocatorContent = readFileContent(failedLocatorPath);
-        String failedPageContent = readFileContent(failedPageFilePath);
-        String llmOutputContent = readFileContent(llmOutputPath);
-        String validatedLocContent = readFileContent(validatedLocPath);
-        String firstFoundLocator = LocatorUpdater.getFirstFoundLocator(validatedLocPath);
-        String aiSummary = getAISummary(failedLocatorContent, failedPageContent, firstFoundLocator);
-
-        return "<html>" +
-                "<head>" +
-                "<title>Healing Report</title>" +
-                "<style>" +
-                "body { font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif; margin: 20px; background: #f0f0f0; }" +
-                "h1 { color: #333; text-align: center; }" +
-                "pre { background: #f4f4f4; padding: 10px; border: 1px solid #ddd; border-radius: 5px; white-space: pre-wrap; word-wrap: break-word; }" +
-                ".section { margin-bottom: 20px; }" +
-                ".accordion { cursor: pointer; padding: 15px; border: none; text-align: left; outline: none; font-size: 18px; transition: background-color 0.4s ease; background-color: #007bff; color: white; border-radius: 5px; display: flex; justify-content: space-between; align-items: center; }" +
-                ".accordion:hover { background-color: #0056b3; }" +
-                ".accordion:after { content: '\\002B'; font-size: 24px; transition: transform 0.4s ease; }" +
-                ".accordion.active:after { content: '\\2212'; transform: rotate(180deg); }" +
-                ".section-content { max-height: 0; overflow: hidden; transition: max-height 0.4s ease; padding: 0 18px; background-color: white; border-radius: 5px; margin-top: 10px; }" +
-                ".section-content.show { max-height: 500px; padding: 15px; }" +
-                ".summary { background: linear-gradient(135deg, #e0f7fa, #80deea); padding: 20px; border-radius: 10px; box-shadow: 0 4px 8px rgba(0, 0, 0, 0.1); }" +
-                ".summary h2 { color: #00796b; }" +
-                ".summary p { color: #004d40; font-size: 16px; }" +
-                "</style>" +
-                "<script>" +
-                "document.addEventListener('DOMContentLoaded', function() {" +
-                "  var acc = document.getElementsByClassName('accordion');" +
-                "  for (var i = 0; i < acc.length; i++) {" +
-                "    acc[i].addEventListener('click', function() {" +
-                "      this.classList.toggle('active');" +
-                "      var panel = this.nextElementSibling;" +
-                "      if (panel.style.maxHeight) {" +
-                "        panel.style.maxHeight = null;" +
-                "        panel.classList.remove('show');" +
-                "      } else {" +
-                "        panel.style.maxHeight = panel.scrollHeight + 'px';" +
-                "        panel.classList.add('show');" +
-                "      }" +
-                "    });" +
-                "  }" +
-                "});" +
-                "</script>" +
-                "</head>" +
-                "<body>" +
-                "<h1>Healing Report</h1>" +
-                "<div class='section summary'>" +
-                "<h2>Summary</h2>" +
-                "<p><strong>Failed Locator:</strong> <code>" + escapeHtml(failedLocatorContent) + "</code></p>" +
-                "<p><strong>Replaced Locator:</strong> <code>" + escapeHtml(firstFoundLocator) + "</code></p>" +
-                "<p><strong>AI Summary:</strong> " + escapeHtml(aiSummary) + "</p>" +
-                "</div>" +
-                "<div class='section'>" +
-                "<button class='accordion'>Failed Locator </button>" +
-                "<div id='failedLocator' class='section-content'><pre>" + escapeHtml(failedLocatorContent) + "</pre></div>" +
-                "</div>" +
-                "<div class='section'>" +
-                "<button class='accordion'>Processed HTML </button>" +
-                "<div id='processedHtml' class='section-content'><pre>" + escapeHtml(failedPageContent) + "</pre></div>" +
-                "</div>" +
-                "<div class='section'>" +
-                "<button class='accordion'>LLM Output </button>" +
-                "<div id='llmOutput' class='section-content'><pre>" + escapeHtml(llmOutputContent) + "</pre></div>" +
-                "</div>" +
-                "<div class='section'>" +
-                "<button class='accordion'>Validated Locators </button>" +
-                "<div id='validatedLocators' class='section-content'><pre>" + escapeHtml(validatedLocContent) + "</pre></div>" +
-                "</div>" +
-                "</body>" +
-                "</html>";
+    public HealingReportGenerator(ArtifactStore store, int pageSize, int maxArtifactChars) {
+        this.store = store;
+        this.pageSize = Math.max(1, pageSize);
+        this.maxArtifactChars = maxArtifactChars;
     }
 
     /**
-     * Read file content
-     * @param filePath - Path to the file
-     * @return - File content
-     * @throws IOException - If an I/O error occurs
+     * Stream the healing report of a run
+     * @param results - outcomes of the healing runs, in report order
+     * @param summaries - AI summaries per healing id, may be null; waited for at most summaryTimeoutMillis
+     * @param summaryTimeoutMillis - how long to wait for the AI summaries once the rest of the report is written
+     * @param reportDir - directory of the report, page sources are copied next to it
+     * @param out - destination of the report
+     * @throws IOException - if the report cannot be written
      */
-    private String readFileContent(String filePath) throws IOException {
-        return new String(Files.readAllBytes(Paths.get(filePath)));
+    public void write(List<HealingResult> results, CompletableFuture<Map<String, String>> summaries, long summaryTimeoutMillis,
+                      Path reportDir, Writer out) throws IOException {
+        long healed = results.stream().filter(HealingResult::isHealed).count();
+        Map<HealingResult.Source, Long> bySource = new EnumMap<>(HealingResult.Source.class);
+        results.stream().filter(HealingResult::isHealed).forEach(result -> bySource.merge(result.source(), 1L, Long::sum));
+
+        out.write("<!DOCTYPE html><html><head><meta charset='utf-8'><title>Healing Report</title><style>");
+        out.write(STYLE);
+        out.write("</style></head><body><h1>Healing Report</h1><div class='summary'><h2>Summary</h2>");
+        out.write("<p><strong>Failures:</strong> " + results.size() + "</p>");
+        out.write("<p><strong>Healed:</strong> " + healed + " " + escapeHtml(bySource.toString()) + "</p>");
+        out.write("<p><strong>Not healed:</strong> " + (results.size() - healed) + "</p></div>");
+        out.write("<div id='pager'></div><table id='results' data-page-size='" + pageSize + "'><thead><tr><th>#</th><th>Test</th>"
+                + "<th>Failed Locator</th><th>Replaced Locator</th><th>Source</th><th>Artifacts</th></tr></thead><tbody>");
+
+        Map<String, String> artifacts = new LinkedHashMap<>();
+        int number = 0;
+        for (HealingResult result : results) {
+            String id = result.context().id();
+            out.write("<tr class='row'><td>" + ++number + "</td><td>" + escapeHtml(result.context().testName()) + "</td>");
+            out.write("<td><code>" + escapeHtml(result.context().failedLocator()) + "</code></td>");
+            out.write("<td><code>" + escapeHtml(result.newLocator()) + "</code><div class='ai-summary' data-summary='"
+                    + escapeHtml(id) + "'></div></td>");
+            out.write("<td>" + result.source() + "</td><td>");
+            writeArtifactButton(out, artifacts, "Processed HTML", result.processedHtml());
+            writeArtifactButton(out, artifacts, "LLM Output", result.llmOutput());
+            writeArtifactButton(out, artifacts, "Validated Locators", result.validatedLocators());
+            for (ArtifactStore.IndexEntry entry : store.find(id)) {
+                if (entry.kind() == ArtifactStore.Kind.PAGE_SOURCE) {
+                    writePageSourceLink(out, reportDir, entry.hash());
+                }
+            }
+            out.write("</td></tr><tr class='detail' hidden><td colspan='6'><pre></pre></td></tr>");
+        }
+        out.write("</tbody></table>");
+
+        for (Map.Entry<String, String> artifact : artifacts.entrySet()) {
+            String content = artifact.getValue();
+            if (content.length() > maxArtifactChars) {
+                content = content.substring(0, maxArtifactChars) + "\n... truncated, " + artifact.getValue().length() + " characters";
+            }
+            out.write("<template id='" + artifact.getKey() + "'>" + escapeHtml(content) + "</template>");
+        }
+
+        Map<String, String> aiSummaries = awaitSummaries(summaries, summaryTimeoutMillis);
+        out.write("<script type='application/json' id='summaries'>");
+        out.write(new JSONObject(aiSummaries).toString().replace("</", "<\\/"));
+        out.write("</script><script>");
+        out.write(SCRIPT);
+        out.write("</script></body></html>");
     }
 
     /**
-     * Escape HTML content
-     * @param content - HTML content
-     * @return - Escaped HTML content
+     * Link a page source. The stored object is compressed, so a plain text copy is written once per page source next
+     * to the report, where a browser can open it; as text, the scripts of the page are not run.
+     * @param out - destination of the report
+     * @param reportDir - directory of the report
+     * @param hash - hash of the page source in the artifact store
+     * @throws IOException - if the report cannot be written
      */
-    private String escapeHtml(String content) {
-        return StringEscapeUtils.escapeHtml4(content);
+    private void writePageSourceLink(Writer out, Path reportDir, String hash) throws IOException {
+        String fileName = hash + ".txt";
+        if (!store.copyTo(hash, reportDir.resolve(PAGE_SOURCE_DIR).resolve(fileName))) return;
+        out.write("<a href='" + PAGE_SOURCE_DIR + "/" + fileName + "'>Page Source</a>");
     }
 
-    /**
-     * Get AI summary
-     * @param failedLocatorContent - Failed locator content
-     * @param pageSourceContent    - Page source content
-     * @param firstFoundLocator    - First found locator
-     * @return - AI summary
-     */
-    private String getAISummary(String failedLocatorContent, String pageSourceContent, String firstFoundLocator) {
-        String prompt = "Summarize the following content in 3-4 lines:\n" +
-                "Failed Locator: " + failedLocatorContent + "\n" +
-                "Page Source: " + pageSourceContent + "\n" +
-                "Replaced Locator: " + firstFoundLocator;
-        String jsonResponse = String.valueOf(CohereLLM.sendCohereRequest(prompt));
+    private void writeArtifactButton(Writer out, Map<String, String> artifacts, String label, String content) throws IOException {
+        if (content == null || content.isEmpty()) return;
+        String ref = "a-" + Hashing.sha256(content);
+        artifacts.putIfAbsent(ref, content);
+        out.write("<button class='artifact' data-ref='" + ref + "'>" + label + "</button>");
+    }
 
+    private static Map<String, String> awaitSummaries(CompletableFuture<Map<String, String>> summaries, long timeoutMillis) {
+        if (summaries == null) return Map.of();
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(jsonResponse);
-            return jsonNode.get("text").asText();
+            return summaries.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.log(Level.WARNING, "AI summaries not ready within " + timeoutMillis + " ms, report written without them");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error parsing AI summary response", e);
-            return "Error parsing AI summary response";
+            logger.log(Level.WARNING, "Error getting AI summaries", e);
         }
+        return Map.of();
+    }
+
+    /**
+     * Escape HTML content
+     * @param content - HTML content
+     * @return - Escaped HTML content, empty for null
+     */
+    private static String escapeHtml(String content) {
+        return content == null ? "" : StringEscapeUtils.escapeHtml4(content);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+package com.example.utils.reporting;
+
+import com.example.utils.Hashing;
+import com.example.utils.healing.HealingResult;
+import com.example.utils.llm.LlmProviders;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Short AI summaries of the healing runs of a suite for the healing report. Healings are summarized in batches, one
+ * LLM call per batch, from the locators and the validation outcome only; the page source is never sent again.
+ * Summaries are cached on disk by failed locator, new locator and source, so a healing repeated by later runs is not
+ * summarized again.
+ */
+public class ReportSummarizer {
+    private static final Logger logger = Logger.getLogger(ReportSummarizer.class.getName());
+
+    private static final int MAX_VALIDATION_LINES = 3;
+
+    private final Path cacheFile;
+    private final int batchSize;
+    private final Properties cache = new Properties();
+
+    /**
+     * Constructor
+     * @param cacheFile - file of the cached summaries
+     * @param batchSize - number of healings summarized per LLM call
+     */
+    public ReportSummarizer(Path cacheFile, int batchSize) {
+        this.cacheFile = cacheFile;
+        this.batchSize = Math.max(1, batchSize);
+        loadCache();
+    }
+
+    /**
+     * Summarize healing runs
+     * @param results - outcomes of the healing runs
+     * @return - completes with the summary per healing id; healings that could not be summarized are missing
+     */
+    public CompletableFuture<Map<String, String>> summarize(List<HealingResult> results) {
+        Map<String, String> summaries = new LinkedHashMap<>();
+        Map<String, List<String>> idsByKey = new LinkedHashMap<>();
+        Map<String, HealingResult> uncached = new LinkedHashMap<>();
+        synchronized (cache) {
+            for (HealingResult result : results) {
+                String key = cacheKey(result);
+                String cached = cache.getProperty(key);
+                if (cached != null) {
+                    summaries.put(result.context().id(), cached);
+                } else {
+                    idsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(result.context().id());
+                    uncached.putIfAbsent(key, result);
+                }
+            }
+        }
+        logger.log(Level.INFO, "AI summaries: " + summaries.size() + " cached, " + uncached.size() + " to request");
+
+        List<String> keys = List.copyOf(uncached.keySet());
+        List<CompletableFuture<Map<String, String>>> batches = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            List<String> batchKeys = keys.subList(from, Math.min(keys.size(), from + batchSize));
+            batches.add(requestBatch(batchKeys, batchKeys.stream().map(uncached::get).toList()));
+        }
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).handle((ignored, error) -> {
+            Map<String, String> requested = new HashMap<>();
+            batches.stream().filter(batch -> !batch.isCompletedExceptionally()).forEach(batch -> requested.putAll(batch.join()));
+            requested.forEach((key, summary) -> idsByKey.get(key).forEach(id -> summaries.put(id, summary)));
+            if (!requested.isEmpty()) saveCache(requested);
+            return summaries;
+        });
+    }
+
+    private CompletableFuture<Map<String, String>> requestBatch(List<String> keys, List<HealingResult> results) {
+        StringBuilder prompt = new StringBuilder("Summarize each of the following locator healings of a UI test run in one or two "
+                + "sentences for a test engineer. Answer only with a JSON object that maps the number of each healing to its summary.\n");
+        for (int i = 0; i < results.size(); i++) {
+            HealingResult result = results.get(i);
+            prompt.append(i + 1).append(". Test: ").append(result.context().testName())
+                    .append("; Failed locator: ").append(result.context().failedLocator())
+                    .append("; Replaced locator: ").append(result.isHealed() ? result.newLocator() : "none")
+                    .append("; Healed from: ").append(result.source());
+            if (result.validatedLocators() != null) {
+                prompt.append("; Validation: ").append(String.join(" | ",
+                        result.validatedLocators().lines().limit(MAX_VALIDATION_LINES).toList()));
+            }
+            prompt.append('\n');
+        }
+        return LlmProviders.getDefault().complete(prompt.toString())
+                .thenApply(response -> parse(keys, response.text()))
+                .exceptionally(e -> {
+                    logger.log(Level.WARNING, "Error getting AI summaries", e);
+                    return Map.of();
+                });
+    }
+
+    private static Map<String, String> parse(List<String> keys, String text) {
+        Map<String, String> summaries = new HashMap<>();
+        int start = text == null ? -1 : text.indexOf('{');
+        int end = text == null ? -1 : text.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            logger.log(Level.WARNING, "No JSON object in AI summary response");
+            return summaries;
+        }
+        try {
+            JSONObject json = new JSONObject(text.substring(start, end + 1));
+            for (int i = 0; i < keys.size(); i++) {
+                String summary = json.optString(String.valueOf(i + 1), null);
+                if (summary != null && !summary.isBlank()) summaries.put(keys.get(i), summary.trim());
+            }
+        } catch (JSONException e) {
+            logger.log(Level.WARNING, "Unreadable AI summary response", e);
+        }
+        return summaries;
+    }
+
+    private void loadCache() {
+        if (!Files.exists(cacheFile)) return;
+        try (InputStream input = Files.newInputStream(cacheFile)) {
+            cache.load(input);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Error loading cached AI summaries", e);
+        }
+    }
+
+    private void saveCache(Map<String, String> summaries) {
+        synchronized (cache) {
+            cache.putAll(summaries);
+            try {
+                Path parent = cacheFile.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                Path temp = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+                try (OutputStream output = Files.newOutputStream(temp)) {
+                    cache.store(output, "AI summaries of healings, keyed by a hash of failed locator, new locator and source");
+                }
+                Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Error saving cached AI summaries", e);
+            }
+        }
+    }
+
+    private static String cacheKey(HealingResult result) {
+        return Hashing.sha256(result.context().failedLocator() + '\n' + result.newLocator() + '\n' + result.source());
+    }
+}
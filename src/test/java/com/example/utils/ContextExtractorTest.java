@@ -0,0 +1,66 @@
+package com.example.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ContextExtractorTest {
+    private static final Document PAGE = Jsoup.parse("""
+            <html><body>
+            <form id="search">
+              <div class="row">
+                <input name="q" placeholder="Search">
+              </div>
+              <div class="row">
+                <select name="lang">
+                  <option value="en">English</option>
+                  <option value="de">Deutsch</option>
+                </select>
+              </div>
+            </form>
+            <ul id="results">
+              <li><a id="first" href="/1">First result</a></li>
+              <li><a id="second" href="/2">Second result</a></li>
+            </ul>
+            </body></html>""");
+
+    @Test
+    public void batchContextKeepsRepeatedClosingTags() {
+        ContextExtractor extractor = new ContextExtractor(2000, 25);
+
+        String context = extractor.extract(PAGE, List.of("//a[@id='first-old']", "//a[@id='second-old']",
+                "//select[@name='language']", "//input[@name='query']"));
+
+        for (String tag : List.of("div", "li", "option", "select", "ul", "form")) {
+            Assert.assertEquals(count(context, "<" + tag + "[ >]"), count(context, "</" + tag + ">"), tag + " in " + context);
+        }
+        Assert.assertEquals(count(context, "<option[ >]"), 2);
+        Assert.assertEquals(count(context, "id=\"first\""), 1);
+        Assert.assertEquals(count(context, "id=\"second\""), 1);
+    }
+
+    @Test
+    public void batchSharesOneTokenBudget() {
+        ContextExtractor extractor = new ContextExtractor(40, 25);
+        List<String> failedLocators = List.of("//a[@id='first-old']", "//select[@name='language']");
+
+        String batch = extractor.extract(PAGE, failedLocators);
+        String first = extractor.extract(PAGE, failedLocators.get(0));
+        String second = extractor.extract(PAGE, failedLocators.get(1));
+
+        Assert.assertFalse(batch.isEmpty());
+        Assert.assertTrue(batch.length() < first.length() + second.length(), batch);
+    }
+
+    private static int count(String text, String regex) {
+        Matcher matcher = Pattern.compile(regex).matcher(text);
+        int count = 0;
+        while (matcher.find()) count++;
+        return count;
+    }
+}
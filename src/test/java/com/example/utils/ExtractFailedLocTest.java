@@ -0,0 +1,30 @@
+package com.example.utils;
+
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ExtractFailedLocTest {
+
+    @Test
+    public void extractsSelectorWithQuotes() {
+        String locator = "//button[text()=\"Log in\" and @class='primary']";
+        String message = "no such element: Unable to locate element: {\"method\":\"xpath\",\"selector\":"
+                + JSONObject.quote(locator) + "}";
+
+        Assert.assertEquals(ExtractFailedLoc.extractLocator(message), locator);
+    }
+
+    @Test
+    public void extractsSelectorOfDriverMessage() {
+        String message = "org.openqa.selenium.NoSuchElementException: no such element: Unable to locate element: "
+                + "{\"method\":\"xpath\",\"selector\":\"//input[@name=\\\"q\\\"]\"}\n  (Session info: chrome=120.0)";
+
+        Assert.assertEquals(ExtractFailedLoc.extractLocator(message), "//input[@name=\"q\"]");
+    }
+
+    @Test
+    public void reportsMissingSelector() {
+        Assert.assertEquals(ExtractFailedLoc.extractLocator("timeout"), "Locator not found in exception message");
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.utils;
+
+import org.jsoup.Jsoup;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+public class HeuristicHealerTest {
+    private static final String FAILED_LOCATOR = "//input[@name='btnK']";
+
+    private final HeuristicHealer healer = new HeuristicHealer(true, 0.8, 0.1, 5);
+
+    @Test
+    public void nearIdenticalSiblingsAreLeftToTheLlm() {
+        LocatorValidator.Page page = new LocatorValidator.Page(Jsoup.parse("""
+                <form action="/search">
+                  <input name="q" type="text">
+                  <input name="btnI" type="submit">
+                  <input name="btnL" type="submit">
+                </form>"""));
+
+        List<HeuristicHealer.Candidate> candidates = healer.rank(page, FAILED_LOCATOR);
+
+        Assert.assertTrue(candidates.get(0).score() >= 0.8, candidates.toString());
+        Assert.assertTrue(candidates.get(1).score() >= 0.8, candidates.toString());
+        Assert.assertNull(healer.heal(page, FAILED_LOCATOR));
+    }
+
+    @Test
+    public void uniqueBestMatchIsHealedLocally() {
+        LocatorValidator.Page page = new LocatorValidator.Page(Jsoup.parse("""
+                <form action="/search">
+                  <input name="q" type="text">
+                  <input name="btnI" type="submit">
+                </form>"""));
+
+        String healed = healer.heal(page, FAILED_LOCATOR);
+
+        Assert.assertNotNull(healed);
+        Assert.assertTrue(healed.startsWith("Locator: //input[@name='btnI']"), healed);
+    }
+}
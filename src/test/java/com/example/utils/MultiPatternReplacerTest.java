@@ -0,0 +1,67 @@
+package com.example.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class MultiPatternReplacerTest {
+
+    @Test
+    public void replacesEveryOccurrenceInOnePass() {
+        MultiPatternReplacer replacer = new MultiPatternReplacer(Map.of("//a[@id='x']", "//a[@id='y']", "//b", "//c"));
+
+        String replaced = replacer.replace("first=//a[@id='x']\nsecond=//b\nthird=//a[@id='x']");
+
+        Assert.assertEquals(replaced, "first=//a[@id='y']\nsecond=//c\nthird=//a[@id='y']");
+    }
+
+    @Test
+    public void replacementsAreNotReplacedAgain() {
+        MultiPatternReplacer replacer = new MultiPatternReplacer(Map.of("//a", "//b", "//b", "//a"));
+
+        Assert.assertEquals(replacer.replace("//a //b"), "//b //a");
+    }
+
+    @Test
+    public void longestMatchWinsAtTheSameStart() {
+        Map<String, String> replacements = new LinkedHashMap<>();
+        replacements.put("//div", "SHORT");
+        replacements.put("//div[@id='main']", "LONG");
+        MultiPatternReplacer replacer = new MultiPatternReplacer(replacements);
+        Set<String> replaced = new HashSet<>();
+
+        Assert.assertEquals(replacer.replace("x=//div[@id='main'] y=//div", replaced), "x=LONG y=SHORT");
+        Assert.assertEquals(replaced, Set.of("//div", "//div[@id='main']"));
+    }
+
+    @Test
+    public void patternInsideLongerMatchIsNotCollected() {
+        MultiPatternReplacer replacer = new MultiPatternReplacer(Map.of("//form//input", "A", "input", "B"));
+        Set<String> replaced = new HashSet<>();
+
+        Assert.assertEquals(replacer.replace("//form//input", replaced), "A");
+        Assert.assertEquals(replaced, Set.of("//form//input"));
+    }
+
+    @Test
+    public void findsPatternsThroughFailureLinks() {
+        MultiPatternReplacer replacer = new MultiPatternReplacer(Map.of("he", "1", "she", "2", "his", "3", "hers", "4"));
+
+        Assert.assertEquals(replacer.replace("ushers"), "u2rs");
+        Assert.assertEquals(replacer.replace("ahishers"), "a34");
+    }
+
+    @Test
+    public void unmatchedTextIsReturnedAsIs() {
+        MultiPatternReplacer replacer = new MultiPatternReplacer(Map.of("//a", "//b", "", "ignored"));
+        String text = "no locator here";
+
+        Assert.assertSame(replacer.replace(text), text);
+        Assert.assertFalse(replacer.matches(text));
+        Assert.assertTrue(replacer.matches("x=//a"));
+    }
+}
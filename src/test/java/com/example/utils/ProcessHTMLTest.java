@@ -0,0 +1,32 @@
+package com.example.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+public class ProcessHTMLTest {
+    private static final Document PAGE = Jsoup.parse("<form><input name='q'><button id='go'>Go</button></form>");
+
+    @Test
+    public void cancelledExtractionIsNotAnEmptySnippet() {
+        Thread.currentThread().interrupt();
+        try {
+            Assert.expectThrows(CancellationException.class, () -> ProcessHTML.extractFailedPart(PAGE, "//button[@id='go-old']"));
+            Assert.expectThrows(CancellationException.class, () -> ProcessHTML.extractFailedPart(PAGE, List.of("//input[@name='query']")));
+            Assert.assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void extractsTheSnippetOfTheLocator() {
+        String snippet = ProcessHTML.extractFailedPart(PAGE, "//button[@id='go-old']");
+
+        Assert.assertTrue(snippet.contains("id=\"go\""), snippet);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.utils.healing;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ArtifactStoreTest {
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private Path storeDir;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        storeDir = Files.createTempDirectory("artifact-store");
+    }
+
+    @Test
+    public void evictKeepsEntriesAppendedByAnotherStore() throws IOException {
+        ArtifactStore store = new ArtifactStore(storeDir, Long.MAX_VALUE, HOUR);
+        String evicted = store.put(new HealingContext("heal-1", "test", "//a"), ArtifactStore.Kind.PAGE_SOURCE, "<html>old</html>");
+        Files.setLastModifiedTime(store.getObjectPath(evicted), FileTime.fromMillis(System.currentTimeMillis() - 2 * HOUR));
+        // Another JVM sharing the store appends after this one loaded the index
+        ArtifactStore other = new ArtifactStore(storeDir, Long.MAX_VALUE, HOUR);
+        String kept = other.put(new HealingContext("heal-2", "test", "//b"), ArtifactStore.Kind.PAGE_SOURCE, "<html>new</html>");
+
+        store.evict();
+
+        List<ArtifactStore.IndexEntry> entries = new ArtifactStore(storeDir, Long.MAX_VALUE, HOUR).entries();
+        Assert.assertEquals(entries.stream().map(ArtifactStore.IndexEntry::hash).toList(), List.of(kept));
+        Assert.assertFalse(Files.exists(store.getObjectPath(evicted)));
+        Assert.assertEquals(store.read(kept), "<html>new</html>");
+    }
+}
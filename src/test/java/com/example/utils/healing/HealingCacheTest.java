@@ -0,0 +1,111 @@
+package com.example.utils.healing;
+
+import org.jsoup.Jsoup;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class HealingCacheTest {
+    private static final String FAILED_LOCATOR = "//button[@id='login-old']";
+    private static final String REPLACEMENT = "//button[@data-testid='login']";
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private Path cacheDir;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("healing-cache");
+    }
+
+    @Test
+    public void fingerprintIgnoresTextAndAttributes() {
+        String before = HealingCache.fingerprint(Jsoup.parse("<title>Login</title><form><input id='a'><button>Go</button></form>"));
+        String after = HealingCache.fingerprint(Jsoup.parse("<title>Login</title><form><input id='b'><button>Log in</button></form>"));
+        String changed = HealingCache.fingerprint(Jsoup.parse("<title>Login</title><form><input id='a'></form><button>Go</button>"));
+
+        Assert.assertEquals(after, before);
+        Assert.assertNotEquals(changed, before);
+    }
+
+    @Test
+    public void lookupHitsOnlyTheSameFingerprint() {
+        HealingCache cache = new HealingCache(true, cacheDir, 10, HOUR, HOUR);
+        cache.put(FAILED_LOCATOR, "page-1", REPLACEMENT);
+
+        Assert.assertEquals(cache.lookup(FAILED_LOCATOR, "page-1"), REPLACEMENT);
+        Assert.assertNull(cache.lookup(FAILED_LOCATOR, "page-2"));
+        Assert.assertNull(cache.lookup("//button[@id='other']", "page-1"));
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 2);
+    }
+
+    @Test
+    public void lookupExpiresByCreationTimeEvenAfterRecentHit() throws IOException {
+        HealingCache cache = new HealingCache(true, cacheDir, 10, HOUR, HOUR);
+        cache.put(FAILED_LOCATOR, "page-1", REPLACEMENT);
+        Path entry = entries().getFirst();
+
+        // A hit touches the modification time only, the TTL still counts from createdAt
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(entry)) {
+            properties.load(input);
+        }
+        properties.setProperty("createdAt", String.valueOf(System.currentTimeMillis() - 2 * HOUR));
+        try (OutputStream output = Files.newOutputStream(entry)) {
+            properties.store(output, null);
+        }
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+
+        Assert.assertNull(cache.lookup(FAILED_LOCATOR, "page-1"));
+    }
+
+    @Test
+    public void putEvictsPeriodically() throws IOException {
+        HealingCache cache = new HealingCache(true, cacheDir, 1, HOUR, HOUR);
+        List<Path> written = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            cache.put("//a[" + i + "]", "page-1", "//b[" + i + "]");
+            Path entry = entries().stream().filter(path -> !written.contains(path)).findFirst().orElseThrow();
+            // Used in the order they were written, the last one most recently
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis() - (3 - i) * 60_000L));
+            written.add(entry);
+        }
+
+        // Only the first put was due for eviction, the interval has not passed for the others
+        Assert.assertEquals(entries().size(), 3);
+
+        cache.evict();
+
+        Assert.assertEquals(entries().size(), 1);
+        Assert.assertEquals(cache.lookup("//a[2]", "page-1"), "//b[2]");
+    }
+
+    @Test
+    public void evictDropsExpiredEntries() throws IOException {
+        HealingCache cache = new HealingCache(true, cacheDir, 10, HOUR, HOUR);
+        cache.put(FAILED_LOCATOR, "page-1", REPLACEMENT);
+        HealingCache expiring = new HealingCache(true, cacheDir, 10, -1, HOUR);
+
+        expiring.evict();
+
+        Assert.assertTrue(entries().isEmpty());
+    }
+
+    private List<Path> entries() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".entry")).toList();
+        }
+    }
+}
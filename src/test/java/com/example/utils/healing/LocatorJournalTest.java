@@ -0,0 +1,149 @@
+package com.example.utils.healing;
+
+import com.example.configurations.ConfigManager;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public class LocatorJournalTest {
+    private static final String OLD_LOCATOR = "//button[@id='login-old']";
+    private static final String NEW_LOCATOR = "//button[@data-testid='login']";
+
+    private Path locatorRoot;
+    private Path journalDir;
+    private Path locatorsFile;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        // The journal lives outside the locator root, the write-back would otherwise rewrite its lines as well
+        locatorRoot = Files.createTempDirectory("locator-root");
+        journalDir = Files.createTempDirectory("locator-journal");
+        locatorsFile = locatorRoot.resolve("locators.loc");
+        Files.writeString(locatorsFile, "login.button=" + OLD_LOCATOR + "\n");
+        System.setProperty("locatorPath", locatorRoot.toString());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        System.clearProperty("locatorPath");
+        ConfigManager.reloadLocators();
+    }
+
+    @Test
+    public void commitWritesHealAndArchivesEntry() throws IOException {
+        LocatorJournal journal = new LocatorJournal(journalDir, false);
+        journal.record(OLD_LOCATOR, NEW_LOCATOR, "heal-1");
+
+        LocatorJournal.CommitResult result = journal.commit();
+
+        Assert.assertEquals(result.replacements(), Map.of(OLD_LOCATOR, NEW_LOCATOR));
+        Assert.assertEquals(result.changedFiles(), List.of(locatorsFile));
+        Assert.assertEquals(Files.readString(locatorsFile), "login.button=" + NEW_LOCATOR + "\n");
+        Assert.assertTrue(journal.getEntries().isEmpty());
+        Assert.assertEquals(archives().size(), 1);
+        Assert.assertTrue(new LocatorJournal(journalDir, false).getEntries().isEmpty());
+    }
+
+    @Test
+    public void commitReloadsTheWrittenLocatorsFile() {
+        ConfigManager.reloadLocators(List.of(locatorsFile));
+        Assert.assertEquals(ConfigManager.getLocator("login.button"), OLD_LOCATOR);
+        LocatorJournal journal = new LocatorJournal(journalDir, false);
+        journal.record(OLD_LOCATOR, NEW_LOCATOR, "heal-1");
+
+        journal.commit();
+
+        Assert.assertEquals(ConfigManager.getLocator("login.button"), NEW_LOCATOR);
+    }
+
+    @Test
+    public void commitKeepsHealFoundInNoFile() throws IOException {
+        String missing = "//input[@id='not-in-any-file']";
+        LocatorJournal journal = new LocatorJournal(journalDir, false);
+        journal.record(missing, "//input[@name='search']", "heal-1");
+
+        LocatorJournal.CommitResult result = journal.commit();
+
+        Assert.assertTrue(result.replacements().isEmpty());
+        Assert.assertTrue(result.changedFiles().isEmpty());
+        Assert.assertEquals(journal.getEntries().size(), 1);
+        List<LocatorJournal.Entry> recovered = new LocatorJournal(journalDir, false).getEntries();
+        Assert.assertEquals(recovered.size(), 1);
+        Assert.assertEquals(recovered.getFirst().failedLocator(), missing);
+    }
+
+    @Test
+    public void commitSkipsConflictingHeals() throws IOException {
+        LocatorJournal journal = new LocatorJournal(journalDir, false);
+        journal.record(OLD_LOCATOR, NEW_LOCATOR, "heal-1");
+        journal.record(OLD_LOCATOR, "//button[text()='Log in']", "heal-2");
+
+        LocatorJournal.CommitResult result = journal.commit();
+
+        Assert.assertTrue(result.replacements().isEmpty());
+        Assert.assertEquals(result.conflicts().get(OLD_LOCATOR), Set.of(NEW_LOCATOR, "//button[text()='Log in']"));
+        Assert.assertEquals(Files.readString(locatorsFile), "login.button=" + OLD_LOCATOR + "\n");
+        Assert.assertEquals(journal.getEntries().size(), 2);
+    }
+
+    @Test
+    public void dryRunOnlyWritesDiff() throws IOException {
+        LocatorJournal journal = new LocatorJournal(journalDir, true);
+        journal.record(OLD_LOCATOR, NEW_LOCATOR, "heal-1");
+
+        LocatorJournal.CommitResult result = journal.commit();
+
+        Assert.assertEquals(result.changedFiles(), List.of(locatorsFile));
+        Assert.assertEquals(Files.readString(locatorsFile), "login.button=" + OLD_LOCATOR + "\n");
+        Assert.assertEquals(journal.getEntries().size(), 1);
+        try (Stream<Path> files = Files.list(journalDir)) {
+            Path diff = files.filter(path -> path.getFileName().toString().endsWith(".diff")).findFirst().orElseThrow();
+            Assert.assertTrue(Files.readString(diff).contains("+login.button=" + NEW_LOCATOR));
+        }
+    }
+
+    @Test
+    public void collapseChainsFollowsHealsToTheLastLocator() {
+        Map<String, String> heals = new LinkedHashMap<>();
+        heals.put("//a", "//b");
+        heals.put("//b", "//c");
+        heals.put("//x", "//y");
+        Map<String, Set<String>> conflicts = new LinkedHashMap<>();
+
+        Map<String, String> replacements = LocatorJournal.collapseChains(heals, conflicts);
+
+        Assert.assertEquals(replacements, Map.of("//a", "//c", "//b", "//c", "//x", "//y"));
+        Assert.assertTrue(conflicts.isEmpty());
+    }
+
+    @Test
+    public void collapseChainsMovesLoopsToConflicts() {
+        Map<String, String> heals = new LinkedHashMap<>();
+        heals.put("//a", "//b");
+        heals.put("//b", "//a");
+        heals.put("//x", "//y");
+        Map<String, Set<String>> conflicts = new LinkedHashMap<>();
+
+        Map<String, String> replacements = LocatorJournal.collapseChains(heals, conflicts);
+
+        Assert.assertEquals(replacements, Map.of("//x", "//y"));
+        Assert.assertEquals(conflicts.keySet(), Set.of("//a", "//b"));
+        Assert.assertEquals(conflicts.get("//a"), Set.of("//a", "//b"));
+    }
+
+    private List<Path> archives() throws IOException {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("committed_")).toList();
+        }
+    }
+}
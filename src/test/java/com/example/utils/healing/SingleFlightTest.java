@@ -0,0 +1,113 @@
+package com.example.utils.healing;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallersShareOneCall() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SingleFlight.Flight<String>> first = executor.submit(() -> flights.run("key", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                Assert.assertTrue(release.await(5, TimeUnit.SECONDS));
+                return "healed";
+            }));
+            Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<SingleFlight.Flight<String>> second = executor.submit(() -> flights.run("key", () -> {
+                calls.incrementAndGet();
+                return "second";
+            }));
+            // The second caller can only finish by sharing the first call, which waits for the release
+            Thread.sleep(100);
+            Assert.assertFalse(second.isDone());
+            release.countDown();
+
+            Assert.assertEquals(first.get(5, TimeUnit.SECONDS), new SingleFlight.Flight<>("healed", false));
+            Assert.assertEquals(second.get(5, TimeUnit.SECONDS), new SingleFlight.Flight<>("healed", true));
+            Assert.assertEquals(calls.get(), 1);
+            Assert.assertEquals(flights.size(), 0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void finishedCallReleasesKey() throws Exception {
+        SingleFlight<Integer> flights = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        Assert.assertEquals(flights.run("key", calls::incrementAndGet).value(), 1);
+        Assert.assertEquals(flights.run("key", calls::incrementAndGet).value(), 2);
+        Assert.assertEquals(flights.size(), 0);
+    }
+
+    @Test
+    public void failedCallReleasesKeyAndRethrows() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+
+        Assert.assertThrows(IOException.class, () -> flights.run("key", () -> {
+            throw new IOException("page gone");
+        }));
+        Assert.assertEquals(flights.size(), 0);
+        Assert.assertEquals(flights.run("key", () -> "retried").value(), "retried");
+    }
+
+    @Test
+    public void claimIsOwnedByFirstCallerOnly() throws Exception {
+        SingleFlight<String> flights = new SingleFlight<>();
+
+        SingleFlight<String>.Claim owned = flights.claim("key");
+        SingleFlight<String>.Claim waiting = flights.claim("key");
+        Assert.assertTrue(owned.owner());
+        Assert.assertFalse(waiting.owner());
+        Assert.assertEquals(flights.size(), 1);
+
+        // Completing a claim that is not owned has no effect
+        waiting.complete("ignored");
+        owned.complete("healed");
+
+        Assert.assertEquals(waiting.await(), "healed");
+        Assert.assertEquals(owned.await(), "healed");
+        Assert.assertEquals(flights.size(), 0);
+        Assert.assertTrue(flights.claim("key").owner());
+    }
+
+    @Test
+    public void failedClaimRethrowsForWaitingCallers() {
+        SingleFlight<String> flights = new SingleFlight<>();
+        SingleFlight<String>.Claim owned = flights.claim("key");
+        SingleFlight<String>.Claim waiting = flights.claim("key");
+
+        owned.fail(new IOException("page gone"));
+
+        Assert.assertThrows(IOException.class, waiting::await);
+        Assert.assertEquals(flights.size(), 0);
+    }
+
+    @Test
+    public void cancelledClaimInterruptsWaitingCallers() {
+        SingleFlight<String> flights = new SingleFlight<>();
+        SingleFlight<String>.Claim owned = flights.claim("key");
+        SingleFlight<String>.Claim waiting = flights.claim("key");
+
+        owned.fail(new CancellationException());
+
+        Assert.assertThrows(InterruptedException.class, waiting::await);
+    }
+}
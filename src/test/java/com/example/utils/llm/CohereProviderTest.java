@@ -0,0 +1,100 @@
+package com.example.utils.llm;
+
+import com.cohere.api.core.CohereApiApiError;
+import com.cohere.api.core.Environment;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CohereProviderTest {
+    private static final int EVENTS = 50;
+
+    private HttpServer server;
+    private CohereProvider provider;
+    private final AtomicInteger status = new AtomicInteger();
+    private CompletableFuture<Integer> sent;
+    private CountDownLatch streaming;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        status.set(200);
+        sent = new CompletableFuture<>();
+        streaming = new CountDownLatch(1);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v1/chat", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            if (status.get() != 200) {
+                byte[] error = "{\"message\": \"invalid api token\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(status.get(), error.length);
+                exchange.getResponseBody().write(error);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, 0);
+            int events = 0;
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write("{\"event_type\": \"stream-start\", \"generation_id\": \"1\"}\n".getBytes(StandardCharsets.UTF_8));
+                for (; events < EVENTS; events++) {
+                    body.write(("{\"event_type\": \"text-generation\", \"text\": \"t" + events + " \"}\n").getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    streaming.countDown();
+                    Thread.sleep(50);
+                }
+            } catch (IOException | InterruptedException e) {
+                // The client closed the response
+            }
+            sent.complete(events);
+        });
+        server.start();
+        provider = new CohereProvider("test-key", Environment.custom("http://localhost:" + server.getAddress().getPort() + "/"));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        provider.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void streamLeftEarlyClosesTheResponse() throws Exception {
+        AtomicInteger deltas = new AtomicInteger();
+
+        LlmResponse response = provider.stream("prompt", delta -> deltas.incrementAndGet() < 2).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(response.text(), "t0 t1 ");
+        Assert.assertTrue(sent.get(5, TimeUnit.SECONDS) < EVENTS, "the server kept sending after the stream was left");
+    }
+
+    @Test
+    public void cancelledStreamAbortsTheRequest() throws Exception {
+        CompletableFuture<LlmResponse> call = provider.stream("prompt", delta -> true);
+        Assert.assertTrue(streaming.await(10, TimeUnit.SECONDS));
+
+        call.cancel(true);
+
+        Assert.assertTrue(sent.get(5, TimeUnit.SECONDS) < EVENTS, "the server kept sending after the call was cancelled");
+    }
+
+    @Test
+    public void errorStatusFailsTheStream() {
+        status.set(401);
+
+        ExecutionException error = Assert.expectThrows(ExecutionException.class,
+                () -> provider.stream("prompt", delta -> true).get(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(error.getCause() instanceof CohereApiApiError, String.valueOf(error.getCause()));
+        Assert.assertEquals(((CohereApiApiError) error.getCause()).statusCode(), 401);
+    }
+}
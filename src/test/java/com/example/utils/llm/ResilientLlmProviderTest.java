@@ -0,0 +1,69 @@
+package com.example.utils.llm;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ResilientLlmProviderTest {
+
+    /**
+     * Provider whose requests never finish on their own
+     */
+    private static class HangingProvider implements LlmProvider {
+        private final List<CompletableFuture<LlmResponse>> requests = new CopyOnWriteArrayList<>();
+        private final List<Boolean> previousCancelled = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getName() {
+            return "hanging";
+        }
+
+        @Override
+        public CompletableFuture<LlmResponse> complete(String prompt) {
+            if (!requests.isEmpty()) previousCancelled.add(requests.getLast().isCancelled());
+            CompletableFuture<LlmResponse> request = new CompletableFuture<>();
+            requests.add(request);
+            return request;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void timedOutAttemptIsCancelledBeforeTheRetry() throws Exception {
+        HangingProvider delegate = new HangingProvider();
+        ResilientLlmProvider provider = new ResilientLlmProvider(delegate, Duration.ofMillis(50), 2, Duration.ofMillis(1), 10, Duration.ofSeconds(30));
+
+        ExecutionException error = Assert.expectThrows(ExecutionException.class, () -> provider.complete("prompt").get(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(error.getCause() instanceof TimeoutException, String.valueOf(error.getCause()));
+        Assert.assertEquals(delegate.requests.size(), 2);
+        Assert.assertEquals(delegate.previousCancelled, List.of(true));
+        Assert.assertTrue(delegate.requests.getLast().isCancelled());
+    }
+
+    @Test
+    public void cancelledCallCancelsItsAttemptAndStopsRetrying() throws Exception {
+        HangingProvider delegate = new HangingProvider();
+        ResilientLlmProvider provider = new ResilientLlmProvider(delegate, Duration.ofSeconds(30), 3, Duration.ofMillis(1), 1, Duration.ofSeconds(30));
+
+        CompletableFuture<LlmResponse> call = provider.complete("prompt");
+        call.cancel(true);
+        Thread.sleep(100);
+
+        Assert.assertEquals(delegate.requests.size(), 1);
+        Assert.assertTrue(delegate.requests.getFirst().isCancelled());
+        // The cancelled call does not count as a provider failure for the circuit breaker
+        provider.complete("prompt");
+        Assert.assertEquals(delegate.requests.size(), 2);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.utils.llm;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class StreamingLocatorParserTest {
+    private static final String CANDIDATES = """
+            [{"locator": "//button[@id='login']", "score": 0.9, "explanation": "same id"},
+             {"locator": "//button[text()='Log in']", "score": "0.7", "explanation": "same text"}]""";
+
+    @Test
+    public void parsesCandidatesAfterProse() {
+        List<LocatorCandidate> candidates = StreamingLocatorParser.parse("Here are the locators:\n" + CANDIDATES);
+
+        Assert.assertEquals(candidates, List.of(
+                new LocatorCandidate(null, "//button[@id='login']", 0.9, "same id"),
+                new LocatorCandidate(null, "//button[text()='Log in']", 0.7, "same text")));
+    }
+
+    @Test
+    public void parsesCandidatesInCodeFence() {
+        List<LocatorCandidate> candidates = StreamingLocatorParser.parse("```json\n" + CANDIDATES + "\n```");
+
+        Assert.assertEquals(candidates.size(), 2);
+        Assert.assertEquals(candidates.getFirst().locator(), "//button[@id='login']");
+    }
+
+    @Test
+    public void skipsBracketsInsideProse() {
+        StreamingLocatorParser parser = new StreamingLocatorParser(candidate -> false);
+        parser.feed("The old locator //button[@id='old'] is gone. {Fixed} below:\n" + CANDIDATES);
+        parser.end();
+
+        Assert.assertFalse(parser.isFailed());
+        Assert.assertEquals(parser.getCandidates().size(), 2);
+    }
+
+    @Test
+    public void lineStartIsKeptAcrossChunks() {
+        List<LocatorCandidate> received = new ArrayList<>();
+        StreamingLocatorParser parser = new StreamingLocatorParser(candidate -> {
+            received.add(candidate);
+            return false;
+        });
+        String response = "Locators for //a[1]:\n" + CANDIDATES;
+        for (int i = 0; i < response.length(); i += 7) {
+            parser.feed(response.substring(i, Math.min(response.length(), i + 7)));
+        }
+        parser.end();
+
+        Assert.assertEquals(received.size(), 2);
+        Assert.assertEquals(received.getLast().locator(), "//button[text()='Log in']");
+    }
+
+    @Test
+    public void readsGroupsOfBatchResponse() {
+        List<LocatorCandidate> candidates = StreamingLocatorParser.parse("""
+                {"1": [{"locator": "//a[@id='one']", "score": 0.8}],
+                 "2": [{"locator": "//a[@id='two']", "explanation": "no score"}]}""");
+
+        Assert.assertEquals(candidates, List.of(
+                new LocatorCandidate("1", "//a[@id='one']", 0.8, ""),
+                new LocatorCandidate("2", "//a[@id='two']", 0, "no score")));
+    }
+
+    @Test
+    public void listenerStopsParsing() {
+        StreamingLocatorParser parser = new StreamingLocatorParser(candidate -> true);
+
+        Assert.assertFalse(parser.feed(CANDIDATES));
+        Assert.assertTrue(parser.isStopped());
+        Assert.assertEquals(parser.getCandidates().size(), 1);
+    }
+
+    @Test
+    public void fallsBackToJsonAfterProseOnTheSameLine() {
+        String response = "Sure, here they are: " + CANDIDATES.replace("\n", "");
+        StreamingLocatorParser parser = new StreamingLocatorParser(candidate -> false);
+        parser.feed(response);
+        parser.end();
+        Assert.assertTrue(parser.getCandidates().isEmpty());
+
+        Assert.assertEquals(StreamingLocatorParser.parse(response).size(), 2);
+    }
+
+    @Test
+    public void truncatedResponseKeepsClosedCandidates() {
+        StreamingLocatorParser parser = new StreamingLocatorParser(candidate -> false);
+        parser.feed(CANDIDATES.substring(0, CANDIDATES.indexOf("{\"locator\": \"//button[text()")));
+        parser.end();
+
+        Assert.assertTrue(parser.isFailed());
+        Assert.assertEquals(parser.getCandidates().size(), 1);
+    }
+}